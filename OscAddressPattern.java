@@ -0,0 +1,178 @@
+package com.osc;
+
+import java.nio.ByteBuffer;
+
+/**
+ * OSC address pattern class
+ * 
+ * This class matches addresses against an OSC address pattern, following the
+ * OSC pattern syntax: '?' matches any character, '*' any sequence of
+ * characters, "[a-z]" and "[!a-z]" a character in or out of a set, and
+ * "{foo,bar}" any of the listed strings. '*' and '?' do not match '/', so a
+ * pattern part only matches one address part.
+ * <p>
+ * Patterns are immutable, and can be shared between threads. Matching is
+ * done on the encoded address bytes, without building a string.
+ * </p>
+ */
+public class OscAddressPattern {
+
+	private final String mPattern;
+	private final byte[] mBytes;
+
+	/**
+	 * Build a new OscAddressPattern.
+	 * 
+	 * @param aPattern
+	 *            the address pattern, like "/mixer/{fader,mute}[1-8]".
+	 */
+	public OscAddressPattern(String aPattern) {
+		mPattern = aPattern;
+		mBytes = aPattern.getBytes();
+	}
+
+	/**
+	 * Indicates whether an address matches this pattern.
+	 * 
+	 * @param aAddress
+	 *            the address.
+	 * @return true if the address matches.
+	 */
+	public boolean matches(String aAddress) {
+		byte[] address = aAddress.getBytes();
+		return matches(ByteBuffer.wrap(address), 0, address.length);
+	}
+
+	/**
+	 * Indicates whether the address of a message matches this pattern.
+	 * 
+	 * @param aMessage
+	 *            the message.
+	 * @return true if the message address matches.
+	 */
+	public boolean matches(OscMessage aMessage) {
+		int end = aMessage.mStartIdx;
+		int limit = aMessage.mStartIdx + aMessage.mSize;
+		while (end < limit && aMessage.mPacket.get(end) != 0)
+			end++;
+		return matches(aMessage.mPacket, aMessage.mStartIdx, end);
+	}
+
+	/**
+	 * Indicates whether the address located between aStart and aEnd matches
+	 * this pattern.
+	 * 
+	 * @param aBuffer
+	 *            the buffer holding the address.
+	 * @param aStart
+	 *            the address start index.
+	 * @param aEnd
+	 *            the address end index, excluding the null terminator.
+	 * @return true if the address matches.
+	 */
+	boolean matches(ByteBuffer aBuffer, int aStart, int aEnd) {
+		return matches(mBytes, 0, aBuffer, aStart, aEnd);
+	}
+
+	@Override
+	public String toString() {
+		return mPattern;
+	}
+
+	/**
+	 * Indicates whether the bytes of aBuffer from aPos are equal to the
+	 * aLength bytes of aBytes from aOffset, without going beyond aEnd.
+	 */
+	static boolean regionMatches(ByteBuffer aBuffer, int aPos, int aEnd, byte[] aBytes, int aOffset,
+			int aLength) {
+		if (aLength > aEnd - aPos)
+			return false;
+		for (int i = 0; i < aLength; i++) {
+			if (aBuffer.get(aPos + i) != aBytes[aOffset + i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the position of the passed character in the pattern, from aFrom.
+	 */
+	private static int indexOf(byte[] aPattern, char aChar, int aFrom) {
+		for (int i = aFrom; i < aPattern.length; i++) {
+			if (aPattern[i] == aChar)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Indicates whether the address located between aPos and aEnd matches the
+	 * pattern from aPatternIdx.
+	 */
+	private static boolean matches(byte[] aPattern, int aPatternIdx, ByteBuffer aBuffer, int aPos, int aEnd) {
+		int p = aPatternIdx;
+		int s = aPos;
+		while (p < aPattern.length) {
+			byte c = aPattern[p];
+			switch (c) {
+			case '*':
+				for (int k = s;; k++) {
+					if (matches(aPattern, p + 1, aBuffer, k, aEnd))
+						return true;
+					if (k == aEnd || aBuffer.get(k) == '/')
+						return false;
+				}
+			case '?':
+				if (s == aEnd || aBuffer.get(s) == '/')
+					return false;
+				p++;
+				s++;
+				break;
+			case '[': {
+				int close = indexOf(aPattern, ']', p + 1);
+				if (close < 0 || s == aEnd)
+					return false;
+				boolean negate = p + 1 < close && aPattern[p + 1] == '!';
+				byte ch = aBuffer.get(s);
+				boolean found = false;
+				for (int k = negate ? p + 2 : p + 1; k < close;) {
+					if (k + 2 < close && aPattern[k + 1] == '-') {
+						found |= ch >= aPattern[k] && ch <= aPattern[k + 2];
+						k += 3;
+					} else {
+						found |= ch == aPattern[k];
+						k++;
+					}
+				}
+				if (found == negate)
+					return false;
+				p = close + 1;
+				s++;
+				break;
+			}
+			case '{': {
+				int close = indexOf(aPattern, '}', p + 1);
+				if (close < 0)
+					return false;
+				int alternative = p + 1;
+				for (int k = p + 1; k <= close; k++) {
+					if (k == close || aPattern[k] == ',') {
+						int length = k - alternative;
+						if (regionMatches(aBuffer, s, aEnd, aPattern, alternative, length)
+								&& matches(aPattern, close + 1, aBuffer, s + length, aEnd))
+							return true;
+						alternative = k + 1;
+					}
+				}
+				return false;
+			}
+			default:
+				if (s == aEnd || aBuffer.get(s) != c)
+					return false;
+				p++;
+				s++;
+			}
+		}
+		return s == aEnd;
+	}
+}
@@ -0,0 +1,96 @@
+package com.osc;
+
+import java.nio.ByteBuffer;
+
+/**
+ * OSC address prefix rewriter class
+ * 
+ * This class allows to forward parsed OSC contents while replacing an address
+ * pattern prefix, for instance in OSC routers or proxies. Addresses are
+ * compared and rewritten on the encoded bytes, and the type tags and data of
+ * the messages are copied untouched, without decoding the values. Contents
+ * without any matching address are copied as is.
+ * <p>
+ * A prefix matches an address pattern if it is equal to the whole address,
+ * or to its first parts: "/mixer" matches "/mixer" and "/mixer/fader1", but
+ * not "/mixer2". Rewriter objects are immutable, and can be shared between
+ * threads.
+ * </p>
+ */
+public class OscAddressRewriter {
+
+	/** Encoded prefix to replace. */
+	private final byte[] mPrefix;
+	/** Encoded replacement of the prefix. */
+	private final byte[] mReplacement;
+
+	/**
+	 * Build a new OscAddressRewriter.
+	 * 
+	 * @param aPrefix
+	 *            the address pattern prefix to replace.
+	 * @param aReplacement
+	 *            the new address pattern prefix.
+	 */
+	public OscAddressRewriter(String aPrefix, String aReplacement) {
+		mPrefix = aPrefix.getBytes();
+		mReplacement = aReplacement.getBytes();
+	}
+
+	/**
+	 * Indicates whether the address pattern of the passed message starts with
+	 * the rewritten prefix.
+	 * 
+	 * @param aMessage
+	 *            the message to check.
+	 * @return true if the message address is rewritten.
+	 */
+	public boolean matches(OscMessage aMessage) {
+		ByteBuffer packet = aMessage.mPacket;
+		int startIdx = aMessage.mStartIdx;
+		if (mPrefix.length >= aMessage.mSize)
+			return false;
+		for (int i = 0; i < mPrefix.length; i++) {
+			if (packet.get(startIdx + i) != mPrefix[i])
+				return false;
+		}
+		byte next = packet.get(startIdx + mPrefix.length);
+		return next == 0 || next == '/' || (mPrefix.length > 0 && mPrefix[mPrefix.length - 1] == '/');
+	}
+
+	/**
+	 * Writes the passed message or bundle to the passed buffer, with the
+	 * prefix of matching address patterns replaced. Bundle element sizes are
+	 * updated accordingly.
+	 * 
+	 * @param aContent
+	 *            the message or bundle to write.
+	 * @param dst
+	 *            the buffer where to write the content, from its position.
+	 * @return the number of bytes written.
+	 * @throws java.nio.BufferOverflowException
+	 *             if there is not enough remaining space in dst.
+	 */
+	public int rewrite(OscContent aContent, ByteBuffer dst) {
+		if (aContent instanceof OscMessage) {
+			OscMessage message = (OscMessage) aContent;
+			if (matches(message))
+				return message.writeWithAddressPrefix(mReplacement, mPrefix.length, dst);
+			dst.put(message.rawSlice());
+			return message.getSize();
+		}
+
+		OscBundle bundle = (OscBundle) aContent;
+		int dstIdx = dst.position();
+		// Copy header and time tag
+		ByteBuffer header = bundle.rawSlice();
+		header.limit(16);
+		dst.put(header);
+		for (int i = 0; i < bundle.getNum(); i++) {
+			int sizeIdx = dst.position();
+			dst.putInt(0);
+			dst.putInt(sizeIdx, rewrite(bundle.getContent(i), dst));
+		}
+		return dst.position() - dstIdx;
+	}
+}
@@ -0,0 +1,217 @@
+package com.osc;
+
+import com.osc.exception.OscBadDataTypeRequestException;
+
+/**
+ * View on an OSC array embedded in an OscMessage.
+ * <p>
+ * The array bounds and number of elements are recorded while the message is
+ * parsed, so that the array size is known and nested arrays are skipped in
+ * constant time. Elements are addressed by their position in the array, a
+ * nested array counting as one element.
+ * </p>
+ */
+public class OscArray {
+
+	/** The message embedding this array. */
+	private final OscMessage mMessage;
+	/** Value index of the array begin tag in the message. */
+	private final int mBeginIdx;
+	/** Value index of the array end tag in the message. */
+	private final int mEndIdx;
+	/** Number of elements in the array. */
+	private final int mSize;
+
+	/**
+	 * Build a new OscArray view.
+	 * 
+	 * @param aMessage
+	 *            the message embedding the array.
+	 * @param aBeginIdx
+	 *            the value index of the array begin tag.
+	 * @param aEndIdx
+	 *            the value index of the array end tag.
+	 * @param aSize
+	 *            the number of elements in the array.
+	 */
+	OscArray(OscMessage aMessage, int aBeginIdx, int aEndIdx, int aSize) {
+		mMessage = aMessage;
+		mBeginIdx = aBeginIdx;
+		mEndIdx = aEndIdx;
+		mSize = aSize;
+	}
+
+	/**
+	 * Gets the message value index of the k-th element.
+	 * 
+	 * @param k
+	 *            The element position in this array.
+	 * @return the index of the element in the message values.
+	 */
+	public int getValueIndex(int k) {
+		if (k < 0 || k >= mSize)
+			throw new IndexOutOfBoundsException("array element " + k + " out of " + mSize);
+		// Without nested arrays, elements are contiguous
+		if (mEndIdx - mBeginIdx - 1 == mSize)
+			return mBeginIdx + 1 + k;
+		int index = mBeginIdx + 1;
+		for (int i = 0; i < k; i++)
+			index = mMessage.getNextIndex(index);
+		return index;
+	}
+
+	/**
+	 * Gets the message value index of the array begin tag.
+	 * 
+	 * @return the index of the array begin value.
+	 */
+	public int getBeginIndex() {
+		return mBeginIdx;
+	}
+
+	/**
+	 * Gets the message value index of the array end tag.
+	 * 
+	 * @return the index of the array end value.
+	 */
+	public int getEndIndex() {
+		return mEndIdx;
+	}
+
+	/**
+	 * Gets the number of elements in this array.
+	 * 
+	 * @return the array size, a nested array counting as one element.
+	 */
+	public int size() {
+		return mSize;
+	}
+
+	/**
+	 * Gets the k-th element of this array.
+	 * 
+	 * @param k
+	 *            The element position in this array.
+	 * @return the element value. For a nested array, the array begin value.
+	 */
+	public OscValue get(int k) {
+		return mMessage.getValue(getValueIndex(k));
+	}
+
+	/**
+	 * Gets the k-th element of this array as a nested array.
+	 * 
+	 * @param k
+	 *            The element position in this array.
+	 * @return the nested array view.
+	 * @throws OscBadDataTypeRequestException
+	 *             if the element is not an array.
+	 */
+	public OscArray getArray(int k) throws OscBadDataTypeRequestException {
+		return mMessage.getArray(getValueIndex(k));
+	}
+
+	/**
+	 * Indicates whether the k-th element of this array is a nested array.
+	 * 
+	 * @param k
+	 *            The element position in this array.
+	 * @return true if the element is an array.
+	 */
+	public boolean isArray(int k) {
+		int index = getValueIndex(k);
+		return mMessage.getNextIndex(index) != index + 1;
+	}
+
+	/**
+	 * Gets the k-th element of this array as a double value.
+	 * 
+	 * @param k
+	 *            The element position in this array.
+	 * @return the double value.
+	 * @throws OscBadDataTypeRequestException
+	 *             if the element is not the expected type.
+	 */
+	public double getDouble(int k) throws OscBadDataTypeRequestException {
+		return get(k).getDouble();
+	}
+
+	/**
+	 * Gets the k-th element of this array as a float value.
+	 * 
+	 * @param k
+	 *            The element position in this array.
+	 * @return the float value.
+	 * @throws OscBadDataTypeRequestException
+	 *             if the element is not the expected type.
+	 */
+	public float getFloat(int k) throws OscBadDataTypeRequestException {
+		return get(k).getFloat();
+	}
+
+	/**
+	 * Gets the k-th element of this array as an int32 value.
+	 * 
+	 * @param k
+	 *            The element position in this array.
+	 * @return the int32 value.
+	 * @throws OscBadDataTypeRequestException
+	 *             if the element is not the expected type.
+	 */
+	public int getInt32(int k) throws OscBadDataTypeRequestException {
+		return get(k).getInt32();
+	}
+
+	/**
+	 * Gets the k-th element of this array as an int64 value.
+	 * 
+	 * @param k
+	 *            The element position in this array.
+	 * @return the int64 value.
+	 * @throws OscBadDataTypeRequestException
+	 *             if the element is not the expected type.
+	 */
+	public long getInt64(int k) throws OscBadDataTypeRequestException {
+		return get(k).getInt64();
+	}
+
+	/**
+	 * Gets the k-th element of this array as a string.
+	 * 
+	 * @param k
+	 *            The element position in this array.
+	 * @return the string.
+	 * @throws OscBadDataTypeRequestException
+	 *             if the element is not the expected type.
+	 */
+	public String getString(int k) throws OscBadDataTypeRequestException {
+		return get(k).getString();
+	}
+
+	/**
+	 * Copies this array of double values in one shot.
+	 * 
+	 * @see OscMessage#getDoubleArray(int, double[])
+	 */
+	public int getDoubles(double[] dst) throws OscBadDataTypeRequestException {
+		return mMessage.getDoubleArray(mBeginIdx, dst);
+	}
+
+	/**
+	 * Copies this array of float values in one shot.
+	 * 
+	 * @see OscMessage#getFloatArray(int, float[])
+	 */
+	public int getFloats(float[] dst) throws OscBadDataTypeRequestException {
+		return mMessage.getFloatArray(mBeginIdx, dst);
+	}
+
+	/**
+	 * Copies this array of int32 values in one shot.
+	 * 
+	 * @see OscMessage#getInt32Array(int, int[])
+	 */
+	public int getInt32s(int[] dst) throws OscBadDataTypeRequestException {
+		return mMessage.getInt32Array(mBeginIdx, dst);
+	}
+}
@@ -0,0 +1,29 @@
+package com.osc;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Interface of the buffer providers used to store OSC contents.
+ * 
+ * @see OscContent#detach(OscBufferAllocator)
+ */
+public interface OscBufferAllocator {
+
+	/** Allocator returning new heap buffers of the exact requested size. */
+	OscBufferAllocator HEAP = new OscBufferAllocator() {
+		@Override
+		public ByteBuffer allocate(int aSize) {
+			return ByteBuffer.allocate(aSize);
+		}
+	};
+
+	/**
+	 * Returns a buffer with at least aSize bytes remaining. The content is
+	 * written from the buffer current position.
+	 * 
+	 * @param aSize
+	 *            the number of bytes to store.
+	 * @return the buffer where to write the content.
+	 */
+	ByteBuffer allocate(int aSize);
+}
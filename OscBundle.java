@@ -7,6 +7,7 @@ import java.util.List;
 import com.osc.exception.OscBadDataTypeRequestException;
 import com.osc.exception.OscMalformedBundleException;
 import com.osc.exception.OscMalformedMessageException;
+import com.osc.memory.OscPacketLease;
 
 /**
  * Class managing packet data as an OSC bundle object.
@@ -15,41 +16,62 @@ import com.osc.exception.OscMalformedMessageException;
  * The contained OscMessage and OscBundle object are stored in a list freely
  * accessible to navigate to the current bundle.
  * </p>
+ * <p>
+ * A parsed bundle is immutable, and can be read by several threads at once
+ * (see {@link OscContent}).
+ * </p>
  */
 public class OscBundle extends OscContent {
 
 	/**
 	 * List of all messages or bundles directly accessible from this bundle.
 	 */
-	private List<OscContent> mContentList = new ArrayList<OscContent>();
+	private final List<OscContent> mContentList = new ArrayList<OscContent>();
 
 	/**
 	 * Build a new OscBundle object.
 	 * 
 	 * @param aPacket
 	 *            the data buffer containing the current message
+	 * @param aStartIdx
+	 *            The position of the bundle in the buffer.
 	 * @param aSize
 	 *            The size of the buffer containing the bundle to load.
+	 * @param aTrusted
+	 *            true if the bundle structure has been checked by an
+	 *            {@link OscPacketValidator} beforehand.
+	 * @param aLease
+	 *            the lease on the packet memory, or null.
 	 * @throws OscMalformedBundleException
 	 *             The bundle cannot be read properly.
 	 * @throws OscMalformedMessageException
 	 *             A contained message cannot be read properly.
 	 */
-	OscBundle(ByteBuffer aPacket, int aSize) throws OscMalformedBundleException, OscMalformedMessageException {
-		super(aPacket);
-		if (mPacket.get() != '#' || mPacket.get() != 'b' || mPacket.get() != 'u' || mPacket.get() != 'n'
-				|| mPacket.get() != 'd' || mPacket.get() != 'l' || mPacket.get() != 'e' || mPacket.get() != '\0')
+	OscBundle(ByteBuffer aPacket, int aStartIdx, int aSize, boolean aTrusted, OscPacketLease aLease)
+			throws OscMalformedBundleException, OscMalformedMessageException {
+		super(aPacket, aStartIdx, aSize, aLease);
+		int endIdx = mStartIdx + aSize;
+		if (!aTrusted && (aSize < 16 || endIdx > mPacket.limit()))
+			throw new OscMalformedBundleException("trying to read data beyond packet size limit");
+		if (mPacket.get(mStartIdx) != '#' || mPacket.get(mStartIdx + 1) != 'b' || mPacket.get(mStartIdx + 2) != 'u'
+				|| mPacket.get(mStartIdx + 3) != 'n' || mPacket.get(mStartIdx + 4) != 'd'
+				|| mPacket.get(mStartIdx + 5) != 'l' || mPacket.get(mStartIdx + 6) != 'e'
+				|| mPacket.get(mStartIdx + 7) != '\0')
 			throw new OscMalformedBundleException("bad bundle address pattern");
 
-		// Move Packet cursor after timeTag
-		mPacket.getLong();
-
-		while (mPacket.position() < mStartIdx + aSize) {
-			int contentSize = mPacket.getInt();
-			if (mPacket.get(mPacket.position()) == '#')
-				mContentList.add(new OscBundle(mPacket, contentSize));
+		// Skip header and timeTag
+		int pos = mStartIdx + 16;
+		while (pos < endIdx) {
+			if (!aTrusted && endIdx - pos < 4)
+				throw new OscMalformedBundleException("bad bundle element size");
+			int contentSize = mPacket.getInt(pos);
+			if (!aTrusted && (contentSize <= 0 || contentSize > endIdx - pos - 4))
+				throw new OscMalformedBundleException("bad bundle element size");
+			if (mPacket.get(pos + 4) == '#')
+				mContentList.add(new OscBundle(mPacket, pos + 4, contentSize, aTrusted, aLease));
 			else
-				mContentList.add(new OscMessage(mPacket, contentSize));
+				mContentList.add(new OscMessage(mPacket, pos + 4, contentSize, aTrusted, aLease));
+			pos += 4 + contentSize;
 		}
 	}
 
@@ -79,6 +101,45 @@ public class OscBundle extends OscContent {
 		throw new OscBadDataTypeRequestException(null);
 	}
 
+	/**
+	 * Copies this bundle into its own right-sized heap buffer.
+	 * 
+	 * @return the detached bundle.
+	 * @see #detach(OscBufferAllocator)
+	 */
+	public OscBundle detach() {
+		return detach(OscBufferAllocator.HEAP);
+	}
+
+	/**
+	 * Copies this bundle, and all its contents, into its own right-sized
+	 * buffer. The source packet can be recycled as soon as this method
+	 * returns.
+	 * 
+	 * @see com.osc.OscContent#detach(com.osc.OscBufferAllocator)
+	 */
+	@Override
+	public OscBundle detach(OscBufferAllocator aAllocator) {
+		try {
+			return new OscBundle(copy(aAllocator), 0, mSize, true, null);
+		} catch (OscMalformedBundleException e) {
+			throw new IllegalStateException("parsed bundle cannot be parsed again", e);
+		} catch (OscMalformedMessageException e) {
+			throw new IllegalStateException("parsed bundle cannot be parsed again", e);
+		}
+	}
+
+	/**
+	 * Gets the i-th message or bundle embedded in this bundle.
+	 * 
+	 * @param index
+	 *            The requested content.
+	 * @return the OscMessage or OscBundle located at the passed index.
+	 */
+	OscContent getContent(int index) {
+		return mContentList.get(index);
+	}
+
 	/**
 	 * Gets the number of messages or bundles embedded in this bundle.
 	 */
@@ -2,6 +2,7 @@ package com.osc;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * OSC bundle composer class
@@ -51,29 +52,30 @@ public class OscBundleComposer extends OscContentComposer {
 	}
 
 	/**
-	 * Gets the complete OSC bundle for the current bundle being composed.
-	 * 
-	 * @return the current OscMessage data.
+	 * @see com.osc.OscContentComposer#fillSegments(java.util.List)
 	 */
 	@Override
-	public byte[] getBytes(OscVersion aVersion) {
-
-		int size = computeSize();
-
-		// Allocate the bundle buffer
-		byte[] data = null;
-		if (aVersion == OscVersion.OSC_10)
-			data = new byte[size + 4];
-		else
-			data = new byte[size];
+	protected void fillSegments(List<ByteBuffer> aSegments) {
+		super.fillSegments(aSegments);
 
-		// First, copy this bundle header
-		ByteBuffer writeBufferHelper = ByteBuffer.wrap(data);
-		if (aVersion == OscVersion.OSC_10)
-			writeBufferHelper.putInt(0, size);
-		fillByteBuffer(writeBufferHelper);
+		// One buffer holds the sizes of all the contents
+		ByteBuffer sizes = ByteBuffer.allocate(4 * mContentList.size());
+		for (int i = 0; i < mContentList.size(); i++) {
+			sizes.putInt(4 * i, mContentList.get(i).computeSize());
+			aSegments.add(segment(sizes, 4 * i, 4 * (i + 1)));
+			mContentList.get(i).fillSegments(aSegments);
+		}
+	}
 
-		return data;
+	/**
+	 * Completes all the contents of this bundle.
+	 * 
+	 * @see com.osc.OscContentComposer#complete()
+	 */
+	@Override
+	protected void complete() {
+		for (int i = 0; i < mContentList.size(); i++)
+			mContentList.get(i).complete();
 	}
 
 	/**
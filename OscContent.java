@@ -2,24 +2,141 @@ package com.osc;
 
 import java.nio.ByteBuffer;
 
+import com.osc.memory.OscPacketLease;
+
 /**
  * Abstract class to manage packet embedded content as objects.
+ * <p>
+ * Parsed contents are immutable: they only read the packet buffer with
+ * absolute reads, and never modify its position or limit. Once published to
+ * other threads through a synchronizing hand-off (a concurrent queue, an
+ * executor...), a parsed message or bundle, and all its values, can be read
+ * by several threads at once without any copy.
+ * </p>
+ * <p>
+ * Contents decoded from an {@link OscPacketLease} hold one reference to it,
+ * shared by the whole content tree and released by {@link #release()}. A
+ * thread keeping a content past its hand-off retains it first.
+ * </p>
  */
 public abstract class OscContent {
 
 	/** Position of the data in the buffer. */
 	protected int mDataIdx = 0;
 	/** Data buffer containing the OSC content. */
-	protected ByteBuffer mPacket = null;
+	protected final ByteBuffer mPacket;
 	/** Starting position of this content in the whole buffer. */
-	protected int mStartIdx = 0;
+	protected final int mStartIdx;
+	/** Size of this content in the buffer. */
+	protected final int mSize;
+	/** Lease on the packet memory, or null if the packet is on the heap. */
+	protected final OscPacketLease mLease;
 
-	/** Build the current OscContent object. */
-	protected OscContent(ByteBuffer packet) {
+	/**
+	 * Build the current OscContent object.
+	 * 
+	 * @param packet
+	 *            the data buffer containing the content.
+	 * @param aStartIdx
+	 *            the position of the content in the buffer.
+	 * @param aSize
+	 *            the size of the content.
+	 * @param aLease
+	 *            the lease on the packet memory, or null.
+	 */
+	protected OscContent(ByteBuffer packet, int aStartIdx, int aSize, OscPacketLease aLease) {
 		mPacket = packet;
-		mStartIdx = mPacket.position();
+		mStartIdx = aStartIdx;
+		mSize = aSize;
+		mLease = aLease;
 		mDataIdx = 0;
 	}
+
+	/**
+	 * Copies the bytes of this content into a buffer provided by the passed
+	 * allocator.
+	 * 
+	 * @param aAllocator
+	 *            the provider of the destination buffer.
+	 * @return a read-only buffer holding exactly this content, starting at
+	 *         position 0.
+	 */
+	protected ByteBuffer copy(OscBufferAllocator aAllocator) {
+		ByteBuffer src = rawSlice();
+		ByteBuffer dst = aAllocator.allocate(mSize).duplicate();
+		int dstIdx = dst.position();
+		dst.put(src);
+		dst.limit(dstIdx + mSize);
+		dst.position(dstIdx);
+		return dst.slice().asReadOnlyBuffer();
+	}
+
+	/**
+	 * Copies this content into its own right-sized buffer, provided by the
+	 * passed allocator, so that the source packet buffer is no longer
+	 * referenced and can be recycled.
+	 * 
+	 * @param aAllocator
+	 *            the provider of the destination buffer.
+	 * @return a new content equivalent to this one.
+	 */
+	public abstract OscContent detach(OscBufferAllocator aAllocator);
+
+	/**
+	 * Returns the exact encoded bytes of this content, without copying them.
+	 * For a bundle element, the size prefix is not included.
+	 * <p>
+	 * The slice can be written as is to a channel to forward the content.
+	 * </p>
+	 * 
+	 * @return a read-only buffer sharing the packet memory, with position 0
+	 *         and limit set to the content size.
+	 */
+	public ByteBuffer rawSlice() {
+		ByteBuffer slice = mPacket.asReadOnlyBuffer();
+		slice.limit(mStartIdx + mSize);
+		slice.position(mStartIdx);
+		return slice.slice();
+	}
+
+	/**
+	 * Returns the lease on the packet memory.
+	 * 
+	 * @return the lease, or null if the packet is not stored in an arena.
+	 */
+	public OscPacketLease getLease() {
+		return mLease;
+	}
+
+	/**
+	 * Adds a reference to the packet memory, so that this content stays valid
+	 * until released. Does nothing for heap contents.
+	 * 
+	 * @return this content.
+	 */
+	public OscContent retain() {
+		if (mLease != null)
+			mLease.retain();
+		return this;
+	}
+
+	/**
+	 * Removes a reference to the packet memory. Does nothing for heap
+	 * contents.
+	 */
+	public void release() {
+		if (mLease != null)
+			mLease.release();
+	}
+
+	/**
+	 * Returns the size of this content, in bytes.
+	 * 
+	 * @return the content size.
+	 */
+	public int getSize() {
+		return mSize;
+	}
 	
 	/**
 	 * Returns the current time tag as a 64-bit integer value
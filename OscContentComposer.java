@@ -1,7 +1,10 @@
 package com.osc;
 
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Abstract class for OSC message or bundle composition.
@@ -16,20 +19,23 @@ abstract class OscContentComposer {
 	 * 
 	 * @param dst
 	 *            The ByteBuffer to complete
+	 * @return the completed ByteBuffer, reallocated if it was too small.
 	 */
-	protected static void fillAlignment(ByteBuffer dst) {
+	protected static ByteBuffer fillAlignment(ByteBuffer dst) {
 		final byte[] mblank = { 0, 0, 0, 0 };
 		int size = 4 - (dst.position() & 0x3);
 		if (size != 4) {
-			checkBufferSize(dst, size);
+			dst = checkBufferSize(dst, size);
 			dst.put(mblank, 0, size);
 		}
+		return dst;
 	}
 
 	protected static ByteBuffer checkBufferSize(ByteBuffer aBuffer, int aSize) {
 		if (aBuffer.position() + aSize > aBuffer.capacity()) {
-			int newDataBufferSize = aBuffer->capacity() + (int) Math.pow(2, Math.ceil(Math.log((double) (aSize)) / Math.log(2)));
-			ByteBuffer newDataByteBuffer = ByteBuffer.allocateDirect(newDataBufferSize);
+			int newDataBufferSize = aBuffer.capacity() + (int) Math.pow(2, Math.ceil(Math.log((double) (aSize)) / Math.log(2)));
+			ByteBuffer newDataByteBuffer = ByteBuffer.allocate(newDataBufferSize);
+			newDataByteBuffer.order(aBuffer.order());
 			if (aBuffer.position() > 0)
 				newDataByteBuffer.put(aBuffer.array(), 0, aBuffer.position());
 			return newDataByteBuffer;
@@ -37,6 +43,25 @@ abstract class OscContentComposer {
 			return aBuffer;
 	}
 
+	/**
+	 * Returns a read-only segment over the passed range of a composer buffer.
+	 * 
+	 * @param aBuffer
+	 *            The buffer holding the encoded bytes.
+	 * @param aFrom
+	 *            The position of the first byte of the segment.
+	 * @param aTo
+	 *            The position following the last byte of the segment.
+	 * @return a buffer sharing aBuffer content, with position 0 and limit set
+	 *         to the segment size.
+	 */
+	protected static ByteBuffer segment(ByteBuffer aBuffer, int aFrom, int aTo) {
+		ByteBuffer segment = aBuffer.asReadOnlyBuffer();
+		segment.limit(aTo);
+		segment.position(aFrom);
+		return segment.slice();
+	}
+
 	/** ByteBuffer used for convenient navigation in byte array. */
 	protected ByteBuffer mHeaderByteBuffer = null;
 
@@ -48,6 +73,13 @@ abstract class OscContentComposer {
 		mHeaderByteBuffer.order(ByteOrder.BIG_ENDIAN);
 	}
 
+	/**
+	 * Terminates the content being composed before it is written, for instance
+	 * by closing opened arrays. Does nothing by default.
+	 */
+	protected void complete() {
+	}
+
 	/**
 	 * Returns the size of the current OscComposer.
 	 * 
@@ -67,10 +99,89 @@ abstract class OscContentComposer {
 		aByteBuffer.put(mHeaderByteBuffer.array(), 0, mHeaderByteBuffer.position());
 	}
 
+	/**
+	 * Appends the segments composing the current content to the passed list,
+	 * without copying any data.
+	 * 
+	 * @param aSegments
+	 *            The list where to append the segments.
+	 */
+	protected void fillSegments(List<ByteBuffer> aSegments) {
+		aSegments.add(segment(mHeaderByteBuffer, 0, mHeaderByteBuffer.position()));
+	}
+
 	/**
 	 * Gets the complete OSC content (depends on OSC version).
 	 * 
 	 * @return the current data buffer.
 	 */
-	public abstract byte[] getBytes(OscVersion aVersion);
+	public byte[] getBytes(OscVersion aVersion) {
+		complete();
+
+		int size = computeSize();
+
+		byte[] data = null;
+		if (aVersion == OscVersion.OSC_10)
+			data = new byte[size + 4];
+		else
+			data = new byte[size];
+
+		ByteBuffer writeBufferHelper = ByteBuffer.wrap(data);
+		if (aVersion == OscVersion.OSC_10)
+			writeBufferHelper.putInt(size);
+		fillByteBuffer(writeBufferHelper);
+
+		return data;
+	}
+
+	/**
+	 * Writes the complete OSC content (depends on OSC version) at the position
+	 * of the passed buffer, without intermediate copy. The buffer can be a
+	 * slot of a shared memory ring, for instance.
+	 *
+	 * @param aBuffer
+	 *            The buffer where to write, in BIG_ENDIAN order. Its position
+	 *            is advanced by the number of bytes written.
+	 * @return the number of bytes written.
+	 * @throws BufferOverflowException
+	 *             if the content does not fit in the buffer remaining bytes.
+	 */
+	public int write(ByteBuffer aBuffer, OscVersion aVersion) {
+		complete();
+
+		int size = computeSize();
+		int total = aVersion == OscVersion.OSC_10 ? size + 4 : size;
+		if (total > aBuffer.remaining())
+			throw new BufferOverflowException();
+		if (aVersion == OscVersion.OSC_10)
+			aBuffer.putInt(size);
+		fillByteBuffer(aBuffer);
+		return total;
+	}
+
+	/**
+	 * Gets the complete OSC content (depends on OSC version) as a list of
+	 * read-only segments.
+	 * <p>
+	 * Segments share the composer buffers, as well as the buffers passed to
+	 * {@link OscMessageComposer#pushBlob(ByteBuffer)}, so that the blob data
+	 * is never copied. The returned array can be passed as is to
+	 * {@link java.nio.channels.GatheringByteChannel#write(ByteBuffer[])}. The
+	 * segments are only valid until the next push in this composer.
+	 * </p>
+	 * 
+	 * @return the segments of the current content, in order.
+	 */
+	public ByteBuffer[] getByteBuffers(OscVersion aVersion) {
+		complete();
+
+		List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+		if (aVersion == OscVersion.OSC_10) {
+			ByteBuffer sizeBuffer = ByteBuffer.allocate(4);
+			sizeBuffer.putInt(0, computeSize());
+			segments.add(sizeBuffer);
+		}
+		fillSegments(segments);
+		return segments.toArray(new ByteBuffer[segments.size()]);
+	}
 }
@@ -0,0 +1,66 @@
+package com.osc;
+
+/**
+ * Result codes of the validation of an OSC packet.
+ * 
+ * @see OscPacketValidator
+ */
+public enum OscDecodeStatus {
+	/** The packet is valid. */
+	OK(false, "valid packet"),
+	/** A size or a value goes beyond the packet size limit. */
+	TRUNCATED(false, "trying to read data beyond packet size limit"),
+	/** The packet size is not a multiple of 4 bytes. */
+	MISALIGNED(false, "packet size is not a multiple of 4 bytes"),
+	/** The message address pattern does not start with '/'. */
+	BAD_ADDRESS(false, "address pattern does not start with '/'"),
+	/** A string is not null terminated before the end of the packet. */
+	UNTERMINATED_STRING(false, "string is not null terminated"),
+	/** A string or blob padding contains non null bytes. */
+	BAD_PADDING(false, "alignment padding is not made of null bytes"),
+	/** The type tags string does not start with ','. */
+	MISSING_TYPE_TAGS(false, "type tags string does not start with ','"),
+	/** A type tag is not supported. */
+	UNKNOWN_TYPE_TAG(false, "unknown type tag"),
+	/** Array begin and end tags do not match. */
+	UNBALANCED_ARRAY(false, "array begin and end tags do not match"),
+	/** A blob size is negative. */
+	BAD_BLOB_SIZE(false, "negative blob size"),
+	/** The message size goes beyond the data of its last value. */
+	TRAILING_DATA(false, "data found after the last value of the message"),
+	/** The bundle does not start with "#bundle". */
+	BAD_BUNDLE_HEADER(true, "bad bundle address pattern"),
+	/** A bundle element size is not a positive multiple of 4 bytes. */
+	BAD_ELEMENT_SIZE(true, "bundle element size is not a positive multiple of 4 bytes"),
+	/** Bundles are nested beyond {@link OscPacketValidator#MAX_BUNDLE_DEPTH}. */
+	TOO_DEEP(true, "too many nested bundles");
+
+	/** Whether the error is related to the bundle structure. */
+	private final boolean mBundleError;
+	/** Description of the status. */
+	private final String mDescription;
+
+	private OscDecodeStatus(boolean aBundleError, String aDescription) {
+		mBundleError = aBundleError;
+		mDescription = aDescription;
+	}
+
+	/**
+	 * Returns the description of this status.
+	 * 
+	 * @return a human readable description.
+	 */
+	public String getDescription() {
+		return mDescription;
+	}
+
+	/**
+	 * Indicates whether the status is related to the bundle structure, rather
+	 * than to a message.
+	 * 
+	 * @return true for bundle errors.
+	 */
+	public boolean isBundleError() {
+		return mBundleError;
+	}
+}
@@ -3,9 +3,12 @@ package com.osc;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import com.osc.exception.OscBadDataTypeRequestException;
 import com.osc.exception.OscMalformedMessageException;
+import com.osc.memory.OscPacketLease;
 import com.osc.types.*;
 
 /**
@@ -19,48 +22,71 @@ import com.osc.types.*;
  * <li>...
  * </ul>
  * </p>
+ * <p>
+ * A parsed message is immutable, and can be read by several threads at once
+ * (see {@link OscContent}).
+ * </p>
  */
 public class OscMessage extends OscContent {
 
 	private OscTimeTag mTimeTag = null;
 
 	/** List of values embedded in the current OscMessage. */
-	private List<OscValue> mValues = new ArrayList<OscValue>();
+	private final List<OscValue> mValues = new ArrayList<OscValue>();
+
+	/** Number of arrays embedded in the current OscMessage. */
+	private int mNumArrays = 0;
+	/** Value index of the array begin tags, in ascending order. */
+	private int[] mArrayBegins = new int[0];
+	/** Value index of the matching array end tags. */
+	private int[] mArrayEnds = new int[0];
+	/** Number of elements of the arrays, a nested array counting as one. */
+	private int[] mArraySizes = new int[0];
 
 	/**
 	 * Build a new OscMessage object. While building the message structure, the
 	 * packet buffer is parsed, and new OscValue objects are created and
 	 * registered in a list, in order to be accessible later.
+	 * <p>
+	 * Values are located using absolute reads only, from the type tags and
+	 * their data width. If the message is trusted, its structure must have
+	 * been checked by an {@link OscPacketValidator} beforehand, and values are
+	 * not checked against the message size.
+	 * </p>
 	 * 
 	 * @param aPacket
 	 *            the data buffer containing the current message
+	 * @param aStartIdx
+	 *            The position of the message in the buffer.
 	 * @param aSize
 	 *            The size of the buffer containing the bundle to load.
+	 * @param aTrusted
+	 *            true to skip per value bounds checks.
+	 * @param aLease
+	 *            the lease on the packet memory, or null.
 	 * @throws OscMalformedMessageException
 	 *             A contained message cannot be read properly.
 	 */
-	OscMessage(ByteBuffer aPacket, int aSize) throws OscMalformedMessageException {
-		super(aPacket);
+	OscMessage(ByteBuffer aPacket, int aStartIdx, int aSize, boolean aTrusted, OscPacketLease aLease)
+			throws OscMalformedMessageException {
+		super(aPacket, aStartIdx, aSize, aLease);
+		int endIdx = aTrusted ? mPacket.limit() : mStartIdx + aSize;
 		int arrayLevel = 0;
+		int[] openArrays = new int[4];
 		try {
-			mValues.add( new OscAddress(mPacket, mStartIdx) );
-
-			// Current packet position is set to data section.
-			int dataIdx = mPacket.position();
-			int tagsIdx = dataIdx;
-			do {
-				if (dataIdx > mStartIdx + aSize)
-					throw new BufferUnderflowException();
+			mValues.add(new OscAddress(mPacket, mStartIdx));
+			int tagsIdx = skipString(mStartIdx, endIdx);
+			if (!aTrusted && mPacket.get(tagsIdx) != ',')
+				throw new OscMalformedMessageException("type tags string does not start with ','");
+			mValues.add(new OscTags(mPacket, tagsIdx));
+			int dataIdx = skipString(tagsIdx, endIdx);
 
-				byte tag = mPacket.get(tagsIdx);
-				dataIdx = mPacket.position();
+			byte tag;
+			while ((tag = mPacket.get(++tagsIdx)) != 0) {
+				if (arrayLevel > 0 && tag != ']')
+					mArraySizes[openArrays[arrayLevel - 1]]++;
 				OscValue v = null;
 				switch (tag) {
-				case 0: // null tag... exit loop...
-					break;
-				case ',':
-					v = new OscTags(mPacket, dataIdx);
-					break;
 				case 'T':
 					v = new OscTrue(mPacket, dataIdx);
 					break;
@@ -78,11 +104,15 @@ public class OscMessage extends OscContent {
 					break;
 				case '[':
 					v = new OscArrayBegin(mPacket, dataIdx);
-					++arrayLevel;
+					if (arrayLevel == openArrays.length)
+						openArrays = Arrays.copyOf(openArrays, 2 * arrayLevel);
+					openArrays[arrayLevel++] = addArray(mValues.size());
 					break;
 				case ']':
+					if (arrayLevel == 0)
+						throw new OscMalformedMessageException("unexpected ']' end of array tag");
 					v = new OscArrayEnd(mPacket, dataIdx);
-					--arrayLevel;
+					mArrayEnds[openArrays[--arrayLevel]] = mValues.size();
 					break;
 				case 'i':
 					v = new OscInt32(mPacket, dataIdx);
@@ -120,9 +150,18 @@ public class OscMessage extends OscContent {
 				default:
 					throw new OscMalformedMessageException("unknown type tag");
 				}
-				if (v != null)
-					mValues.add(v); // push this Value to the Value list
-			} while (mPacket.get(tagsIdx++) != 0);
+				mValues.add(v); // push this Value to the Value list
+
+				int width = OscPacketValidator.getTagWidth(tag);
+				if (width == OscPacketValidator.STRING)
+					dataIdx = skipString(dataIdx, endIdx);
+				else if (width == OscPacketValidator.BLOB)
+					dataIdx = skipBlob(dataIdx, endIdx, aTrusted);
+				else
+					dataIdx += width;
+				if (!aTrusted && dataIdx > endIdx)
+					throw new BufferUnderflowException();
+			}
 		} catch (BufferUnderflowException e) {
 			throw new OscMalformedMessageException("trying to read data beyond packet size limit");
 		} catch (IndexOutOfBoundsException e) {
@@ -133,6 +172,197 @@ public class OscMessage extends OscContent {
 					"array was not terminated before end of message (expected ']' end of array tag)");
 	}
 
+	/**
+	 * Gets the position following the string located at the passed position.
+	 * 
+	 * @param aPos
+	 *            The string position.
+	 * @param aEndIdx
+	 *            The position that the string must not reach.
+	 * @return the 4-bytes aligned position following the string.
+	 */
+	private int skipString(int aPos, int aEndIdx) {
+		return (OscValue.getLastStringIdx(mPacket, aPos, aEndIdx) + 4) & ~0x03;
+	}
+
+	/**
+	 * Gets the position following the blob located at the passed position.
+	 * 
+	 * @param aPos
+	 *            The blob position.
+	 * @param aEndIdx
+	 *            The position that the blob must not reach.
+	 * @param aTrusted
+	 *            true to skip the blob size check.
+	 * @return the 4-bytes aligned position following the blob.
+	 */
+	private int skipBlob(int aPos, int aEndIdx, boolean aTrusted) {
+		int blobSize = mPacket.getInt(aPos);
+		if (!aTrusted && (blobSize < 0 || blobSize > aEndIdx - aPos - 4))
+			throw new BufferUnderflowException();
+		return (aPos + 4 + blobSize + 3) & ~0x03;
+	}
+
+	/**
+	 * Registers a new array found while parsing the message.
+	 * 
+	 * @param beginIndex
+	 *            The value index of the array begin tag.
+	 * @return the ordinal of the new array.
+	 */
+	private int addArray(int beginIndex) {
+		if (mNumArrays == mArrayBegins.length) {
+			int capacity = Math.max(4, 2 * mNumArrays);
+			mArrayBegins = Arrays.copyOf(mArrayBegins, capacity);
+			mArrayEnds = Arrays.copyOf(mArrayEnds, capacity);
+			mArraySizes = Arrays.copyOf(mArraySizes, capacity);
+		}
+		mArrayBegins[mNumArrays] = beginIndex;
+		mArraySizes[mNumArrays] = 0;
+		return mNumArrays++;
+	}
+
+	/**
+	 * Gets the ordinal of the array starting at the passed value index.
+	 * 
+	 * @param index
+	 *            The value index of the array begin tag.
+	 * @return the array ordinal, or a negative value if no array starts at
+	 *         this index.
+	 */
+	private int getArrayOrdinal(int index) {
+		return Arrays.binarySearch(mArrayBegins, 0, mNumArrays, index);
+	}
+
+	/**
+	 * Gets a view on the array starting at the i-th value.
+	 * 
+	 * @param index
+	 *            The index of the array begin value.
+	 * @return the array view.
+	 * @throws OscBadDataTypeRequestException
+	 *             if the value is not an array begin.
+	 */
+	public OscArray getArray(int index) throws OscBadDataTypeRequestException {
+		int ordinal = getArrayOrdinal(index);
+		if (ordinal < 0)
+			throw new OscBadDataTypeRequestException(null);
+		return new OscArray(this, index, mArrayEnds[ordinal], mArraySizes[ordinal]);
+	}
+
+	/**
+	 * Gets the index of the value following the i-th value. If the i-th value
+	 * is an array begin, the whole array is skipped in constant time.
+	 * 
+	 * @param index
+	 *            The index of the current value.
+	 * @return the index of the next value, or {@link #getNumValues()} if the
+	 *         current value is the last one.
+	 */
+	public int getNextIndex(int index) {
+		int ordinal = getArrayOrdinal(index);
+		if (ordinal < 0)
+			return index + 1;
+		return mArrayEnds[ordinal] + 1;
+	}
+
+	/**
+	 * Writes this message to the passed buffer with another address pattern.
+	 * The address is padded to the 4-bytes alignment, and the type tags and
+	 * data bytes are copied untouched, without decoding the values.
+	 * 
+	 * @param aAddress
+	 *            the encoded address pattern, without null terminator.
+	 * @param dst
+	 *            the buffer where to write the message, from its position.
+	 * @return the number of bytes written.
+	 * @throws java.nio.BufferOverflowException
+	 *             if there is not enough remaining space in dst.
+	 */
+	public int writeWithAddress(byte[] aAddress, ByteBuffer dst) {
+		int dstIdx = dst.position();
+		dst.put(aAddress);
+		return writeTail(dstIdx, dst);
+	}
+
+	/**
+	 * Writes this message to the passed buffer with another address pattern,
+	 * made of a new prefix followed by the end of the current address.
+	 * 
+	 * @param aPrefix
+	 *            the encoded prefix of the new address pattern.
+	 * @param aSuffixIdx
+	 *            the position, in the current address, of the first byte to
+	 *            keep after the prefix.
+	 * @param dst
+	 *            the buffer where to write the message, from its position.
+	 * @return the number of bytes written.
+	 * @see #writeWithAddress(byte[], ByteBuffer)
+	 */
+	int writeWithAddressPrefix(byte[] aPrefix, int aSuffixIdx, ByteBuffer dst) {
+		int dstIdx = dst.position();
+		dst.put(aPrefix);
+		ByteBuffer src = mPacket.duplicate();
+		src.limit(OscValue.getLastStringIdx(mPacket, mStartIdx, mValues.get(1).mPos));
+		src.position(mStartIdx + aSuffixIdx);
+		dst.put(src);
+		return writeTail(dstIdx, dst);
+	}
+
+	/**
+	 * Terminates and aligns an address pattern written from dstIdx, then
+	 * copies the type tags and data of this message.
+	 * 
+	 * @return the number of bytes written from dstIdx.
+	 */
+	private int writeTail(int dstIdx, ByteBuffer dst) {
+		int padding = 4 - ((dst.position() - dstIdx) & 0x3);
+		for (int i = 0; i < padding; i++)
+			dst.put((byte) 0);
+		dst.put(argumentsSlice());
+		return dst.position() - dstIdx;
+	}
+
+	/**
+	 * Returns the encoded type tags and data of this message, without copying
+	 * them. The slice starts with the ',' type tags string, and ends with the
+	 * last value data.
+	 * 
+	 * @return a read-only buffer sharing the packet memory, with position 0
+	 *         and limit set to the arguments size.
+	 */
+	public ByteBuffer argumentsSlice() {
+		ByteBuffer slice = rawSlice();
+		slice.position(mValues.get(1).mPos - mStartIdx);
+		return slice.slice();
+	}
+
+	/**
+	 * Copies this message into its own right-sized heap buffer.
+	 * 
+	 * @return the detached message.
+	 * @see #detach(OscBufferAllocator)
+	 */
+	public OscMessage detach() {
+		return detach(OscBufferAllocator.HEAP);
+	}
+
+	/**
+	 * Copies this message into its own right-sized buffer. Values of the new
+	 * message are located in the new buffer, and the source packet can be
+	 * recycled as soon as this method returns.
+	 * 
+	 * @see com.osc.OscContent#detach(com.osc.OscBufferAllocator)
+	 */
+	@Override
+	public OscMessage detach(OscBufferAllocator aAllocator) {
+		try {
+			return new OscMessage(copy(aAllocator), 0, mSize, true, null);
+		} catch (OscMalformedMessageException e) {
+			throw new IllegalStateException("parsed message cannot be parsed again", e);
+		}
+	}
+
 	/**
 	 * Gets the number of registered values in this messages.
 	 * 
@@ -156,6 +386,132 @@ public class OscMessage extends OscContent {
 			return OscTimeTag.getImmediateTime();
 	}
 
+	/**
+	 * Gets the blob data of the i-th value, without copying it.
+	 * 
+	 * @param index
+	 *            The requested value.
+	 * @return a read-only view of the blob data, sharing the packet memory.
+	 * @throws OscBadDataTypeRequestException
+	 *             if the value is not an OSC-Blob.
+	 */
+	public ByteBuffer getBlobView(int index) throws OscBadDataTypeRequestException {
+		return mValues.get(index).getBlobView();
+	}
+
+	/**
+	 * Copies the blob data of the i-th value into the passed buffer, starting
+	 * at its current position.
+	 * 
+	 * @param index
+	 *            The requested value.
+	 * @param dst
+	 *            The buffer where to copy the blob data.
+	 * @return the number of bytes copied.
+	 * @throws OscBadDataTypeRequestException
+	 *             if the value is not an OSC-Blob.
+	 */
+	public int getBlobInto(int index, ByteBuffer dst) throws OscBadDataTypeRequestException {
+		OscValue v = mValues.get(index);
+		if (v instanceof OscBlob)
+			return ((OscBlob) v).getInto(dst);
+		throw new OscBadDataTypeRequestException(null);
+	}
+
+	/**
+	 * Gets the number of elements of a homogeneous array.
+	 * 
+	 * @param index
+	 *            The index of the array begin value.
+	 * @param tag
+	 *            The expected type tag of all the array elements.
+	 * @return the number of elements in the array.
+	 * @throws OscBadDataTypeRequestException
+	 *             if the value is not an array begin, or if the array holds
+	 *             other elements than the expected type.
+	 */
+	private int getArrayLength(int index, byte tag) throws OscBadDataTypeRequestException {
+		if (!(mValues.get(index) instanceof OscArrayBegin))
+			throw new OscBadDataTypeRequestException(null);
+
+		// The type tags string starts with ',' which is the tag of value 1
+		int tagsIdx = mValues.get(1).mPos + index - 1;
+		int length = 0;
+		while (mPacket.get(tagsIdx + 1 + length) == tag)
+			length++;
+		if (mPacket.get(tagsIdx + 1 + length) != ']')
+			throw new OscBadDataTypeRequestException(null);
+		return length;
+	}
+
+	/**
+	 * Returns a buffer positioned on the data of the first element of an
+	 * array.
+	 * 
+	 * @param index
+	 *            The index of the array begin value.
+	 * @return a duplicate of the packet buffer.
+	 */
+	private ByteBuffer getArrayData(int index) {
+		ByteBuffer data = mPacket.duplicate();
+		data.position(mValues.get(index + 1).mPos);
+		return data;
+	}
+
+	/**
+	 * Copies a homogeneous array of double values in one shot.
+	 * 
+	 * @param index
+	 *            The index of the array begin value.
+	 * @param dst
+	 *            The array where to copy the values. If it is smaller than
+	 *            the OSC array, only the first dst.length values are copied.
+	 * @return the number of elements in the OSC array.
+	 * @throws OscBadDataTypeRequestException
+	 *             if the value is not an array of doubles.
+	 */
+	public int getDoubleArray(int index, double[] dst) throws OscBadDataTypeRequestException {
+		int length = getArrayLength(index, (byte) 'd');
+		getArrayData(index).asDoubleBuffer().get(dst, 0, Math.min(length, dst.length));
+		return length;
+	}
+
+	/**
+	 * Copies a homogeneous array of float values in one shot.
+	 * 
+	 * @param index
+	 *            The index of the array begin value.
+	 * @param dst
+	 *            The array where to copy the values. If it is smaller than
+	 *            the OSC array, only the first dst.length values are copied.
+	 * @return the number of elements in the OSC array.
+	 * @throws OscBadDataTypeRequestException
+	 *             if the value is not an array of floats.
+	 */
+	public int getFloatArray(int index, float[] dst) throws OscBadDataTypeRequestException {
+		int length = getArrayLength(index, (byte) 'f');
+		getArrayData(index).asFloatBuffer().get(dst, 0, Math.min(length, dst.length));
+		return length;
+	}
+
+	/**
+	 * Copies a homogeneous array of int32 values in one shot.
+	 * 
+	 * @param index
+	 *            The index of the array begin value.
+	 * @param dst
+	 *            The array where to copy the values. If it is smaller than
+	 *            the OSC array, only the first dst.length values are copied.
+	 * @return the number of elements in the OSC array.
+	 * @throws OscBadDataTypeRequestException
+	 *             if the value is not an array of int32.
+	 */
+	public int getInt32Array(int index, int[] dst) throws OscBadDataTypeRequestException {
+		int length = getArrayLength(index, (byte) 'i');
+		getArrayData(index).asIntBuffer().get(dst, 0, Math.min(length, dst.length));
+		return length;
+	}
+
 	/**
 	 * Gets the i-th value in the list of values for this message.
 	 * 
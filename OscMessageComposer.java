@@ -2,6 +2,9 @@ package com.osc;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * OSC message composer class
@@ -17,9 +20,31 @@ import java.nio.ByteOrder;
  */
 public class OscMessageComposer extends OscContentComposer {
 
+	/** Reference to a caller-owned blob buffer, inserted in the data section. */
+	private static class BlobReference {
+		/** Position in the data buffer where the blob data is inserted. */
+		final int mDataIdx;
+		/** The blob data, from position to limit. */
+		final ByteBuffer mData;
+
+		BlobReference(int aDataIdx, ByteBuffer aData) {
+			mDataIdx = aDataIdx;
+			mData = aData;
+		}
+	}
+
+	/** Padding bytes used to terminate the type tags string. */
+	private static final byte[] TAGS_PADDING = { 0, 0, 0, 0 };
+
 	private int mArrayLevel = 0;
 	private ByteBuffer mDataByteBuffer = null;
 
+	/** Blobs pushed by reference, ordered by their position in data. */
+	private List<BlobReference> mBlobReferences = new ArrayList<BlobReference>();
+
+	/** Total size of the blobs pushed by reference. */
+	private int mBlobReferencesSize = 0;
+
 	/**
 	 * Build a new OSC message
 	 * 
@@ -29,10 +54,11 @@ public class OscMessageComposer extends OscContentComposer {
 	public OscMessageComposer(String address) {
 		super();
 
-		mHeaderByteBuffer = checkBufferSize(mHeaderByteBuffer, address.length() + 1);
-		mHeaderByteBuffer.put(address.getBytes());
+		byte[] addressBytes = address.getBytes();
+		mHeaderByteBuffer = checkBufferSize(mHeaderByteBuffer, addressBytes.length + 1);
+		mHeaderByteBuffer.put(addressBytes);
 		mHeaderByteBuffer.put((byte) 0);
-		fillAlignment(mHeaderByteBuffer);
+		mHeaderByteBuffer = fillAlignment(mHeaderByteBuffer);
 		mHeaderByteBuffer = checkBufferSize(mHeaderByteBuffer, 1);
 		mHeaderByteBuffer.put((byte) ',');
 
@@ -40,12 +66,45 @@ public class OscMessageComposer extends OscContentComposer {
 		mDataByteBuffer.order(ByteOrder.BIG_ENDIAN); // Already default in Java
 	}
 
+	/**
+	 * Returns the number of null bytes terminating and aligning the type tags
+	 * string, that is not stored in the header buffer so that values can still
+	 * be pushed after the message has been written.
+	 * 
+	 * @return the type tags padding size, from 1 to 4.
+	 */
+	private int getTagsPaddingSize() {
+		return 4 - (mHeaderByteBuffer.position() & 0x3);
+	}
+
+	/**
+	 * Pads the data section to a multiple of 4 bytes. Blobs pushed by
+	 * reference are not stored in the data buffer, so the padding is computed
+	 * on the encoded data offset rather than on the buffer position.
+	 */
+	private void fillDataAlignment() {
+		int size = (4 - ((mDataByteBuffer.position() + mBlobReferencesSize) & 0x3)) & 0x3;
+		mDataByteBuffer = checkBufferSize(mDataByteBuffer, size);
+		mDataByteBuffer.put(TAGS_PADDING, 0, size);
+	}
+
+	/**
+	 * Ends all opened arrays.
+	 * 
+	 * @see com.osc.OscContentComposer#complete()
+	 */
+	@Override
+	protected void complete() {
+		while (mArrayLevel > 0)
+			pushArrayEnd();
+	}
+
 	/**
 	 * @see com.osc.OscContentComposer#computeSize()
 	 */
 	@Override
 	protected int computeSize() {
-		return super.computeSize() + mDataByteBuffer.position();
+		return super.computeSize() + getTagsPaddingSize() + mDataByteBuffer.position() + mBlobReferencesSize;
 	}
 
 	/**
@@ -54,46 +113,136 @@ public class OscMessageComposer extends OscContentComposer {
 	@Override
 	protected void fillByteBuffer(ByteBuffer aByteBuffer) {
 		super.fillByteBuffer(aByteBuffer);
-		aByteBuffer.put(mDataByteBuffer.array(), 0, mDataByteBuffer.position());
+		aByteBuffer.put(TAGS_PADDING, 0, getTagsPaddingSize());
+
+		int dataIdx = 0;
+		for (BlobReference blob : mBlobReferences) {
+			aByteBuffer.put(mDataByteBuffer.array(), dataIdx, blob.mDataIdx - dataIdx);
+			aByteBuffer.put(blob.mData.duplicate());
+			dataIdx = blob.mDataIdx;
+		}
+		aByteBuffer.put(mDataByteBuffer.array(), dataIdx, mDataByteBuffer.position() - dataIdx);
 	}
 
 	/**
-	 * Gets the complete OSC message for the current message being composed.
-	 * 
-	 * @return the current OscMessage data.
+	 * @see com.osc.OscContentComposer#fillSegments(java.util.List)
 	 */
 	@Override
-	public byte[] getBytes(OscVersion aVersion) {
-		// Be sure to end all opened arrays
-		while (mArrayLevel != 0) {
-			pushArrayEnd();
-			mArrayLevel--;
+	protected void fillSegments(List<ByteBuffer> aSegments) {
+		super.fillSegments(aSegments);
+		aSegments.add(ByteBuffer.wrap(TAGS_PADDING, 0, getTagsPaddingSize()).slice().asReadOnlyBuffer());
+
+		int dataIdx = 0;
+		for (BlobReference blob : mBlobReferences) {
+			if (blob.mDataIdx > dataIdx)
+				aSegments.add(segment(mDataByteBuffer, dataIdx, blob.mDataIdx));
+			aSegments.add(blob.mData.asReadOnlyBuffer());
+			dataIdx = blob.mDataIdx;
 		}
+		if (mDataByteBuffer.position() > dataIdx)
+			aSegments.add(segment(mDataByteBuffer, dataIdx, mDataByteBuffer.position()));
+	}
 
-		// Be sure to align type tags ending in header
-		if (mHeaderByteBuffer.get(mHeaderByteBuffer.position() - 1) != 0) {
-			mHeaderByteBuffer = checkBufferSize(mHeaderByteBuffer, 1);
-			mHeaderByteBuffer.put((byte) 0);
-		}
-			
-		fillAlignment(mHeaderByteBuffer);
-
-		int size = computeSize();
-
-		byte[] data = null;
-		int offset = 0;
-		if (aVersion == OscVersion.OSC_10) {
-			offset = 4;
-			data = new byte[size + 4];
-			ByteBuffer.wrap(data).putInt(size - 4);
-		} else {
-			data = new byte[size];
-		}
+	/**
+	 * Writes the type tags of a homogeneous array of the passed length.
+	 * 
+	 * @param tag
+	 *            The type tag of the array elements.
+	 * @param length
+	 *            The number of elements in the array.
+	 */
+	private void pushArrayTags(byte tag, int length) {
+		mHeaderByteBuffer = checkBufferSize(mHeaderByteBuffer, length + 2);
+		mHeaderByteBuffer.put((byte) '[');
+		int tagsIdx = mHeaderByteBuffer.position();
+		Arrays.fill(mHeaderByteBuffer.array(), tagsIdx, tagsIdx + length, tag);
+		mHeaderByteBuffer.position(tagsIdx + length);
+		mHeaderByteBuffer.put((byte) ']');
+	}
 
-		System.arraycopy(mHeaderByteBuffer.array(), 0, data, offset, mHeaderByteBuffer.position());
-		System.arraycopy(mDataByteBuffer.array(), 0, data, offset + mHeaderByteBuffer.position(),
-				mDataByteBuffer.position());
-		return data;
+	/**
+	 * Appends a whole <i>double</i> array to OscMessage being composed.
+	 * 
+	 * @param src
+	 *            The double values to add to the message.
+	 */
+	public void pushDoubleArray(double[] src) {
+		pushDoubleArray(src, 0, src.length);
+	}
+
+	/**
+	 * Appends an array of <i>double</i> values to OscMessage being composed.
+	 * Type tags and values are written in bulk.
+	 * 
+	 * @param src
+	 *            The array from which values are to be read
+	 * @param offset
+	 *            The offset within the array of the first value to be read
+	 * @param length
+	 *            The number of values to be read from the given array
+	 */
+	public void pushDoubleArray(double[] src, int offset, int length) {
+		pushArrayTags((byte) 'd', length);
+		mDataByteBuffer = checkBufferSize(mDataByteBuffer, 8 * length);
+		mDataByteBuffer.asDoubleBuffer().put(src, offset, length);
+		mDataByteBuffer.position(mDataByteBuffer.position() + 8 * length);
+	}
+
+	/**
+	 * Appends a whole <i>32-bit float</i> array to OscMessage being composed.
+	 * 
+	 * @param src
+	 *            The float values to add to the message.
+	 */
+	public void pushFloatArray(float[] src) {
+		pushFloatArray(src, 0, src.length);
+	}
+
+	/**
+	 * Appends an array of <i>32-bit float</i> values to OscMessage being
+	 * composed. Type tags and values are written in bulk.
+	 * 
+	 * @param src
+	 *            The array from which values are to be read
+	 * @param offset
+	 *            The offset within the array of the first value to be read
+	 * @param length
+	 *            The number of values to be read from the given array
+	 */
+	public void pushFloatArray(float[] src, int offset, int length) {
+		pushArrayTags((byte) 'f', length);
+		mDataByteBuffer = checkBufferSize(mDataByteBuffer, 4 * length);
+		mDataByteBuffer.asFloatBuffer().put(src, offset, length);
+		mDataByteBuffer.position(mDataByteBuffer.position() + 4 * length);
+	}
+
+	/**
+	 * Appends a whole <i>32-bit integer</i> array to OscMessage being
+	 * composed.
+	 * 
+	 * @param src
+	 *            The int32 values to add to the message.
+	 */
+	public void pushInt32Array(int[] src) {
+		pushInt32Array(src, 0, src.length);
+	}
+
+	/**
+	 * Appends an array of <i>32-bit integer</i> values to OscMessage being
+	 * composed. Type tags and values are written in bulk.
+	 * 
+	 * @param src
+	 *            The array from which values are to be read
+	 * @param offset
+	 *            The offset within the array of the first value to be read
+	 * @param length
+	 *            The number of values to be read from the given array
+	 */
+	public void pushInt32Array(int[] src, int offset, int length) {
+		pushArrayTags((byte) 'i', length);
+		mDataByteBuffer = checkBufferSize(mDataByteBuffer, 4 * length);
+		mDataByteBuffer.asIntBuffer().put(src, offset, length);
+		mDataByteBuffer.position(mDataByteBuffer.position() + 4 * length);
 	}
 
 	/**
@@ -127,10 +276,37 @@ public class OscMessageComposer extends OscContentComposer {
 	public void pushBlob(byte[] src) {
 		mHeaderByteBuffer = checkBufferSize(mHeaderByteBuffer, 1);
 		mHeaderByteBuffer.put((byte) 'b');
-		mDataByteBuffer = checkBufferSize(mDataByteBuffer, src.length);
+		mDataByteBuffer = checkBufferSize(mDataByteBuffer, 4 + src.length);
 		mDataByteBuffer.putInt(src.length);
 		mDataByteBuffer.put(src);
-		fillAlignment(mDataByteBuffer);
+		fillDataAlignment();
+	}
+
+	/**
+	 * Pushes the remaining bytes of the passed buffer into this message,
+	 * without copying them.
+	 * <p>
+	 * The message only keeps a reference to the blob data (from position to
+	 * limit of src at call time), that is read when the message is written by
+	 * {@link #getBytes(OscVersion)} or {@link #getByteBuffers(OscVersion)}.
+	 * The content of src must not be modified until then. Direct buffers are
+	 * supported.
+	 * </p>
+	 * 
+	 * @param src
+	 *            The buffer from which bytes are to be read
+	 */
+	public void pushBlob(ByteBuffer src) {
+		ByteBuffer data = src.slice();
+		int length = data.remaining();
+		mHeaderByteBuffer = checkBufferSize(mHeaderByteBuffer, 1);
+		mHeaderByteBuffer.put((byte) 'b');
+		mDataByteBuffer = checkBufferSize(mDataByteBuffer, 4 + 3);
+		mDataByteBuffer.putInt(length);
+		mBlobReferences.add(new BlobReference(mDataByteBuffer.position(), data));
+		mBlobReferencesSize += length;
+		// data section is aligned before the blob, pad after its length
+		mDataByteBuffer.put(TAGS_PADDING, 0, (4 - (length & 0x3)) & 0x3);
 	}
 
 	/**
@@ -148,10 +324,10 @@ public class OscMessageComposer extends OscContentComposer {
 	public void pushBlob(byte[] src, int offset, int length) {
 		mHeaderByteBuffer = checkBufferSize(mHeaderByteBuffer, 1);
 		mHeaderByteBuffer.put((byte) 'b');
-		mDataByteBuffer = checkBufferSize(mDataByteBuffer, length);
+		mDataByteBuffer = checkBufferSize(mDataByteBuffer, 4 + length);
 		mDataByteBuffer.putInt(length);
 		mDataByteBuffer.put(src, offset, length);
-		fillAlignment(mDataByteBuffer);
+		fillDataAlignment();
 	}
 
 	/**
@@ -298,10 +474,11 @@ public class OscMessageComposer extends OscContentComposer {
 	public void pushString(String s) {
 		mHeaderByteBuffer = checkBufferSize(mHeaderByteBuffer, 1);
 		mHeaderByteBuffer.put((byte) 's');
-		mDataByteBuffer = checkBufferSize(mDataByteBuffer, s.length());
-		mDataByteBuffer.put(s.getBytes());
+		byte[] bytes = s.getBytes();
+		mDataByteBuffer = checkBufferSize(mDataByteBuffer, bytes.length + 1);
+		mDataByteBuffer.put(bytes);
 		mDataByteBuffer.put((byte) '\0');
-		fillAlignment(mDataByteBuffer);
+		fillDataAlignment();
 	}
 
 	/**
@@ -313,10 +490,11 @@ public class OscMessageComposer extends OscContentComposer {
 	public void pushSymbol(String S) {
 		mHeaderByteBuffer = checkBufferSize(mHeaderByteBuffer, 1);
 		mHeaderByteBuffer.put((byte) 'S');
-		mDataByteBuffer = checkBufferSize(mDataByteBuffer, S.length());
-		mDataByteBuffer.put(S.getBytes());
+		byte[] bytes = S.getBytes();
+		mDataByteBuffer = checkBufferSize(mDataByteBuffer, bytes.length + 1);
+		mDataByteBuffer.put(bytes);
 		mDataByteBuffer.put((byte) '\0');
-		fillAlignment(mDataByteBuffer);
+		fillDataAlignment();
 	}
 
 	/**
@@ -0,0 +1,25 @@
+package com.osc;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Interface of the objects receiving encoded OSC messages, before any
+ * parsing.
+ */
+public interface OscMessageVisitor {
+
+	/**
+	 * Called for each encoded message.
+	 * 
+	 * @param aMessage
+	 *            the encoded message, between position and limit. The buffer
+	 *            is only valid during the call, and may be reused for the
+	 *            next message. It can be passed to
+	 *            {@link OscReader#OscReader(ByteBuffer)}.
+	 * @param aTimeTag
+	 *            the time tag of the enclosing bundle, or
+	 *            {@link com.osc.types.OscTimeTag#getImmediateTime()} for a
+	 *            message sent alone.
+	 */
+	void visit(ByteBuffer aMessage, long aTimeTag);
+}
@@ -0,0 +1,13 @@
+package com.osc;
+
+/**
+ * Policies applied when a bounded queue of OSC packets or messages is full.
+ */
+public enum OscOverflowPolicy {
+	/** The oldest queued element is dropped to make room for the new one. */
+	DROP_OLDEST,
+	/** The new element is dropped. */
+	DROP_NEWEST,
+	/** The producer waits until room is available. */
+	BLOCK
+}
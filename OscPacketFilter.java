@@ -0,0 +1,261 @@
+package com.osc;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.osc.types.OscTimeTag;
+
+/**
+ * OSC packet pre-filter class
+ * 
+ * This class selects messages from encoded packets, before any
+ * {@link OscMessage} or {@link OscValue} object is built. Address pattern
+ * and type tags predicates are evaluated directly on the packet bytes, and
+ * the bundle elements that do not match are skipped by their size prefix.
+ * <p>
+ * A message is accepted if its address matches one of the address predicates
+ * and its type tags match one of the type tags predicates. A filter without
+ * any predicate of a kind accepts all messages for this kind. Address
+ * prefixes match whole address parts: "/mixer" matches "/mixer" and
+ * "/mixer/fader1", but not "/mixer2". Address patterns are described by
+ * {@link OscAddressPattern}.
+ * </p>
+ * <p>
+ * Filter objects are not thread-safe, a filter should be used by one receive
+ * thread.
+ * </p>
+ */
+public class OscPacketFilter {
+
+	private final List<byte[]> mPrefixes = new ArrayList<byte[]>();
+	private final List<OscAddressPattern> mPatterns = new ArrayList<OscAddressPattern>();
+	private final List<byte[]> mTypeTags = new ArrayList<byte[]>();
+
+	private long mAcceptedCount = 0;
+	private long mRejectedCount = 0;
+	private long mMalformedCount = 0;
+	private long mAcceptedBytes = 0;
+	private long mSkippedBytes = 0;
+
+	/**
+	 * Accepts messages whose address starts with the passed prefix.
+	 * 
+	 * @param aPrefix
+	 *            the address pattern prefix.
+	 * @return this filter.
+	 */
+	public OscPacketFilter acceptAddressPrefix(String aPrefix) {
+		mPrefixes.add(aPrefix.getBytes());
+		return this;
+	}
+
+	/**
+	 * Accepts messages whose address matches the passed pattern.
+	 * 
+	 * @param aPattern
+	 *            the address pattern.
+	 * @return this filter.
+	 */
+	public OscPacketFilter acceptAddressPattern(String aPattern) {
+		mPatterns.add(new OscAddressPattern(aPattern));
+		return this;
+	}
+
+	/**
+	 * Accepts messages with the passed type tags.
+	 * 
+	 * @param aTypeTags
+	 *            the whole type tags string, including the leading ','.
+	 * @return this filter.
+	 */
+	public OscPacketFilter acceptTypeTags(String aTypeTags) {
+		mTypeTags.add(aTypeTags.getBytes());
+		return this;
+	}
+
+	/**
+	 * Indicates whether the message located between position and limit of
+	 * the passed buffer is accepted by this filter.
+	 * 
+	 * @param aMessage
+	 *            the encoded message.
+	 * @return true if the message is accepted.
+	 */
+	public boolean accept(ByteBuffer aMessage) {
+		return accept(aMessage, aMessage.position(), aMessage.limit());
+	}
+
+	/**
+	 * Passes the messages of the packet located between position and limit
+	 * of the passed buffer that are accepted by this filter to the visitor.
+	 * The buffer position and limit are not modified.
+	 * 
+	 * @param aPacket
+	 *            the encoded message or bundle.
+	 * @param aVisitor
+	 *            the visitor receiving the accepted messages.
+	 * @return the number of accepted messages.
+	 */
+	public int filter(ByteBuffer aPacket, OscMessageVisitor aVisitor) {
+		ByteBuffer message = aPacket.duplicate();
+		return filter(message, aPacket.position(), aPacket.limit(), OscTimeTag.getImmediateTime(), aVisitor, 0);
+	}
+
+	/**
+	 * Filters a message or bundle located between aStart and aEnd.
+	 */
+	private int filter(ByteBuffer aMessage, int aStart, int aEnd, long aTimeTag, OscMessageVisitor aVisitor,
+			int aDepth) {
+		if (aEnd - aStart < 4) {
+			mMalformedCount++;
+			mSkippedBytes += aEnd - aStart;
+			return 0;
+		}
+		if (aMessage.get(aStart) != '#') {
+			if (!accept(aMessage, aStart, aEnd))
+				return 0;
+			aMessage.limit(aEnd);
+			aMessage.position(aStart);
+			aVisitor.visit(aMessage, aTimeTag);
+			aMessage.limit(aMessage.capacity());
+			return 1;
+		}
+
+		if (aEnd - aStart < 16 || aDepth >= OscPacketValidator.MAX_BUNDLE_DEPTH) {
+			mMalformedCount++;
+			mSkippedBytes += aEnd - aStart;
+			return 0;
+		}
+		long timeTag = aMessage.getLong(aStart + 8);
+		int count = 0;
+		int pos = aStart + 16;
+		while (pos < aEnd) {
+			int size = aEnd - pos < 4 ? -1 : aMessage.getInt(pos);
+			if (size <= 0 || size > aEnd - pos - 4) {
+				mMalformedCount++;
+				mSkippedBytes += aEnd - pos;
+				break;
+			}
+			count += filter(aMessage, pos + 4, pos + 4 + size, timeTag, aVisitor, aDepth + 1);
+			pos += 4 + size;
+		}
+		return count;
+	}
+
+	/**
+	 * Evaluates the predicates on the message located between aStart and
+	 * aEnd, and updates the counters.
+	 */
+	private boolean accept(ByteBuffer aMessage, int aStart, int aEnd) {
+		int addressEnd = aStart;
+		while (addressEnd < aEnd && aMessage.get(addressEnd) != 0)
+			addressEnd++;
+		int tagsIdx = aStart + ((addressEnd - aStart + 4) & ~0x03);
+		int tagsEnd = tagsIdx;
+		while (tagsEnd < aEnd && aMessage.get(tagsEnd) != 0)
+			tagsEnd++;
+		if (tagsEnd >= aEnd) {
+			mMalformedCount++;
+			mSkippedBytes += aEnd - aStart;
+			return false;
+		}
+
+		if (matchesAddress(aMessage, aStart, addressEnd) && matchesTypeTags(aMessage, tagsIdx, tagsEnd)) {
+			mAcceptedCount++;
+			mAcceptedBytes += aEnd - aStart;
+			return true;
+		}
+		mRejectedCount++;
+		mSkippedBytes += aEnd - aStart;
+		return false;
+	}
+
+	/**
+	 * Evaluates the address predicates.
+	 */
+	private boolean matchesAddress(ByteBuffer aMessage, int aStart, int aEnd) {
+		if (mPrefixes.isEmpty() && mPatterns.isEmpty())
+			return true;
+		for (byte[] prefix : mPrefixes) {
+			if (matchesPrefix(prefix, aMessage, aStart, aEnd))
+				return true;
+		}
+		for (OscAddressPattern pattern : mPatterns) {
+			if (pattern.matches(aMessage, aStart, aEnd))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Evaluates the type tags predicates.
+	 */
+	private boolean matchesTypeTags(ByteBuffer aMessage, int aStart, int aEnd) {
+		if (mTypeTags.isEmpty())
+			return true;
+		for (byte[] typeTags : mTypeTags) {
+			if (OscAddressPattern.regionMatches(aMessage, aStart, aEnd, typeTags, 0, typeTags.length) && aStart + typeTags.length == aEnd)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Indicates whether the address located between aStart and aEnd starts
+	 * with the passed prefix parts.
+	 */
+	private static boolean matchesPrefix(byte[] aPrefix, ByteBuffer aMessage, int aStart, int aEnd) {
+		if (!OscAddressPattern.regionMatches(aMessage, aStart, aEnd, aPrefix, 0, aPrefix.length))
+			return false;
+		int next = aStart + aPrefix.length;
+		return next == aEnd || aMessage.get(next) == '/'
+				|| (aPrefix.length > 0 && aPrefix[aPrefix.length - 1] == '/');
+	}
+
+	/**
+	 * Returns the number of accepted messages.
+	 * 
+	 * @return the accepted messages count.
+	 */
+	public long getAcceptedCount() {
+		return mAcceptedCount;
+	}
+
+	/**
+	 * Returns the number of messages rejected by the predicates.
+	 * 
+	 * @return the rejected messages count.
+	 */
+	public long getRejectedCount() {
+		return mRejectedCount;
+	}
+
+	/**
+	 * Returns the number of malformed messages or bundle elements skipped.
+	 * 
+	 * @return the malformed elements count.
+	 */
+	public long getMalformedCount() {
+		return mMalformedCount;
+	}
+
+	/**
+	 * Returns the number of bytes of accepted messages.
+	 * 
+	 * @return the accepted bytes count.
+	 */
+	public long getAcceptedBytes() {
+		return mAcceptedBytes;
+	}
+
+	/**
+	 * Returns the number of bytes skipped, from rejected or malformed
+	 * messages.
+	 * 
+	 * @return the skipped bytes count.
+	 */
+	public long getSkippedBytes() {
+		return mSkippedBytes;
+	}
+}
@@ -0,0 +1,339 @@
+package com.osc;
+
+import java.nio.ByteBuffer;
+
+/**
+ * OSC packet validator class
+ * 
+ * This class checks the whole structure of an OSC packet (sizes, alignment,
+ * type tags, string terminators and paddings) without building any object
+ * and without throwing any exception, so that hostile or noisy inputs are
+ * rejected at low cost. The result is returned as an {@link OscDecodeStatus}
+ * code, and the position of the faulty byte is available through
+ * {@link #getErrorOffset()}.
+ * <p>
+ * A packet accepted by the validator can be parsed by {@link OscReader}
+ * without error, and without per value checks, see
+ * {@link OscReader#decode(java.nio.ByteBuffer, OscPacketValidator)}.
+ * Validator objects can be reused, but are not thread-safe.
+ * </p>
+ */
+public class OscPacketValidator {
+
+	/** Maximum number of nested bundles. */
+	public static final int MAX_BUNDLE_DEPTH = 32;
+
+	/** Tag width of tags that are not supported. */
+	public static final int UNKNOWN = -1;
+	/** Tag width of null terminated, 4-bytes aligned strings. */
+	public static final int STRING = -2;
+	/** Tag width of size prefixed, 4-bytes aligned blobs. */
+	public static final int BLOB = -3;
+
+	/** Width of data associated to each type tag. */
+	private static final int[] TAG_WIDTHS = new int[128];
+
+	static {
+		for (int i = 0; i < TAG_WIDTHS.length; i++)
+			TAG_WIDTHS[i] = UNKNOWN;
+		for (char tag : "TFNI[]".toCharArray())
+			TAG_WIDTHS[tag] = 0;
+		for (char tag : "ifcrm".toCharArray())
+			TAG_WIDTHS[tag] = 4;
+		for (char tag : "htd".toCharArray())
+			TAG_WIDTHS[tag] = 8;
+		TAG_WIDTHS['s'] = STRING;
+		TAG_WIDTHS['S'] = STRING;
+		TAG_WIDTHS['b'] = BLOB;
+	}
+
+	/**
+	 * Returns the width of the data associated to the passed type tag.
+	 * 
+	 * @param tag
+	 *            the type tag.
+	 * @return the data size in bytes, or {@link #STRING}, {@link #BLOB} or
+	 *         {@link #UNKNOWN} for variable size or unsupported types.
+	 */
+	public static int getTagWidth(byte tag) {
+		return tag < 0 ? UNKNOWN : TAG_WIDTHS[tag];
+	}
+
+	/** Whether the validation is strict, or checks the structure only. */
+	private final boolean mStrict;
+	/** Position of the packet being validated, used as alignment base. */
+	private int mStartIdx = 0;
+	/** Position of the faulty byte of the last validated packet. */
+	private int mErrorOffset = -1;
+	/** Status of the last validated packet. */
+	private OscDecodeStatus mStatus = OscDecodeStatus.OK;
+
+	/**
+	 * Build a new strict validator.
+	 */
+	public OscPacketValidator() {
+		this(true);
+	}
+
+	/**
+	 * Build a new validator.
+	 * <p>
+	 * A non-strict validator only checks the packet structure, so that it can
+	 * be decoded without error: bundle element sizes, type tags, string
+	 * terminators, and data sizes against the packet size. It is meant for
+	 * trusted inputs, such as internal producers over loopback, and skips the
+	 * address, padding and trailing data checks.
+	 * </p>
+	 * 
+	 * @param aStrict
+	 *            false to check the packet structure only.
+	 */
+	public OscPacketValidator(boolean aStrict) {
+		mStrict = aStrict;
+	}
+
+	/**
+	 * Validates the packet located at the passed position in the buffer. The
+	 * buffer position and limit are not modified.
+	 * 
+	 * @param aPacket
+	 *            the buffer containing the packet.
+	 * @param aOffset
+	 *            the position of the packet in the buffer.
+	 * @param aLength
+	 *            the packet size.
+	 * @return {@link OscDecodeStatus#OK} if the packet is valid, the error
+	 *         code otherwise.
+	 */
+	public OscDecodeStatus validate(ByteBuffer aPacket, int aOffset, int aLength) {
+		mStartIdx = aOffset;
+		mErrorOffset = -1;
+		mStatus = OscDecodeStatus.OK;
+		if (aOffset < 0 || aLength < 0 || aOffset + aLength > aPacket.limit())
+			return fail(OscDecodeStatus.TRUNCATED, aOffset);
+		return validatePacket(aPacket, aOffset, aOffset + aLength, 0);
+	}
+
+	/**
+	 * Validates the packet stored in the passed array.
+	 * 
+	 * @param src
+	 *            the array containing the packet.
+	 * @param offset
+	 *            the position of the packet in the array.
+	 * @param length
+	 *            the packet size.
+	 * @return {@link OscDecodeStatus#OK} if the packet is valid, the error
+	 *         code otherwise.
+	 */
+	public OscDecodeStatus validate(byte[] src, int offset, int length) {
+		return validate(ByteBuffer.wrap(src), offset, length);
+	}
+
+	/**
+	 * Returns the position of the faulty byte of the last validated packet.
+	 * 
+	 * @return the error position in the validated buffer, or -1 if the packet
+	 *         is valid.
+	 */
+	public int getErrorOffset() {
+		return mErrorOffset;
+	}
+
+	/**
+	 * Returns the status of the last validated packet.
+	 * 
+	 * @return the last validation result.
+	 */
+	public OscDecodeStatus getStatus() {
+		return mStatus;
+	}
+
+	/**
+	 * Records a validation error.
+	 * 
+	 * @param aStatus
+	 *            the error code.
+	 * @param aOffset
+	 *            the faulty byte position.
+	 * @return the error code.
+	 */
+	private OscDecodeStatus fail(OscDecodeStatus aStatus, int aOffset) {
+		mStatus = aStatus;
+		mErrorOffset = aOffset;
+		return aStatus;
+	}
+
+	/**
+	 * Validates a message or a bundle.
+	 * 
+	 * @param aPacket
+	 *            the buffer containing the packet.
+	 * @param aStart
+	 *            the position of the packet.
+	 * @param aEnd
+	 *            the position following the packet last byte.
+	 * @param aDepth
+	 *            the number of bundles embedding the packet.
+	 * @return the validation status.
+	 */
+	private OscDecodeStatus validatePacket(ByteBuffer aPacket, int aStart, int aEnd, int aDepth) {
+		if (aEnd <= aStart)
+			return fail(OscDecodeStatus.TRUNCATED, aStart);
+		if (((aEnd - aStart) & 0x3) != 0)
+			return fail(OscDecodeStatus.MISALIGNED, aEnd);
+		if (aPacket.get(aStart) == '#')
+			return validateBundle(aPacket, aStart, aEnd, aDepth);
+		return validateMessage(aPacket, aStart, aEnd);
+	}
+
+	/**
+	 * Validates a bundle and all its elements.
+	 * 
+	 * @see #validatePacket(ByteBuffer, int, int, int)
+	 */
+	private OscDecodeStatus validateBundle(ByteBuffer aPacket, int aStart, int aEnd, int aDepth) {
+		if (aDepth >= MAX_BUNDLE_DEPTH)
+			return fail(OscDecodeStatus.TOO_DEEP, aStart);
+		if (aEnd - aStart < 16)
+			return fail(OscDecodeStatus.TRUNCATED, aStart);
+		if (aPacket.get(aStart + 1) != 'b' || aPacket.get(aStart + 2) != 'u' || aPacket.get(aStart + 3) != 'n'
+				|| aPacket.get(aStart + 4) != 'd' || aPacket.get(aStart + 5) != 'l'
+				|| aPacket.get(aStart + 6) != 'e' || aPacket.get(aStart + 7) != '\0')
+			return fail(OscDecodeStatus.BAD_BUNDLE_HEADER, aStart);
+
+		// Skip header and time tag
+		int pos = aStart + 16;
+		while (pos < aEnd) {
+			if (aEnd - pos < 4)
+				return fail(OscDecodeStatus.TRUNCATED, pos);
+			int size = aPacket.getInt(pos);
+			if (size <= 0 || (size & 0x3) != 0)
+				return fail(OscDecodeStatus.BAD_ELEMENT_SIZE, pos);
+			if (size > aEnd - pos - 4)
+				return fail(OscDecodeStatus.TRUNCATED, pos);
+			OscDecodeStatus status = validatePacket(aPacket, pos + 4, pos + 4 + size, aDepth + 1);
+			if (status != OscDecodeStatus.OK)
+				return status;
+			pos += 4 + size;
+		}
+		return OscDecodeStatus.OK;
+	}
+
+	/**
+	 * Validates a message and all its values.
+	 * 
+	 * @see #validatePacket(ByteBuffer, int, int, int)
+	 */
+	private OscDecodeStatus validateMessage(ByteBuffer aPacket, int aStart, int aEnd) {
+		if (mStrict && aPacket.get(aStart) != '/')
+			return fail(OscDecodeStatus.BAD_ADDRESS, aStart);
+		int tagsIdx = skipString(aPacket, aStart, aEnd);
+		if (tagsIdx < 0)
+			return mStatus;
+		if (tagsIdx == aEnd || aPacket.get(tagsIdx) != ',')
+			return fail(OscDecodeStatus.MISSING_TYPE_TAGS, tagsIdx);
+		int dataIdx = skipString(aPacket, tagsIdx, aEnd);
+		if (dataIdx < 0)
+			return mStatus;
+
+		int arrayLevel = 0;
+		byte tag;
+		for (int i = tagsIdx + 1; (tag = aPacket.get(i)) != 0; i++) {
+			int width = getTagWidth(tag);
+			if (width == UNKNOWN)
+				return fail(OscDecodeStatus.UNKNOWN_TYPE_TAG, i);
+			if (tag == '[')
+				arrayLevel++;
+			else if (tag == ']' && --arrayLevel < 0)
+				return fail(OscDecodeStatus.UNBALANCED_ARRAY, i);
+
+			if (width == STRING) {
+				dataIdx = skipString(aPacket, dataIdx, aEnd);
+				if (dataIdx < 0)
+					return mStatus;
+			} else if (width == BLOB) {
+				dataIdx = skipBlob(aPacket, dataIdx, aEnd);
+				if (dataIdx < 0)
+					return mStatus;
+			} else if (width > aEnd - dataIdx)
+				return fail(OscDecodeStatus.TRUNCATED, dataIdx);
+			else
+				dataIdx += width;
+		}
+		if (arrayLevel != 0)
+			return fail(OscDecodeStatus.UNBALANCED_ARRAY, tagsIdx);
+		if (mStrict && dataIdx != aEnd)
+			return fail(OscDecodeStatus.TRAILING_DATA, dataIdx);
+		return OscDecodeStatus.OK;
+	}
+
+	/**
+	 * Returns the next 4-bytes aligned position, relatively to the packet
+	 * start.
+	 */
+	private int align(int aPos) {
+		return mStartIdx + ((aPos - mStartIdx + 3) & ~0x03);
+	}
+
+	/**
+	 * Checks that the padding bytes are null.
+	 * 
+	 * @return the position following the padding, or -1 on error.
+	 */
+	private int checkPadding(ByteBuffer aPacket, int aFrom, int aTo) {
+		if (!mStrict)
+			return aTo;
+		for (int i = aFrom; i < aTo; i++) {
+			if (aPacket.get(i) != 0) {
+				fail(OscDecodeStatus.BAD_PADDING, i);
+				return -1;
+			}
+		}
+		return aTo;
+	}
+
+	/**
+	 * Skips a null terminated, 4-bytes aligned string.
+	 * 
+	 * @return the position following the string, or -1 on error.
+	 */
+	private int skipString(ByteBuffer aPacket, int aPos, int aEnd) {
+		int end = aPos;
+		while (end < aEnd && aPacket.get(end) != 0)
+			end++;
+		if (end == aEnd) {
+			fail(OscDecodeStatus.UNTERMINATED_STRING, aPos);
+			return -1;
+		}
+		int alignedEnd = align(end + 1);
+		if (alignedEnd > aEnd) {
+			fail(OscDecodeStatus.TRUNCATED, aPos);
+			return -1;
+		}
+		return checkPadding(aPacket, end + 1, alignedEnd);
+	}
+
+	/**
+	 * Skips a size prefixed, 4-bytes aligned blob.
+	 * 
+	 * @return the position following the blob, or -1 on error.
+	 */
+	private int skipBlob(ByteBuffer aPacket, int aPos, int aEnd) {
+		if (aEnd - aPos < 4) {
+			fail(OscDecodeStatus.TRUNCATED, aPos);
+			return -1;
+		}
+		int size = aPacket.getInt(aPos);
+		if (size < 0) {
+			fail(OscDecodeStatus.BAD_BLOB_SIZE, aPos);
+			return -1;
+		}
+		int alignedEnd = size > aEnd - aPos - 4 ? aEnd + 1 : align(aPos + 4 + size);
+		if (alignedEnd > aEnd) {
+			fail(OscDecodeStatus.TRUNCATED, aPos);
+			return -1;
+		}
+		return checkPadding(aPacket, aPos + 4 + size, alignedEnd);
+	}
+}
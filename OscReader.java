@@ -5,6 +5,7 @@ import java.nio.ByteBuffer;
 import com.osc.exception.OscBadDataTypeRequestException;
 import com.osc.exception.OscMalformedBundleException;
 import com.osc.exception.OscMalformedMessageException;
+import com.osc.memory.OscPacketLease;
 
 /**
  * OSC data reader class
@@ -21,28 +22,179 @@ import com.osc.exception.OscMalformedMessageException;
  */
 public class OscReader {
 
-	private OscContent mContent = null;
-	private ByteBuffer mPacket = null;
+	private final OscContent mContent;
+	private final ByteBuffer mPacket;
+
+	/**
+	 * Decodes the packet located between position and limit of the passed
+	 * buffer, without throwing any exception if the packet is malformed.
+	 * <p>
+	 * The packet is first checked by the passed validator. If it is not valid,
+	 * null is returned and the error code and position are available from the
+	 * validator. Otherwise, the packet is parsed without any further check.
+	 * </p>
+	 * <p>
+	 * For trusted inputs, such as internal producers, a non-strict validator
+	 * only checks the packet structure once, which makes decoding faster than
+	 * the defensive path of {@link #OscReader(ByteBuffer)}.
+	 * </p>
+	 * 
+	 * @param aPacket
+	 *            the byte buffer containing the OSC packet to parse.
+	 * @param aValidator
+	 *            the validator to use, that holds the error on return.
+	 * @return the reader on the decoded packet, or null if the packet is not
+	 *         valid.
+	 */
+	public static OscReader decode(ByteBuffer aPacket, OscPacketValidator aValidator) {
+		if (aValidator.validate(aPacket, aPacket.position(), aPacket.remaining()) != OscDecodeStatus.OK)
+			return null;
+		try {
+			return new OscReader(aPacket.slice(), aPacket.remaining(), true, null);
+		} catch (OscMalformedBundleException e) {
+			throw new IllegalStateException("validated packet cannot be parsed", e);
+		} catch (OscMalformedMessageException e) {
+			throw new IllegalStateException("validated packet cannot be parsed", e);
+		}
+	}
+
+	/**
+	 * Decodes a packet stored in an arena, without throwing any exception if
+	 * the packet is malformed.
+	 * <p>
+	 * The decoded contents hold a new reference to the lease, released by
+	 * {@link #release()}; the caller keeps its own reference.
+	 * </p>
+	 * 
+	 * @param aLease
+	 *            the lease on the packet to parse.
+	 * @param aValidator
+	 *            the validator to use, that holds the error on return.
+	 * @return the reader on the decoded packet, or null if the packet is not
+	 *         valid.
+	 * @see #decode(ByteBuffer, OscPacketValidator)
+	 */
+	public static OscReader decode(OscPacketLease aLease, OscPacketValidator aValidator) {
+		ByteBuffer packet = aLease.getData();
+		if (aValidator.validate(packet, 0, packet.limit()) != OscDecodeStatus.OK)
+			return null;
+		aLease.retain();
+		try {
+			return new OscReader(packet, packet.limit(), true, aLease);
+		} catch (OscMalformedBundleException e) {
+			aLease.release();
+			throw new IllegalStateException("validated packet cannot be parsed", e);
+		} catch (OscMalformedMessageException e) {
+			aLease.release();
+			throw new IllegalStateException("validated packet cannot be parsed", e);
+		}
+	}
 
 	/**
 	 * Build a new OscPackerReader object based on the passed byte buffer.
 	 * 
+	 * The packet is validated by a strict {@link OscPacketValidator} before
+	 * being parsed, see {@link #OscReader(ByteBuffer)}.
+	 * 
 	 * @param src
 	 *            the byte buffer to parse containing OSC messages
 	 * @throws OscMalformedBundleException
 	 *             The bundle cannot be read properly.
 	 * @throws OscMalformedMessageException
-	 *             A contained message cannot be read properly.
+	 *             A contained message cannot be read properly, or does not
+	 *             strictly conform to the specification.
 	 */
 	public OscReader(byte[] src/* , OscVersion aVersion */) throws OscMalformedBundleException,
 			OscMalformedMessageException {
-		mPacket = ByteBuffer.wrap(src);
+		this(ByteBuffer.wrap(src));
+	}
+
+	/**
+	 * Build a new OscPackerReader object based on the packet located between
+	 * position and limit of the passed byte buffer.
+	 * 
+	 * The packet is validated by a strict {@link OscPacketValidator} before
+	 * being parsed. Besides truncated or malformed packets, the following
+	 * packets are thus rejected:
+	 * <ul>
+	 * <li>packets, or bundle elements, whose size is not a multiple of 4
+	 * bytes,</li>
+	 * <li>messages with data after their last value,</li>
+	 * <li>address patterns not starting with '/',</li>
+	 * <li>alignment padding not made of null bytes.</li>
+	 * </ul>
+	 * Packets from lenient peers should be decoded with
+	 * {@link #decode(ByteBuffer, OscPacketValidator)} and a non-strict
+	 * validator, which only checks the packet structure.
+	 * 
+	 * @param aPacket
+	 *            the byte buffer to parse containing OSC messages
+	 * @throws OscMalformedBundleException
+	 *             The bundle cannot be read properly.
+	 * @throws OscMalformedMessageException
+	 *             A contained message cannot be read properly, or does not
+	 *             strictly conform to the specification.
+	 */
+	public OscReader(ByteBuffer aPacket) throws OscMalformedBundleException, OscMalformedMessageException {
+		this(check(aPacket), aPacket.remaining(), false, null);
+	}
+
+	/**
+	 * Build a new OscPackerReader object on a packet starting at position 0.
+	 * 
+	 * @param aPacket
+	 *            the byte buffer to parse containing OSC messages
+	 * @param aSize
+	 *            the packet size.
+	 * @param aTrusted
+	 *            true if the packet has been validated, to skip per value
+	 *            checks.
+	 * @param aLease
+	 *            the lease on the packet memory, or null.
+	 */
+	private OscReader(ByteBuffer aPacket, int aSize, boolean aTrusted, OscPacketLease aLease)
+			throws OscMalformedBundleException, OscMalformedMessageException {
+		mPacket = aPacket.asReadOnlyBuffer();
 		// if (aVersion == OscVersion.OSC_10)
 		// mPacket.getInt();
-		if (mPacket.get(mPacket.position()) == '#')
-			mContent = new OscBundle(mPacket, src.length);
+		if (mPacket.get(0) == '#')
+			mContent = new OscBundle(mPacket, 0, aSize, aTrusted, aLease);
 		else
-			mContent = new OscMessage(mPacket, src.length);
+			mContent = new OscMessage(mPacket, 0, aSize, aTrusted, aLease);
+	}
+
+	/**
+	 * Validates the passed packet, and translates validation errors into
+	 * exceptions.
+	 * 
+	 * @param aPacket
+	 *            the byte buffer containing the packet to check.
+	 * @return a slice of the packet, starting at position 0.
+	 * @throws OscMalformedBundleException
+	 *             The bundle cannot be read properly.
+	 * @throws OscMalformedMessageException
+	 *             A contained message cannot be read properly.
+	 */
+	private static ByteBuffer check(ByteBuffer aPacket) throws OscMalformedBundleException,
+			OscMalformedMessageException {
+		OscPacketValidator validator = new OscPacketValidator();
+		OscDecodeStatus status = validator.validate(aPacket, aPacket.position(), aPacket.remaining());
+		if (status != OscDecodeStatus.OK) {
+			String message = status.getDescription() + " (at offset "
+					+ (validator.getErrorOffset() - aPacket.position()) + ")";
+			if (status.isBundleError())
+				throw new OscMalformedBundleException(message);
+			throw new OscMalformedMessageException(message);
+		}
+		return aPacket.slice();
+	}
+
+	/**
+	 * Releases the reference held by the decoded contents on the packet lease.
+	 * Does nothing for heap packets.
+	 */
+	public void release() {
+		mContent.release();
 	}
 
 	/**
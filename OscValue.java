@@ -1,5 +1,6 @@
 package com.osc;
 
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 
 import com.osc.exception.OscBadDataTypeRequestException;
@@ -8,26 +9,40 @@ import com.osc.types.*;
 /**
  * Abstract class representing an OSC value.
  * 
- * This class is derivated to manage all OSC common types.
+ * This class is derivated to manage all OSC common types. Values are read
+ * from the packet with absolute reads only, so that the same value can be
+ * read concurrently.
  */
 public class OscValue {
 
 	/**
-	 * Returns the position of the next non-null character in the packet.
+	 * Returns the position of the null character terminating the string
+	 * located at the passed position in the packet.
 	 * 
+	 * @param aPacket
+	 *            the data buffer where to look for the string end.
+	 * @param aPos
+	 *            the position were the string starts.
+	 * @param aLimit
+	 *            the position that the string must not reach.
 	 * @return the position.
+	 * @throws BufferUnderflowException
+	 *             if no null character is found before aLimit.
 	 */
-	private static int getLastStringIdx(ByteBuffer packet) {
-		// only check string for last 4th byte
-		int pos = packet.position();
-		while (packet.get(pos) != 0)
+	static int getLastStringIdx(ByteBuffer aPacket, int aPos, int aLimit) {
+		int pos = aPos;
+		while (pos < aLimit && aPacket.get(pos) != 0)
 			pos += 1;
+		if (pos >= aLimit)
+			throw new BufferUnderflowException();
 		return pos;
 	}
 
 	/**
 	 * Returns the string located at the passed position in the packet buffer.
 	 * 
+	 * Only absolute reads are used, the packet position is not modified.
+	 * 
 	 * @param aPacket
 	 *            the data buffer where to get the string.
 	 * @param aPos
@@ -35,20 +50,18 @@ public class OscValue {
 	 * @return The read string.
 	 */
 	public static String getString(ByteBuffer aPacket, int aPos) {
-		aPacket.position(aPos);
-		int end = getLastStringIdx(aPacket);
-		int alignedEnd = (end + 4) & ~0x03;
+		int end = getLastStringIdx(aPacket, aPos, aPacket.limit());
 		byte[] bytes = new byte[end - aPos];
-		aPacket.get(bytes, 0, end - aPos);
-		aPacket.position(alignedEnd);
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = aPacket.get(aPos + i);
 		return new String(bytes);
 	}
 
 	/** The associated data buffer. */
-	protected ByteBuffer mPacket;
+	protected final ByteBuffer mPacket;
 
 	/** Position of the data in the data buffer. */
-	protected int mPos;
+	protected final int mPos;
 
 	/**
 	 * Constructor.
@@ -89,6 +102,19 @@ public class OscValue {
 		throw new OscBadDataTypeRequestException(null);
 	}
 
+	/**
+	 * Read this value as an OSC-Blob value, without copying the blob data.
+	 * 
+	 * @return a read-only view of the blob data.
+	 * @throws OscBadDataTypeRequestException
+	 *             if the current object is not the expected type.
+	 */
+	public ByteBuffer getBlobView() throws OscBadDataTypeRequestException {
+		if (this instanceof OscBlob)
+			return ((OscBlob) this).asByteBuffer();
+		throw new OscBadDataTypeRequestException(null);
+	}
+
 	/**
 	 * Read this value as a boolean value.
 	 * 
@@ -229,7 +255,7 @@ public class OscValue {
 	 *             if the current object is not the expected type.
 	 */
 	public String getTags() throws OscBadDataTypeRequestException {
-		if (this instanceof OscTimeTag)
+		if (this instanceof OscTags)
 			return ((OscTags) this).get();
 		throw new OscBadDataTypeRequestException(null);
 	}
@@ -254,7 +280,7 @@ public class OscValue {
 	 * @throws OscBadDataTypeRequestException
 	 *             if the current object is not the expected type.
 	 */
-	boolean isArrayBegin() throws OscBadDataTypeRequestException {
+	public boolean isArrayBegin() throws OscBadDataTypeRequestException {
 		if (this instanceof OscArrayBegin)
 			return true;
 		throw new OscBadDataTypeRequestException(null);
@@ -267,7 +293,7 @@ public class OscValue {
 	 * @throws OscBadDataTypeRequestException
 	 *             if the current object is not the expected type.
 	 */
-	boolean isArrayEnd() throws OscBadDataTypeRequestException {
+	public boolean isArrayEnd() throws OscBadDataTypeRequestException {
 		if (this instanceof OscArrayEnd)
 			return true;
 		throw new OscBadDataTypeRequestException(null);
@@ -0,0 +1,43 @@
+package com.osc;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Strategies of the threads waiting for OSC packets or free room in a ring,
+ * trading CPU usage against latency.
+ */
+public enum OscWaitStrategy {
+	/**
+	 * The thread spins, for the lowest latency at the cost of a core. Only
+	 * suitable when each waiting thread has a dedicated core.
+	 */
+	BUSY_SPIN,
+	/** The thread spins briefly, then yields to other threads. */
+	YIELD,
+	/** The thread spins and yields briefly, then sleeps for short periods. */
+	PARK;
+
+	/** Number of rounds spent spinning before yielding. */
+	private static final int SPIN_ROUNDS = 100;
+	/** Number of rounds spent yielding before parking. */
+	private static final int YIELD_ROUNDS = 200;
+	/** Park duration. */
+	private static final long PARK_TIME = TimeUnit.MICROSECONDS.toNanos(50);
+
+	/**
+	 * Waits once, according to this strategy.
+	 * 
+	 * @param aRound
+	 *            the number of times the thread already waited for the
+	 *            current condition.
+	 */
+	public void idle(int aRound) {
+		if (this == BUSY_SPIN || aRound < SPIN_ROUNDS)
+			Thread.onSpinWait();
+		else if (this == YIELD || aRound < YIELD_ROUNDS)
+			Thread.yield();
+		else
+			LockSupport.parkNanos(PARK_TIME);
+	}
+}
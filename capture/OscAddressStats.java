@@ -0,0 +1,255 @@
+package com.osc.capture;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aggregated statistics of the messages of an address in a capture.
+ * <p>
+ * Numeric arguments (int32, int64, float, double) are aggregated per
+ * argument index. Message counts are also kept per time bucket, to get the
+ * message rate over time.
+ * </p>
+ * <p>
+ * Bucket counts are stored sparsely, in pages of {@link #BUCKET_PAGE_SIZE}
+ * buckets allocated on first use, so that the memory used by an address
+ * does not depend on the capture duration nor on outlying timestamps.
+ * </p>
+ */
+public class OscAddressStats {
+
+	/** Number of consecutive buckets stored together. */
+	public static final int BUCKET_PAGE_SIZE = 512;
+
+	private final String mAddress;
+	private long mCount = 0;
+	private long mBytes = 0;
+	/** Pages of bucket counts, by bucket index divided by the page size. */
+	private final Map<Integer, long[]> mBucketPages = new HashMap<Integer, long[]>();
+	/** Page of the latest counted bucket, as messages come mostly in order. */
+	private int mLastPageIndex = -1;
+	private long[] mLastPage;
+	private long[] mNumericCounts = new long[0];
+	private double[] mMins = new double[0];
+	private double[] mMaxs = new double[0];
+	private double[] mSums = new double[0];
+
+	/**
+	 * Build a new OscAddressStats.
+	 * 
+	 * @param aAddress
+	 *            the address pattern.
+	 */
+	OscAddressStats(String aAddress) {
+		mAddress = aAddress;
+	}
+
+	/**
+	 * Counts a message, in the passed time bucket if not negative.
+	 */
+	void addMessage(int aSize, int aBucket) {
+		mCount++;
+		mBytes += aSize;
+		if (aBucket >= 0)
+			getPage(aBucket / BUCKET_PAGE_SIZE)[aBucket % BUCKET_PAGE_SIZE]++;
+	}
+
+	/**
+	 * Returns a page of bucket counts, allocating it if needed.
+	 */
+	private long[] getPage(int aPageIndex) {
+		if (aPageIndex != mLastPageIndex) {
+			long[] page = mBucketPages.get(aPageIndex);
+			if (page == null) {
+				page = new long[BUCKET_PAGE_SIZE];
+				mBucketPages.put(aPageIndex, page);
+			}
+			mLastPageIndex = aPageIndex;
+			mLastPage = page;
+		}
+		return mLastPage;
+	}
+
+	/**
+	 * Aggregates a numeric argument.
+	 */
+	void addValue(int aArgument, double aValue) {
+		if (aArgument >= mNumericCounts.length)
+			growArguments(aArgument + 1);
+		if (mNumericCounts[aArgument]++ == 0) {
+			mMins[aArgument] = aValue;
+			mMaxs[aArgument] = aValue;
+		} else {
+			mMins[aArgument] = Math.min(mMins[aArgument], aValue);
+			mMaxs[aArgument] = Math.max(mMaxs[aArgument], aValue);
+		}
+		mSums[aArgument] += aValue;
+	}
+
+	/**
+	 * Adds the statistics of the same address, computed on another part of
+	 * the capture.
+	 */
+	void merge(OscAddressStats aOther) {
+		mCount += aOther.mCount;
+		mBytes += aOther.mBytes;
+		for (Map.Entry<Integer, long[]> entry : aOther.mBucketPages.entrySet()) {
+			long[] page = getPage(entry.getKey());
+			long[] otherPage = entry.getValue();
+			for (int i = 0; i < BUCKET_PAGE_SIZE; i++)
+				page[i] += otherPage[i];
+		}
+		if (aOther.mNumericCounts.length > mNumericCounts.length)
+			growArguments(aOther.mNumericCounts.length);
+		for (int i = 0; i < aOther.mNumericCounts.length; i++) {
+			if (aOther.mNumericCounts[i] == 0)
+				continue;
+			if (mNumericCounts[i] == 0) {
+				mMins[i] = aOther.mMins[i];
+				mMaxs[i] = aOther.mMaxs[i];
+			} else {
+				mMins[i] = Math.min(mMins[i], aOther.mMins[i]);
+				mMaxs[i] = Math.max(mMaxs[i], aOther.mMaxs[i]);
+			}
+			mNumericCounts[i] += aOther.mNumericCounts[i];
+			mSums[i] += aOther.mSums[i];
+		}
+	}
+
+	private static long[] grow(long[] aArray, int aLength) {
+		long[] array = new long[aLength];
+		System.arraycopy(aArray, 0, array, 0, aArray.length);
+		return array;
+	}
+
+	private static double[] grow(double[] aArray, int aLength) {
+		double[] array = new double[aLength];
+		System.arraycopy(aArray, 0, array, 0, aArray.length);
+		return array;
+	}
+
+	private void growArguments(int aLength) {
+		mNumericCounts = grow(mNumericCounts, aLength);
+		mMins = grow(mMins, mNumericCounts.length);
+		mMaxs = grow(mMaxs, mNumericCounts.length);
+		mSums = grow(mSums, mNumericCounts.length);
+	}
+
+	/**
+	 * Returns the address pattern.
+	 * 
+	 * @return the address.
+	 */
+	public String getAddress() {
+		return mAddress;
+	}
+
+	/**
+	 * Returns the number of messages.
+	 * 
+	 * @return the messages count.
+	 */
+	public long getCount() {
+		return mCount;
+	}
+
+	/**
+	 * Returns the encoded size of the messages.
+	 * 
+	 * @return the messages size, in bytes.
+	 */
+	public long getBytes() {
+		return mBytes;
+	}
+
+	/**
+	 * Returns the number of messages in a time bucket.
+	 * 
+	 * @param aBucket
+	 *            the bucket index, from the start of the capture.
+	 * @return the messages count of the bucket.
+	 */
+	public long getBucketCount(int aBucket) {
+		if (aBucket < 0)
+			return 0;
+		long[] page = mBucketPages.get(aBucket / BUCKET_PAGE_SIZE);
+		return page == null ? 0 : page[aBucket % BUCKET_PAGE_SIZE];
+	}
+
+	/**
+	 * Returns the highest bucket index with messages, plus one.
+	 * 
+	 * @return the bucket index following the last counted bucket.
+	 */
+	public int getBucketEnd() {
+		int end = 0;
+		for (Map.Entry<Integer, long[]> entry : mBucketPages.entrySet()) {
+			long[] page = entry.getValue();
+			for (int i = BUCKET_PAGE_SIZE; i > 0; i--) {
+				if (page[i - 1] != 0) {
+					end = Math.max(end, entry.getKey() * BUCKET_PAGE_SIZE + i);
+					break;
+				}
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * Returns the highest argument index with numeric values, plus one.
+	 * 
+	 * @return the numeric arguments count.
+	 */
+	public int getNumArguments() {
+		for (int i = mNumericCounts.length; i > 0; i--) {
+			if (mNumericCounts[i - 1] != 0)
+				return i;
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the number of numeric values of an argument.
+	 * 
+	 * @param aArgument
+	 *            the argument index.
+	 * @return the values count.
+	 */
+	public long getNumericCount(int aArgument) {
+		return aArgument < mNumericCounts.length ? mNumericCounts[aArgument] : 0;
+	}
+
+	/**
+	 * Returns the minimum value of an argument.
+	 * 
+	 * @param aArgument
+	 *            the argument index.
+	 * @return the minimum, or NaN if the argument has no numeric value.
+	 */
+	public double getMin(int aArgument) {
+		return getNumericCount(aArgument) == 0 ? Double.NaN : mMins[aArgument];
+	}
+
+	/**
+	 * Returns the maximum value of an argument.
+	 * 
+	 * @param aArgument
+	 *            the argument index.
+	 * @return the maximum, or NaN if the argument has no numeric value.
+	 */
+	public double getMax(int aArgument) {
+		return getNumericCount(aArgument) == 0 ? Double.NaN : mMaxs[aArgument];
+	}
+
+	/**
+	 * Returns the mean value of an argument.
+	 * 
+	 * @param aArgument
+	 *            the argument index.
+	 * @return the mean, or NaN if the argument has no numeric value.
+	 */
+	public double getMean(int aArgument) {
+		long count = getNumericCount(aArgument);
+		return count == 0 ? Double.NaN : mSums[aArgument] / count;
+	}
+}
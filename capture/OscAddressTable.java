@@ -0,0 +1,122 @@
+package com.osc.capture;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hash table keyed by encoded address bytes, so that messages are looked up
+ * without building strings.
+ */
+final class OscAddressTable<V> {
+
+	private byte[][] mKeys = new byte[64][];
+	private int[] mHashes = new int[64];
+	private Object[] mValues = new Object[64];
+	private int mSize = 0;
+
+	/**
+	 * Returns the value of the address located between aStart and aEnd.
+	 */
+	@SuppressWarnings("unchecked")
+	V get(ByteBuffer aBuffer, int aStart, int aEnd) {
+		int hash = hash(aBuffer, aStart, aEnd);
+		int mask = mKeys.length - 1;
+		for (int slot = hash & mask; mKeys[slot] != null; slot = (slot + 1) & mask) {
+			if (mHashes[slot] == hash && equals(mKeys[slot], aBuffer, aStart, aEnd))
+				return (V) mValues[slot];
+		}
+		return null;
+	}
+
+	/**
+	 * Adds the value of an address absent from the table.
+	 */
+	void put(byte[] aKey, V aValue) {
+		put(aKey, hash(ByteBuffer.wrap(aKey), 0, aKey.length), aValue);
+	}
+
+	private void put(byte[] aKey, int aHash, Object aValue) {
+		if (2 * (mSize + 1) > mKeys.length) {
+			byte[][] keys = mKeys;
+			int[] hashes = mHashes;
+			Object[] values = mValues;
+			mKeys = new byte[keys.length * 2][];
+			mHashes = new int[keys.length * 2];
+			mValues = new Object[keys.length * 2];
+			mSize = 0;
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] != null)
+					put(keys[i], hashes[i], values[i]);
+			}
+		}
+		int mask = mKeys.length - 1;
+		int slot = aHash & mask;
+		while (mKeys[slot] != null)
+			slot = (slot + 1) & mask;
+		mKeys[slot] = aKey;
+		mHashes[slot] = aHash;
+		mValues[slot] = aValue;
+		mSize++;
+	}
+
+	/**
+	 * Returns the keys of the table, in slot order.
+	 */
+	List<byte[]> keys() {
+		List<byte[]> keys = new ArrayList<byte[]>(mSize);
+		for (byte[] key : mKeys) {
+			if (key != null)
+				keys.add(key);
+		}
+		return keys;
+	}
+
+	/**
+	 * Returns the values of the table, in slot order.
+	 */
+	@SuppressWarnings("unchecked")
+	List<V> values() {
+		List<V> values = new ArrayList<V>(mSize);
+		for (int i = 0; i < mKeys.length; i++) {
+			if (mKeys[i] != null)
+				values.add((V) mValues[i]);
+		}
+		return values;
+	}
+
+	/**
+	 * Copies the address located between aStart and aEnd.
+	 */
+	static byte[] copyKey(ByteBuffer aBuffer, int aStart, int aEnd) {
+		byte[] key = new byte[aEnd - aStart];
+		for (int i = 0; i < key.length; i++)
+			key[i] = aBuffer.get(aStart + i);
+		return key;
+	}
+
+	/**
+	 * Returns the address string of a key.
+	 */
+	static String toString(byte[] aKey) {
+		return new String(aKey, StandardCharsets.US_ASCII);
+	}
+
+	private static int hash(ByteBuffer aBuffer, int aStart, int aEnd) {
+		int hash = 1;
+		for (int i = aStart; i < aEnd; i++)
+			hash = 31 * hash + aBuffer.get(i);
+		return hash;
+	}
+
+	private static boolean equals(byte[] aKey, ByteBuffer aBuffer, int aStart, int aEnd) {
+		if (aKey.length != aEnd - aStart)
+			return false;
+		for (int i = 0; i < aKey.length; i++) {
+			if (aKey[i] != aBuffer.get(aStart + i))
+				return false;
+		}
+		return true;
+	}
+}
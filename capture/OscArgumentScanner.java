@@ -0,0 +1,85 @@
+package com.osc.capture;
+
+import java.nio.ByteBuffer;
+
+import com.osc.OscMessageVisitor;
+import com.osc.OscPacketValidator;
+
+/**
+ * Visitor walking the numeric arguments of encoded messages, without
+ * building any {@link com.osc.OscMessage} nor {@link com.osc.OscValue}.
+ * Messages must have been validated beforehand.
+ */
+abstract class OscArgumentScanner implements OscMessageVisitor {
+
+	@Override
+	public void visit(ByteBuffer aMessage, long aTimeTag) {
+		int start = aMessage.position();
+		int end = aMessage.limit();
+		int addressEnd = start;
+		while (aMessage.get(addressEnd) != 0)
+			addressEnd++;
+		if (!message(aMessage, start, addressEnd, end))
+			return;
+
+		int tagsIdx = align(start, addressEnd + 1);
+		if (tagsIdx >= end || aMessage.get(tagsIdx) != ',')
+			return;
+		int tagsEnd = tagsIdx + 1;
+		while (aMessage.get(tagsEnd) != 0)
+			tagsEnd++;
+		int pos = align(start, tagsEnd + 1);
+		int argument = 0;
+		for (int i = tagsIdx + 1; i < tagsEnd; i++) {
+			byte tag = aMessage.get(i);
+			if (tag == '[' || tag == ']')
+				continue;
+			if (tag == 'i' || tag == 'f' || tag == 'h' || tag == 'd')
+				argument(argument, tag, aMessage, pos);
+			int width = OscPacketValidator.getTagWidth(tag);
+			if (width == OscPacketValidator.STRING) {
+				while (aMessage.get(pos) != 0)
+					pos++;
+				pos = align(start, pos + 1);
+			} else if (width == OscPacketValidator.BLOB) {
+				pos = align(start, pos + 4 + aMessage.getInt(pos));
+			} else {
+				pos += width;
+			}
+			argument++;
+		}
+	}
+
+	/**
+	 * Called for each message.
+	 * 
+	 * @param aMessage
+	 *            the buffer holding the message.
+	 * @param aStart
+	 *            the message start, and address start.
+	 * @param aAddressEnd
+	 *            the address end, excluding the null terminator.
+	 * @param aEnd
+	 *            the message end.
+	 * @return true to walk the message arguments.
+	 */
+	protected abstract boolean message(ByteBuffer aMessage, int aStart, int aAddressEnd, int aEnd);
+
+	/**
+	 * Called for each numeric argument of the message.
+	 * 
+	 * @param aIndex
+	 *            the argument index, array markers excluded.
+	 * @param aTag
+	 *            the type tag: 'i', 'f', 'h' or 'd'.
+	 * @param aMessage
+	 *            the buffer holding the message.
+	 * @param aPos
+	 *            the argument data position.
+	 */
+	protected abstract void argument(int aIndex, byte aTag, ByteBuffer aMessage, int aPos);
+
+	private static int align(int aStart, int aPos) {
+		return aStart + ((aPos - aStart + 3) & ~0x03);
+	}
+}
@@ -0,0 +1,100 @@
+package com.osc.capture;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Result of the analysis of a capture by an {@link OscCaptureAnalyzer}.
+ */
+public class OscCaptureAnalysis {
+
+	private final Map<String, OscAddressStats> mStats;
+	private final long mRecordCount;
+	private final long mMessageCount;
+	private final long mMalformedCount;
+	private final long mStartTimestamp;
+	private final long mBucketNanos;
+
+	/**
+	 * Build a new OscCaptureAnalysis from the merged statistics.
+	 */
+	OscCaptureAnalysis(List<OscAddressStats> aStats, long aRecordCount, long aMessageCount, long aMalformedCount,
+			long aStartTimestamp, long aBucketNanos) {
+		Map<String, OscAddressStats> stats = new TreeMap<String, OscAddressStats>();
+		for (OscAddressStats addressStats : aStats)
+			stats.put(addressStats.getAddress(), addressStats);
+		mStats = Collections.unmodifiableMap(stats);
+		mRecordCount = aRecordCount;
+		mMessageCount = aMessageCount;
+		mMalformedCount = aMalformedCount;
+		mStartTimestamp = aStartTimestamp;
+		mBucketNanos = aBucketNanos;
+	}
+
+	/**
+	 * Returns the statistics of all addresses.
+	 * 
+	 * @return the statistics, by address in alphabetical order.
+	 */
+	public Map<String, OscAddressStats> getStats() {
+		return mStats;
+	}
+
+	/**
+	 * Returns the statistics of an address.
+	 * 
+	 * @param aAddress
+	 *            the address pattern.
+	 * @return the statistics, or null if the address was not captured.
+	 */
+	public OscAddressStats getStats(String aAddress) {
+		return mStats.get(aAddress);
+	}
+
+	/**
+	 * Returns the number of records analyzed.
+	 * 
+	 * @return the records count.
+	 */
+	public long getRecordCount() {
+		return mRecordCount;
+	}
+
+	/**
+	 * Returns the number of messages analyzed, bundle elements included.
+	 * 
+	 * @return the messages count.
+	 */
+	public long getMessageCount() {
+		return mMessageCount;
+	}
+
+	/**
+	 * Returns the number of records whose packet is not valid.
+	 * 
+	 * @return the malformed records count.
+	 */
+	public long getMalformedCount() {
+		return mMalformedCount;
+	}
+
+	/**
+	 * Returns the timestamp of the start of the first time bucket.
+	 * 
+	 * @return the timestamp, in nanoseconds since the epoch.
+	 */
+	public long getStartTimestamp() {
+		return mStartTimestamp;
+	}
+
+	/**
+	 * Returns the duration of the time buckets.
+	 * 
+	 * @return the bucket duration, in nanoseconds.
+	 */
+	public long getBucketNanos() {
+		return mBucketNanos;
+	}
+}
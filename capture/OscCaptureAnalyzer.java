@@ -0,0 +1,246 @@
+package com.osc.capture;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+import com.osc.OscDecodeStatus;
+import com.osc.OscPacketFilter;
+import com.osc.OscPacketValidator;
+
+/**
+ * Parallel analyzer of OSC captures.
+ * <p>
+ * The capture is split at record boundaries, from the segment sparse
+ * indexes, into chunks parsed in parallel on a {@link ForkJoinPool}. Chunks
+ * are parsed directly on the mapped segments: packets are validated, then
+ * their messages are walked on the packet bytes, without building any
+ * {@link com.osc.OscMessage}. Each task aggregates per address statistics
+ * (count, size, numeric arguments, rate over time) in its own table, merged
+ * when tasks join.
+ * </p>
+ * <p>
+ * Messages are counted per time bucket from the first record timestamp.
+ * Messages of records timestamped before it, or too far after it to have
+ * an int bucket index, are aggregated but not counted in any bucket.
+ * </p>
+ */
+public class OscCaptureAnalyzer {
+
+	/** Default size of the chunks parsed by one task. */
+	public static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+
+	private final OscCaptureReader mReader;
+	private final long mBucketNanos;
+	private final int mChunkSize;
+
+	/**
+	 * Build a new OscCaptureAnalyzer with one second time buckets.
+	 * 
+	 * @param aReader
+	 *            the capture to analyze.
+	 */
+	public OscCaptureAnalyzer(OscCaptureReader aReader) {
+		this(aReader, 1, TimeUnit.SECONDS, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Build a new OscCaptureAnalyzer.
+	 * 
+	 * @param aReader
+	 *            the capture to analyze.
+	 * @param aBucket
+	 *            the duration of the time buckets of message rates.
+	 * @param aUnit
+	 *            the unit of aBucket.
+	 * @param aChunkSize
+	 *            the approximate size of the chunks parsed by one task.
+	 */
+	public OscCaptureAnalyzer(OscCaptureReader aReader, long aBucket, TimeUnit aUnit, int aChunkSize) {
+		mReader = aReader;
+		mBucketNanos = Math.max(aUnit.toNanos(aBucket), 1);
+		mChunkSize = aChunkSize;
+	}
+
+	/**
+	 * Analyzes the capture on the common pool.
+	 * 
+	 * @return the analysis.
+	 */
+	public OscCaptureAnalysis analyze() {
+		return analyze(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Analyzes the capture.
+	 * 
+	 * @param aPool
+	 *            the pool running the tasks.
+	 * @return the analysis.
+	 */
+	public OscCaptureAnalysis analyze(ForkJoinPool aPool) {
+		List<Chunk> chunks = new ArrayList<Chunk>();
+		for (OscCaptureSegment segment : mReader.getSegments()) {
+			int start = OscCaptureFormat.HEADER_SIZE;
+			for (int offset : segment.mIndexOffsets) {
+				if (offset - start >= mChunkSize) {
+					chunks.add(new Chunk(segment, start, offset));
+					start = offset;
+				}
+			}
+			if (start < segment.mEnd)
+				chunks.add(new Chunk(segment, start, segment.mEnd));
+		}
+		long startTimestamp = mReader.getFirstTimestamp();
+		if (startTimestamp == Long.MAX_VALUE)
+			startTimestamp = 0;
+		Partial partial = aPool.invoke(new Task(chunks, 0, chunks.size(), startTimestamp));
+		return new OscCaptureAnalysis(partial.mTable.values(), partial.mRecordCount, partial.mMessageCount,
+				partial.mMalformedCount, startTimestamp, mBucketNanos);
+	}
+
+	/** Range of records of a segment. */
+	private static class Chunk {
+		final OscCaptureSegment mSegment;
+		final int mStart;
+		final int mEnd;
+
+		Chunk(OscCaptureSegment aSegment, int aStart, int aEnd) {
+			mSegment = aSegment;
+			mStart = aStart;
+			mEnd = aEnd;
+		}
+	}
+
+	/** Task analyzing a range of chunks. */
+	private class Task extends RecursiveTask<Partial> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<Chunk> mChunks;
+		private final int mFrom;
+		private final int mTo;
+		private final long mStartTimestamp;
+
+		Task(List<Chunk> aChunks, int aFrom, int aTo, long aStartTimestamp) {
+			mChunks = aChunks;
+			mFrom = aFrom;
+			mTo = aTo;
+			mStartTimestamp = aStartTimestamp;
+		}
+
+		@Override
+		protected Partial compute() {
+			if (mTo - mFrom <= 1) {
+				ChunkParser parser = new ChunkParser(mStartTimestamp);
+				if (mTo > mFrom)
+					parser.parse(mChunks.get(mFrom));
+				return parser.mPartial;
+			}
+			int middle = (mFrom + mTo) >>> 1;
+			Task left = new Task(mChunks, mFrom, middle, mStartTimestamp);
+			left.fork();
+			Partial partial = new Task(mChunks, middle, mTo, mStartTimestamp).compute();
+			partial.merge(left.join());
+			return partial;
+		}
+	}
+
+	/** Statistics of a part of the capture. */
+	private static class Partial {
+		final OscAddressTable<OscAddressStats> mTable = new OscAddressTable<OscAddressStats>();
+		long mRecordCount = 0;
+		long mMessageCount = 0;
+		long mMalformedCount = 0;
+
+		OscAddressStats get(ByteBuffer aBuffer, int aStart, int aEnd) {
+			OscAddressStats stats = mTable.get(aBuffer, aStart, aEnd);
+			if (stats == null) {
+				byte[] key = OscAddressTable.copyKey(aBuffer, aStart, aEnd);
+				stats = new OscAddressStats(OscAddressTable.toString(key));
+				mTable.put(key, stats);
+			}
+			return stats;
+		}
+
+		void merge(Partial aOther) {
+			List<byte[]> keys = aOther.mTable.keys();
+			List<OscAddressStats> values = aOther.mTable.values();
+			for (int i = 0; i < keys.size(); i++) {
+				byte[] key = keys.get(i);
+				get(ByteBuffer.wrap(key), 0, key.length).merge(values.get(i));
+			}
+			mRecordCount += aOther.mRecordCount;
+			mMessageCount += aOther.mMessageCount;
+			mMalformedCount += aOther.mMalformedCount;
+		}
+	}
+
+	/** Parser of the records of a chunk, aggregating their messages. */
+	private class ChunkParser extends OscArgumentScanner {
+
+		final Partial mPartial = new Partial();
+		private final OscPacketValidator mValidator = new OscPacketValidator();
+		private final OscPacketFilter mWalker = new OscPacketFilter();
+		private final long mStartTimestamp;
+		private int mBucket;
+		private OscAddressStats mStats;
+
+		ChunkParser(long aStartTimestamp) {
+			mStartTimestamp = aStartTimestamp;
+		}
+
+		void parse(Chunk aChunk) {
+			OscCaptureSegment segment = aChunk.mSegment;
+			ByteBuffer view = segment.mBuffer.duplicate();
+			int pos = aChunk.mStart;
+			int size;
+			while (pos < aChunk.mEnd && (size = segment.getRecordSize(pos)) > 0) {
+				int start = pos + OscCaptureFormat.RECORD_HEADER_SIZE;
+				int length = view.getInt(pos + OscCaptureFormat.PACKET_LENGTH);
+				mPartial.mRecordCount++;
+				if (mValidator.validate(view, start, length) != OscDecodeStatus.OK) {
+					mPartial.mMalformedCount++;
+				} else {
+					// Timestamps out of the bucket range are not bucketed
+					long bucket = (segment.getTimestamp(pos) - mStartTimestamp) / mBucketNanos;
+					mBucket = bucket >= 0 && bucket < Integer.MAX_VALUE ? (int) bucket : -1;
+					view.clear();
+					view.position(start);
+					view.limit(start + length);
+					mWalker.filter(view, this);
+					view.clear();
+				}
+				pos += size;
+			}
+		}
+
+		@Override
+		protected boolean message(ByteBuffer aMessage, int aStart, int aAddressEnd, int aEnd) {
+			mStats = mPartial.get(aMessage, aStart, aAddressEnd);
+			mStats.addMessage(aEnd - aStart, mBucket);
+			mPartial.mMessageCount++;
+			return true;
+		}
+
+		@Override
+		protected void argument(int aIndex, byte aTag, ByteBuffer aMessage, int aPos) {
+			switch (aTag) {
+			case 'i':
+				mStats.addValue(aIndex, aMessage.getInt(aPos));
+				break;
+			case 'f':
+				mStats.addValue(aIndex, aMessage.getFloat(aPos));
+				break;
+			case 'h':
+				mStats.addValue(aIndex, aMessage.getLong(aPos));
+				break;
+			default:
+				mStats.addValue(aIndex, aMessage.getDouble(aPos));
+			}
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package com.osc.capture;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.osc.OscPacketValidator;
+import com.osc.OscReader;
+
+/**
+ * Cursor over the records of a capture.
+ * <p>
+ * The cursor is moved to the next record by {@link #next()}; the current
+ * record packet is then available as a view of the mapped segment, without
+ * copy. Cursors are not thread-safe, but several cursors can read a capture
+ * concurrently.
+ * </p>
+ */
+public class OscCaptureCursor {
+
+	private final List<OscCaptureSegment> mSegments;
+	private int mSegmentIdx;
+	private OscCaptureSegment mSegment;
+	/** View of the current segment, reused for all its packets. */
+	private ByteBuffer mView;
+	/** Position of the next record in the current segment. */
+	private int mNextPos;
+	/** Position of the current record, or -1 if none. */
+	private int mRecordPos = -1;
+
+	/**
+	 * Build a new OscCaptureCursor, before the record at aPos of a segment.
+	 */
+	OscCaptureCursor(List<OscCaptureSegment> aSegments, int aSegmentIdx, int aPos) {
+		mSegments = aSegments;
+		setSegment(aSegmentIdx, aPos);
+	}
+
+	/**
+	 * Moves to the segment at aSegmentIdx.
+	 */
+	private void setSegment(int aSegmentIdx, int aPos) {
+		mSegmentIdx = aSegmentIdx;
+		mNextPos = aPos;
+		if (aSegmentIdx < mSegments.size()) {
+			mSegment = mSegments.get(aSegmentIdx);
+			mView = mSegment.mBuffer.duplicate();
+		} else {
+			mSegment = null;
+			mView = null;
+		}
+	}
+
+	/**
+	 * Skips the records with a timestamp lower than aTimestamp, so that the
+	 * next call to {@link #next()} moves to the first record with a timestamp
+	 * not lower than aTimestamp.
+	 */
+	void skipBefore(long aTimestamp) {
+		while (mSegment != null) {
+			int size = mSegment.getRecordSize(mNextPos);
+			if (size == 0) {
+				setSegment(mSegmentIdx + 1, OscCaptureFormat.HEADER_SIZE);
+			} else if (mSegment.getTimestamp(mNextPos) < aTimestamp) {
+				mNextPos += size;
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Moves to the next record.
+	 * 
+	 * @return true if there is a record, false at the end of the capture.
+	 */
+	public boolean next() {
+		while (mSegment != null) {
+			int size = mSegment.getRecordSize(mNextPos);
+			if (size > 0) {
+				mRecordPos = mNextPos;
+				mNextPos += size;
+				return true;
+			}
+			setSegment(mSegmentIdx + 1, OscCaptureFormat.HEADER_SIZE);
+		}
+		mRecordPos = -1;
+		return false;
+	}
+
+	/**
+	 * Returns the receive timestamp of the current record.
+	 * 
+	 * @return the timestamp, in nanoseconds since the epoch.
+	 */
+	public long getTimestamp() {
+		return mSegment.getTimestamp(mRecordPos);
+	}
+
+	/**
+	 * Returns the packet length of the current record.
+	 * 
+	 * @return the number of bytes of the packet.
+	 */
+	public int getPacketLength() {
+		return mView.getInt(mRecordPos + OscCaptureFormat.PACKET_LENGTH);
+	}
+
+	/**
+	 * Returns the source address of the current record.
+	 * 
+	 * @return the source address, or null if it was not recorded.
+	 */
+	public InetSocketAddress getSource() {
+		return OscCaptureFormat.decodeSource(mView, mRecordPos);
+	}
+
+	/**
+	 * Returns the packet of the current record. The view is owned by the
+	 * cursor, and reused for the next records.
+	 * 
+	 * @return a read-only buffer on the mapped segment, with position and limit
+	 *         set around the packet.
+	 */
+	public ByteBuffer getPacket() {
+		int start = mRecordPos + OscCaptureFormat.RECORD_HEADER_SIZE;
+		mView.clear();
+		mView.position(start);
+		mView.limit(start + getPacketLength());
+		return mView;
+	}
+
+	/**
+	 * Decodes the packet of the current record in place.
+	 * 
+	 * @param aValidator
+	 *            the validator to use, that holds the error on return.
+	 * @return the reader on the decoded packet, or null if the packet is not
+	 *         valid.
+	 * @see OscReader#decode(ByteBuffer, OscPacketValidator)
+	 */
+	public OscReader read(OscPacketValidator aValidator) {
+		return OscReader.decode(getPacket(), aValidator);
+	}
+
+	/**
+	 * Returns the sequence number of the segment of the current record.
+	 * 
+	 * @return the segment number.
+	 */
+	public int getSegmentNumber() {
+		return mSegment.mNumber;
+	}
+
+	/**
+	 * Returns the position of the current record in its segment.
+	 * 
+	 * @return the record offset.
+	 */
+	public int getOffset() {
+		return mRecordPos;
+	}
+}
@@ -0,0 +1,106 @@
+package com.osc.capture;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of capture files.
+ * <p>
+ * A capture is a directory of segment files, named by their sequence number.
+ * A segment starts with a 16 bytes header (magic number, format version),
+ * followed by records:
+ * </p>
+ * <ul>
+ * <li>int32 record size, including this header and the padding,</li>
+ * <li>int32 packet length,</li>
+ * <li>int64 receive timestamp, in nanoseconds since the epoch,</li>
+ * <li>16 bytes source IP address, IPv4 addresses being IPv4-mapped,</li>
+ * <li>int16 source port, int16 source address family (0, 4 or 6),</li>
+ * <li>the packet bytes, padded to a multiple of 4 bytes.</li>
+ * </ul>
+ * <p>
+ * The record size is written last: a zero size ends the segment. Each
+ * segment has an index file, holding (timestamp, offset) pairs of int64 every
+ * {@link #INDEX_INTERVAL} bytes of records, the timestamp being the highest
+ * one written up to the record at this offset.
+ * </p>
+ */
+final class OscCaptureFormat {
+
+	static final long MAGIC = 0x4F53434341503031L; // "OSCCAP01"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;
+
+	static final int RECORD_SIZE = 0;
+	static final int PACKET_LENGTH = 4;
+	static final int TIMESTAMP = 8;
+	static final int ADDRESS = 16;
+	static final int PORT = 32;
+	static final int FAMILY = 34;
+	static final int RECORD_HEADER_SIZE = 36;
+
+	static final int INDEX_INTERVAL = 64 * 1024;
+
+	static final String SEGMENT_SUFFIX = ".osccap";
+	static final String INDEX_SUFFIX = ".oscidx";
+
+	private OscCaptureFormat() {
+	}
+
+	/**
+	 * Returns the file name of a segment.
+	 */
+	static String getSegmentName(int aNumber) {
+		return String.format("%08d%s", aNumber, SEGMENT_SUFFIX);
+	}
+
+	/**
+	 * Returns the file name of a segment index.
+	 */
+	static String getIndexName(int aNumber) {
+		return String.format("%08d%s", aNumber, INDEX_SUFFIX);
+	}
+
+	/**
+	 * Encodes a source address as stored in records: 16 bytes address, port
+	 * and family.
+	 */
+	static byte[] encodeSource(SocketAddress aSource) {
+		byte[] encoded = new byte[RECORD_HEADER_SIZE - ADDRESS];
+		if (aSource instanceof InetSocketAddress && ((InetSocketAddress) aSource).getAddress() != null) {
+			InetSocketAddress source = (InetSocketAddress) aSource;
+			byte[] address = source.getAddress().getAddress();
+			int family = 6;
+			if (address.length == 4) {
+				encoded[10] = (byte) 0xFF;
+				encoded[11] = (byte) 0xFF;
+				family = 4;
+			}
+			System.arraycopy(address, 0, encoded, 16 - address.length, address.length);
+			encoded[PORT - ADDRESS] = (byte) (source.getPort() >> 8);
+			encoded[PORT - ADDRESS + 1] = (byte) source.getPort();
+			encoded[FAMILY - ADDRESS + 1] = (byte) family;
+		}
+		return encoded;
+	}
+
+	/**
+	 * Decodes the source address of the record at aPos.
+	 */
+	static InetSocketAddress decodeSource(ByteBuffer aBuffer, int aPos) {
+		int family = aBuffer.getShort(aPos + FAMILY);
+		if (family != 4 && family != 6)
+			return null;
+		byte[] address = new byte[family == 4 ? 4 : 16];
+		for (int i = 0; i < address.length; i++)
+			address[i] = aBuffer.get(aPos + ADDRESS + 16 - address.length + i);
+		try {
+			return new InetSocketAddress(InetAddress.getByAddress(address), aBuffer.getShort(aPos + PORT) & 0xFFFF);
+		} catch (UnknownHostException e) {
+			return null;
+		}
+	}
+}
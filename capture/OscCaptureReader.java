@@ -0,0 +1,133 @@
+package com.osc.capture;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reader of OSC capture files.
+ * <p>
+ * All the segments of a capture are mapped read-only when the reader is
+ * built. Records are read through cursors, from the start of the capture or
+ * from a timestamp: seeking is a binary search on the segments, then on the
+ * segment sparse index, followed by a scan of at most one index interval.
+ * </p>
+ */
+public class OscCaptureReader {
+
+	private final List<OscCaptureSegment> mSegments;
+
+	/**
+	 * Build a new OscCaptureReader, and maps the capture segments.
+	 * 
+	 * @param aDirectory
+	 *            the capture directory.
+	 * @throws IOException
+	 *             if a segment cannot be read, or is not a capture segment.
+	 */
+	public OscCaptureReader(Path aDirectory) throws IOException {
+		List<Integer> numbers = new ArrayList<Integer>();
+		DirectoryStream<Path> files = Files.newDirectoryStream(aDirectory, "*" + OscCaptureFormat.SEGMENT_SUFFIX);
+		try {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				try {
+					numbers.add(Integer.parseInt(name.substring(0, name.length()
+							- OscCaptureFormat.SEGMENT_SUFFIX.length())));
+				} catch (NumberFormatException e) {
+					// Not a segment
+				}
+			}
+		} finally {
+			files.close();
+		}
+		Collections.sort(numbers);
+		List<OscCaptureSegment> segments = new ArrayList<OscCaptureSegment>();
+		for (Integer number : numbers)
+			segments.add(new OscCaptureSegment(aDirectory, number));
+		mSegments = Collections.unmodifiableList(segments);
+	}
+
+	/**
+	 * Returns the number of segments of the capture.
+	 * 
+	 * @return the segments count.
+	 */
+	public int getNumSegments() {
+		return mSegments.size();
+	}
+
+	/**
+	 * Returns the mapped segments, in sequence order.
+	 */
+	List<OscCaptureSegment> getSegments() {
+		return mSegments;
+	}
+
+	/**
+	 * Returns the timestamp of the first record.
+	 * 
+	 * @return the timestamp in nanoseconds since the epoch, or
+	 *         Long.MAX_VALUE if the capture is empty.
+	 */
+	public long getFirstTimestamp() {
+		for (OscCaptureSegment segment : mSegments) {
+			if (segment.mFirstTimestamp != Long.MAX_VALUE)
+				return segment.mFirstTimestamp;
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the highest record timestamp.
+	 * 
+	 * @return the timestamp in nanoseconds since the epoch, or
+	 *         Long.MIN_VALUE if the capture is empty.
+	 */
+	public long getLastTimestamp() {
+		long timestamp = Long.MIN_VALUE;
+		for (OscCaptureSegment segment : mSegments)
+			timestamp = Math.max(timestamp, segment.mMaxTimestamp);
+		return timestamp;
+	}
+
+	/**
+	 * Returns a cursor before the first record of the capture.
+	 * 
+	 * @return the cursor.
+	 */
+	public OscCaptureCursor cursor() {
+		return new OscCaptureCursor(mSegments, 0, OscCaptureFormat.HEADER_SIZE);
+	}
+
+	/**
+	 * Returns a cursor before the first record with a timestamp not lower
+	 * than the passed one.
+	 * 
+	 * @param aTimestamp
+	 *            the timestamp to seek, in nanoseconds since the epoch.
+	 * @return the cursor.
+	 */
+	public OscCaptureCursor seek(long aTimestamp) {
+		int low = 0;
+		int high = mSegments.size() - 1;
+		int found = mSegments.size();
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (mSegments.get(mid).mMaxTimestamp >= aTimestamp) {
+				found = mid;
+				high = mid - 1;
+			} else {
+				low = mid + 1;
+			}
+		}
+		int pos = found < mSegments.size() ? mSegments.get(found).find(aTimestamp) : OscCaptureFormat.HEADER_SIZE;
+		OscCaptureCursor cursor = new OscCaptureCursor(mSegments, found, pos);
+		cursor.skipBefore(aTimestamp);
+		return cursor;
+	}
+}
@@ -0,0 +1,350 @@
+package com.osc.capture;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.osc.OscMessageVisitor;
+import com.osc.OscPacketFilter;
+import com.osc.OscPacketValidator;
+import com.osc.OscReader;
+import com.osc.dispatch.OscDispatchExecutor;
+import com.osc.dispatch.OscDispatchMode;
+import com.osc.dispatch.OscLatencyHistogram;
+import com.osc.exception.OscBadDataTypeRequestException;
+import com.osc.net.OscPacketSender;
+import com.osc.types.OscTimeTag;
+
+/**
+ * Replayer of recorded OSC sessions.
+ * <p>
+ * The packets of a capture are re-emitted to a sender, or decoded and handed
+ * to a dispatch executor, with their original inter-packet timing scaled by
+ * a speed multiplier, or as fast as possible for load testing. A timestamp
+ * range can be replayed in a loop. Bundle time tags can be rebased, so that
+ * they keep their offset to the packet emission time.
+ * </p>
+ * <p>
+ * Packets are paced by parking until shortly before their deadline, then
+ * spinning. The lateness of each emission relative to its deadline is
+ * recorded in the schedule error histogram.
+ * </p>
+ * <p>
+ * A replayer runs in the thread calling {@link #replay()}; it can be stopped
+ * from another thread.
+ * </p>
+ */
+public class OscCaptureReplayer {
+
+	/** Speed to emit packets without pacing. */
+	public static final double AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
+
+	private final OscCaptureReader mReader;
+	private final OscPacketSender mSender;
+	private final OscDispatchExecutor mExecutor;
+
+	private double mSpeed = 1;
+	private long mFrom = Long.MIN_VALUE;
+	private long mTo = Long.MAX_VALUE;
+	private int mLoops = 1;
+	private boolean mRebaseTimeTags = false;
+	private long mSpinThreshold = TimeUnit.MICROSECONDS.toNanos(100);
+
+	private volatile boolean mRunning = false;
+	private ByteBuffer mScratch = ByteBuffer.allocateDirect(64 * 1024);
+	private final OscPacketValidator mValidator = new OscPacketValidator();
+	private final OscPacketFilter mWalker = new OscPacketFilter();
+	private final OscLatencyHistogram mScheduleError = new OscLatencyHistogram();
+	private volatile long mEmittedCount = 0;
+	private volatile long mMalformedCount = 0;
+	private volatile long mPassCount = 0;
+
+	/** True if the messages of the current packet must be detached. */
+	private boolean mDetach = false;
+	/** Visitor dispatching the messages of the emitted packets. */
+	private final OscMessageVisitor mDispatcher = new OscMessageVisitor() {
+		@Override
+		public void visit(ByteBuffer aMessage, long aTimeTag) {
+			OscReader reader = OscReader.decode(aMessage, mValidator);
+			try {
+				if (reader == null)
+					mMalformedCount++;
+				else
+					mExecutor.dispatch(mDetach ? reader.getMessage().detach() : reader.getMessage());
+			} catch (OscBadDataTypeRequestException e) {
+				mMalformedCount++;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	};
+
+	/**
+	 * Build a new OscCaptureReplayer emitting packets to a sender.
+	 * 
+	 * @param aReader
+	 *            the capture to replay.
+	 * @param aSender
+	 *            the transport to emit the packets to.
+	 */
+	public OscCaptureReplayer(OscCaptureReader aReader, OscPacketSender aSender) {
+		mReader = aReader;
+		mSender = aSender;
+		mExecutor = null;
+	}
+
+	/**
+	 * Build a new OscCaptureReplayer dispatching the messages of the packets.
+	 * 
+	 * @param aReader
+	 *            the capture to replay.
+	 * @param aExecutor
+	 *            the executor to dispatch the messages to.
+	 */
+	public OscCaptureReplayer(OscCaptureReader aReader, OscDispatchExecutor aExecutor) {
+		mReader = aReader;
+		mSender = null;
+		mExecutor = aExecutor;
+	}
+
+	/**
+	 * Sets the speed multiplier.
+	 * 
+	 * @param aSpeed
+	 *            the replay speed, 1 for the original timing, or
+	 *            {@link #AS_FAST_AS_POSSIBLE}.
+	 * @return this replayer.
+	 */
+	public OscCaptureReplayer setSpeed(double aSpeed) {
+		if (!(aSpeed > 0))
+			throw new IllegalArgumentException("Speed must be positive");
+		mSpeed = aSpeed;
+		return this;
+	}
+
+	/**
+	 * Restricts the replay to a range of receive timestamps.
+	 * 
+	 * @param aFrom
+	 *            the first timestamp, inclusive, in nanoseconds since the
+	 *            epoch.
+	 * @param aTo
+	 *            the last timestamp, exclusive.
+	 * @return this replayer.
+	 */
+	public OscCaptureReplayer setRange(long aFrom, long aTo) {
+		mFrom = aFrom;
+		mTo = aTo;
+		return this;
+	}
+
+	/**
+	 * Sets the number of times the range is replayed.
+	 * 
+	 * @param aLoops
+	 *            the number of passes, or a negative value to loop until
+	 *            stopped. The replay ends after a pass finding no packet in
+	 *            the range.
+	 * @return this replayer.
+	 */
+	public OscCaptureReplayer setLoops(int aLoops) {
+		mLoops = aLoops;
+		return this;
+	}
+
+	/**
+	 * Enables the rebasing of bundle time tags: time tags other than
+	 * immediate are shifted by the delay between the packet reception and its
+	 * emission.
+	 * 
+	 * @param aRebase
+	 *            true to rebase time tags.
+	 * @return this replayer.
+	 */
+	public OscCaptureReplayer setRebaseTimeTags(boolean aRebase) {
+		mRebaseTimeTags = aRebase;
+		return this;
+	}
+
+	/**
+	 * Sets the time spent spinning before each deadline, instead of parking.
+	 * Longer spins lower the schedule error at the cost of CPU.
+	 * 
+	 * @param aThreshold
+	 *            the spin duration.
+	 * @param aUnit
+	 *            the unit of aThreshold.
+	 * @return this replayer.
+	 */
+	public OscCaptureReplayer setSpinThreshold(long aThreshold, TimeUnit aUnit) {
+		mSpinThreshold = aUnit.toNanos(aThreshold);
+		return this;
+	}
+
+	/**
+	 * Replays the capture, until the last pass ends or the replayer is
+	 * stopped.
+	 * 
+	 * @throws IOException
+	 *             if the sender fails.
+	 * @throws InterruptedException
+	 *             if interrupted while pacing or dispatching.
+	 */
+	public void replay() throws IOException, InterruptedException {
+		mRunning = true;
+		long wallBase = System.currentTimeMillis() * 1000000L;
+		long nanoBase = System.nanoTime();
+		try {
+			for (int pass = 0; mRunning && (mLoops < 0 || pass < mLoops); pass++) {
+				OscCaptureCursor cursor = mReader.seek(mFrom);
+				long first = 0;
+				long start = 0;
+				boolean started = false;
+				while (mRunning && cursor.next()) {
+					long timestamp = cursor.getTimestamp();
+					if (timestamp >= mTo)
+						break;
+					if (!started) {
+						first = timestamp;
+						start = System.nanoTime();
+						started = true;
+					}
+					if (mSpeed != AS_FAST_AS_POSSIBLE)
+						mScheduleError.record(pace(start + (long) ((timestamp - first) / mSpeed)));
+					ByteBuffer packet = cursor.getPacket();
+					if (mRebaseTimeTags)
+						packet = rebase(packet, wallBase + (System.nanoTime() - nanoBase) - timestamp);
+					emit(packet);
+					mEmittedCount++;
+				}
+				mPassCount++;
+				// An empty range would make an endless replay spin
+				if (!started)
+					break;
+			}
+		} finally {
+			mRunning = false;
+		}
+	}
+
+	/**
+	 * Waits until the deadline, parking then spinning.
+	 * 
+	 * @return the lateness of the wake-up, in nanoseconds.
+	 */
+	private long pace(long aDeadline) throws InterruptedException {
+		long remaining;
+		while ((remaining = aDeadline - System.nanoTime()) > mSpinThreshold) {
+			LockSupport.parkNanos(this, remaining - mSpinThreshold);
+			if (Thread.interrupted())
+				throw new InterruptedException();
+		}
+		long now;
+		while ((now = System.nanoTime()) - aDeadline < 0)
+			Thread.onSpinWait();
+		return now - aDeadline;
+	}
+
+	/**
+	 * Copies a packet to the scratch buffer, shifting its bundle time tags.
+	 */
+	private ByteBuffer rebase(ByteBuffer aPacket, long aDelay) {
+		int length = aPacket.remaining();
+		if (mScratch.capacity() < length)
+			mScratch = ByteBuffer.allocateDirect(length);
+		mScratch.clear();
+		mScratch.put(aPacket);
+		mScratch.flip();
+		rebaseBundle(0, length, aDelay);
+		return mScratch;
+	}
+
+	/**
+	 * Shifts the time tags of the bundle located between aStart and aEnd of
+	 * the scratch buffer, and of its nested bundles.
+	 */
+	private void rebaseBundle(int aStart, int aEnd, long aDelay) {
+		if (aEnd - aStart < 16 || mScratch.get(aStart) != '#')
+			return;
+		long timeTag = mScratch.getLong(aStart + 8);
+		if (timeTag != OscTimeTag.getImmediateTime())
+			mScratch.putLong(aStart + 8, OscTimeTag.addNanos(timeTag, aDelay));
+		int pos = aStart + 16;
+		while (aEnd - pos >= 4) {
+			int size = mScratch.getInt(pos);
+			if (size <= 0 || size > aEnd - pos - 4)
+				return;
+			rebaseBundle(pos + 4, pos + 4 + size, aDelay);
+			pos += 4 + size;
+		}
+	}
+
+	/**
+	 * Sends a packet, or dispatches its messages.
+	 */
+	private void emit(ByteBuffer aPacket) throws IOException, InterruptedException {
+		if (mSender != null) {
+			mSender.send(aPacket);
+			return;
+		}
+		// Messages queued on lanes must outlive the reused scratch buffer
+		mDetach = aPacket == mScratch && mExecutor.getMode() != OscDispatchMode.INLINE;
+		mWalker.filter(aPacket, mDispatcher);
+		if (Thread.interrupted())
+			throw new InterruptedException();
+	}
+
+	/**
+	 * Stops the replay after the current packet.
+	 */
+	public void stop() {
+		mRunning = false;
+	}
+
+	/**
+	 * Indicates whether the replay is running.
+	 * 
+	 * @return true while replaying.
+	 */
+	public boolean isRunning() {
+		return mRunning;
+	}
+
+	/**
+	 * Returns the number of emitted packets.
+	 * 
+	 * @return the emitted packets count.
+	 */
+	public long getEmittedCount() {
+		return mEmittedCount;
+	}
+
+	/**
+	 * Returns the number of messages that could not be decoded for dispatch.
+	 * 
+	 * @return the malformed messages count.
+	 */
+	public long getMalformedCount() {
+		return mMalformedCount;
+	}
+
+	/**
+	 * Returns the number of completed passes over the range.
+	 * 
+	 * @return the passes count.
+	 */
+	public long getPassCount() {
+		return mPassCount;
+	}
+
+	/**
+	 * Returns the histogram of the lateness of the emissions relative to their
+	 * deadline. It stays empty when replaying as fast as possible.
+	 * 
+	 * @return the schedule error histogram.
+	 */
+	public OscLatencyHistogram getScheduleError() {
+		return mScheduleError;
+	}
+}
@@ -0,0 +1,152 @@
+package com.osc.capture;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only mapping of a capture segment, with its sparse time index.
+ */
+final class OscCaptureSegment {
+
+	final int mNumber;
+	/** Read-only mapping of the segment file. */
+	final ByteBuffer mBuffer;
+	/** End of the valid records. */
+	final int mEnd;
+	final long[] mIndexTimes;
+	final int[] mIndexOffsets;
+	/** Timestamp of the first record, or Long.MAX_VALUE if empty. */
+	final long mFirstTimestamp;
+	/** Highest timestamp of the segment, or Long.MIN_VALUE if empty. */
+	final long mMaxTimestamp;
+
+	/**
+	 * Maps a segment and loads its index. If the index file is missing, as
+	 * after a crash or while the segment is written, the index is rebuilt by
+	 * scanning the records.
+	 */
+	OscCaptureSegment(Path aDirectory, int aNumber) throws IOException {
+		mNumber = aNumber;
+		FileChannel channel = FileChannel.open(aDirectory.resolve(OscCaptureFormat.getSegmentName(aNumber)),
+				StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if (size < OscCaptureFormat.HEADER_SIZE || size > Integer.MAX_VALUE)
+				throw new IOException("bad capture segment size " + size);
+			mBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).asReadOnlyBuffer();
+		} finally {
+			channel.close();
+		}
+		if (mBuffer.getLong(0) != OscCaptureFormat.MAGIC || mBuffer.getInt(8) != OscCaptureFormat.VERSION)
+			throw new IOException("bad capture segment header");
+
+		Path indexFile = aDirectory.resolve(OscCaptureFormat.getIndexName(aNumber));
+		if (Files.exists(indexFile)) {
+			ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+			int count = index.capacity() / 16;
+			mIndexTimes = new long[count];
+			mIndexOffsets = new int[count];
+			for (int i = 0; i < count; i++) {
+				mIndexTimes[i] = index.getLong(i * 16);
+				mIndexOffsets[i] = (int) index.getLong(i * 16 + 8);
+			}
+			mEnd = mBuffer.limit();
+		} else {
+			int count = 0;
+			long[] times = new long[64];
+			int[] offsets = new int[64];
+			long maxTimestamp = Long.MIN_VALUE;
+			int nextIndexPos = OscCaptureFormat.HEADER_SIZE;
+			int pos = OscCaptureFormat.HEADER_SIZE;
+			int size;
+			while ((size = getRecordSize(pos, mBuffer.limit())) > 0) {
+				maxTimestamp = Math.max(maxTimestamp, getTimestamp(pos));
+				if (pos >= nextIndexPos) {
+					if (count == times.length) {
+						long[] newTimes = new long[count * 2];
+						int[] newOffsets = new int[count * 2];
+						System.arraycopy(times, 0, newTimes, 0, count);
+						System.arraycopy(offsets, 0, newOffsets, 0, count);
+						times = newTimes;
+						offsets = newOffsets;
+					}
+					times[count] = maxTimestamp;
+					offsets[count++] = pos;
+					nextIndexPos = pos + OscCaptureFormat.INDEX_INTERVAL;
+				}
+				pos += size;
+			}
+			mIndexTimes = new long[count];
+			mIndexOffsets = new int[count];
+			System.arraycopy(times, 0, mIndexTimes, 0, count);
+			System.arraycopy(offsets, 0, mIndexOffsets, 0, count);
+			mEnd = pos;
+		}
+
+		// The highest timestamp is found from the last index entry
+		long maxTimestamp = Long.MIN_VALUE;
+		int pos = OscCaptureFormat.HEADER_SIZE;
+		if (mIndexTimes.length > 0) {
+			maxTimestamp = mIndexTimes[mIndexTimes.length - 1];
+			pos = mIndexOffsets[mIndexOffsets.length - 1];
+		}
+		int size;
+		while ((size = getRecordSize(pos)) > 0) {
+			maxTimestamp = Math.max(maxTimestamp, getTimestamp(pos));
+			pos += size;
+		}
+		mMaxTimestamp = maxTimestamp;
+		mFirstTimestamp = getRecordSize(OscCaptureFormat.HEADER_SIZE) > 0 ? getTimestamp(OscCaptureFormat.HEADER_SIZE)
+				: Long.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the size of the record at aPos, or 0 if there is no valid record
+	 * at this position.
+	 */
+	int getRecordSize(int aPos) {
+		return getRecordSize(aPos, mEnd);
+	}
+
+	private int getRecordSize(int aPos, int aEnd) {
+		if (aPos > aEnd - OscCaptureFormat.RECORD_HEADER_SIZE)
+			return 0;
+		int size = mBuffer.getInt(aPos + OscCaptureFormat.RECORD_SIZE);
+		int length = mBuffer.getInt(aPos + OscCaptureFormat.PACKET_LENGTH);
+		if (size < OscCaptureFormat.RECORD_HEADER_SIZE || (size & 0x03) != 0 || size > aEnd - aPos || length < 0
+				|| length > size - OscCaptureFormat.RECORD_HEADER_SIZE)
+			return 0;
+		return size;
+	}
+
+	/**
+	 * Returns the timestamp of the record at aPos.
+	 */
+	long getTimestamp(int aPos) {
+		return mBuffer.getLong(aPos + OscCaptureFormat.TIMESTAMP);
+	}
+
+	/**
+	 * Returns the position from which to scan the records to find the first
+	 * one with a timestamp not lower than aTimestamp.
+	 */
+	int find(long aTimestamp) {
+		int low = 0;
+		int high = mIndexTimes.length - 1;
+		int found = -1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (mIndexTimes[mid] < aTimestamp) {
+				found = mid;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return found < 0 ? OscCaptureFormat.HEADER_SIZE : mIndexOffsets[found];
+	}
+}
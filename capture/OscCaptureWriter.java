@@ -0,0 +1,258 @@
+package com.osc.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writer of OSC capture files.
+ * <p>
+ * Received packets are appended as records to memory-mapped segment files
+ * (see {@link OscCaptureFormat}). A new segment is started when the current
+ * one is full. Records are copied with absolute writes into the mapping,
+ * without per-record allocation; each segment sparse time index is written
+ * when the segment is closed.
+ * </p>
+ * <p>
+ * Writers are not thread-safe: a capture is written by one thread, typically
+ * the receive thread.
+ * </p>
+ */
+public class OscCaptureWriter implements Closeable {
+
+	/** Default segment size. */
+	public static final int DEFAULT_SEGMENT_SIZE = 256 << 20;
+	/** Maximum number of cached encoded source addresses. */
+	private static final int MAX_SOURCES = 1024;
+
+	private final Path mDirectory;
+	private final int mSegmentSize;
+	private int mSegmentNumber;
+
+	private FileChannel mChannel;
+	private MappedByteBuffer mBuffer;
+	private int mPosition;
+
+	/** Sparse index of the current segment, as (timestamp, offset) pairs. */
+	private long[] mIndex = new long[256];
+	private int mIndexSize;
+	private int mNextIndexPosition;
+	private long mMaxTimestamp = Long.MIN_VALUE;
+
+	private final Map<SocketAddress, byte[]> mSources = new HashMap<SocketAddress, byte[]>();
+	private static final byte[] NO_SOURCE = OscCaptureFormat.encodeSource(null);
+
+	private long mRecordCount = 0;
+	private long mPacketBytes = 0;
+
+	/**
+	 * Build a new OscCaptureWriter with the default segment size.
+	 * 
+	 * @param aDirectory
+	 *            the capture directory, created if needed.
+	 * @throws IOException
+	 *             if the first segment cannot be created.
+	 */
+	public OscCaptureWriter(Path aDirectory) throws IOException {
+		this(aDirectory, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Build a new OscCaptureWriter. If the directory already holds segments,
+	 * new segments are added after them.
+	 * 
+	 * @param aDirectory
+	 *            the capture directory, created if needed.
+	 * @param aSegmentSize
+	 *            the maximum size of a segment file.
+	 * @throws IOException
+	 *             if the first segment cannot be created.
+	 */
+	public OscCaptureWriter(Path aDirectory, int aSegmentSize) throws IOException {
+		if (aSegmentSize < OscCaptureFormat.HEADER_SIZE + OscCaptureFormat.RECORD_HEADER_SIZE)
+			throw new IllegalArgumentException("Segment size too small");
+		mDirectory = aDirectory;
+		mSegmentSize = aSegmentSize;
+		Files.createDirectories(aDirectory);
+		mSegmentNumber = 0;
+		DirectoryStream<Path> files = Files.newDirectoryStream(aDirectory, "*" + OscCaptureFormat.SEGMENT_SUFFIX);
+		try {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				try {
+					int number = Integer.parseInt(name.substring(0, name.length()
+							- OscCaptureFormat.SEGMENT_SUFFIX.length()));
+					mSegmentNumber = Math.max(mSegmentNumber, number + 1);
+				} catch (NumberFormatException e) {
+					// Not a segment
+				}
+			}
+		} finally {
+			files.close();
+		}
+		openSegment();
+	}
+
+	/**
+	 * Appends a record.
+	 * 
+	 * @param aTimestamp
+	 *            the receive timestamp, in nanoseconds since the epoch.
+	 *            Timestamps are expected not to decrease.
+	 * @param aSource
+	 *            the packet source address, or null.
+	 * @param aPacket
+	 *            the packet, between position and limit. The buffer position
+	 *            is not modified.
+	 * @throws IOException
+	 *             if a new segment cannot be created.
+	 */
+	public void append(long aTimestamp, SocketAddress aSource, ByteBuffer aPacket) throws IOException {
+		int length = aPacket.remaining();
+		int recordSize = OscCaptureFormat.RECORD_HEADER_SIZE + ((length + 3) & ~0x03);
+		if (recordSize > mSegmentSize - OscCaptureFormat.HEADER_SIZE)
+			throw new IllegalArgumentException("Packet larger than a segment");
+		if (mPosition > mSegmentSize - recordSize) {
+			closeSegment();
+			openSegment();
+		}
+		if (aTimestamp > mMaxTimestamp)
+			mMaxTimestamp = aTimestamp;
+		if (mPosition >= mNextIndexPosition) {
+			addIndex(mMaxTimestamp, mPosition);
+			mNextIndexPosition = mPosition + OscCaptureFormat.INDEX_INTERVAL;
+		}
+
+		MappedByteBuffer buffer = mBuffer;
+		int pos = mPosition;
+		buffer.putInt(pos + OscCaptureFormat.PACKET_LENGTH, length);
+		buffer.putLong(pos + OscCaptureFormat.TIMESTAMP, aTimestamp);
+		byte[] source = getSource(aSource);
+		for (int i = 0; i < source.length; i++)
+			buffer.put(pos + OscCaptureFormat.ADDRESS + i, source[i]);
+		int packetPos = aPacket.position();
+		buffer.position(pos + OscCaptureFormat.RECORD_HEADER_SIZE);
+		buffer.put(aPacket);
+		aPacket.position(packetPos);
+		for (int i = pos + OscCaptureFormat.RECORD_HEADER_SIZE + length; i < pos + recordSize; i++)
+			buffer.put(i, (byte) 0);
+		// The record size commits the record
+		buffer.putInt(pos + OscCaptureFormat.RECORD_SIZE, recordSize);
+		mPosition += recordSize;
+		mRecordCount++;
+		mPacketBytes += length;
+	}
+
+	/**
+	 * Returns the encoded form of a source address, from the cache.
+	 */
+	private byte[] getSource(SocketAddress aSource) {
+		if (aSource == null)
+			return NO_SOURCE;
+		byte[] source = mSources.get(aSource);
+		if (source == null) {
+			if (mSources.size() >= MAX_SOURCES)
+				mSources.clear();
+			source = OscCaptureFormat.encodeSource(aSource);
+			mSources.put(aSource, source);
+		}
+		return source;
+	}
+
+	/**
+	 * Adds an entry to the sparse index of the current segment.
+	 */
+	private void addIndex(long aTimestamp, int aPosition) {
+		if (mIndexSize + 2 > mIndex.length) {
+			long[] index = new long[mIndex.length * 2];
+			System.arraycopy(mIndex, 0, index, 0, mIndexSize);
+			mIndex = index;
+		}
+		mIndex[mIndexSize++] = aTimestamp;
+		mIndex[mIndexSize++] = aPosition;
+	}
+
+	/**
+	 * Creates and maps the next segment.
+	 */
+	private void openSegment() throws IOException {
+		mChannel = FileChannel.open(mDirectory.resolve(OscCaptureFormat.getSegmentName(mSegmentNumber)),
+				StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		mBuffer = mChannel.map(FileChannel.MapMode.READ_WRITE, 0, mSegmentSize);
+		mBuffer.putLong(0, OscCaptureFormat.MAGIC);
+		mBuffer.putInt(8, OscCaptureFormat.VERSION);
+		mPosition = OscCaptureFormat.HEADER_SIZE;
+		mIndexSize = 0;
+		mNextIndexPosition = mPosition;
+	}
+
+	/**
+	 * Flushes the current segment, writes its index, and truncates it to its
+	 * records.
+	 */
+	private void closeSegment() throws IOException {
+		mBuffer.force();
+		ByteBuffer index = ByteBuffer.allocate(mIndexSize * 8);
+		index.asLongBuffer().put(mIndex, 0, mIndexSize);
+		FileChannel indexChannel = FileChannel.open(
+				mDirectory.resolve(OscCaptureFormat.getIndexName(mSegmentNumber)), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		try {
+			while (index.hasRemaining())
+				indexChannel.write(index);
+		} finally {
+			indexChannel.close();
+		}
+		mBuffer = null;
+		mChannel.truncate(mPosition);
+		mChannel.close();
+		mChannel = null;
+		mSegmentNumber++;
+	}
+
+	/**
+	 * Forces the records written so far to the storage device.
+	 */
+	public void flush() {
+		mBuffer.force();
+	}
+
+	/**
+	 * Closes the current segment.
+	 * 
+	 * @throws IOException
+	 *             if the segment or its index cannot be written.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (mChannel != null)
+			closeSegment();
+	}
+
+	/**
+	 * Returns the number of records written.
+	 * 
+	 * @return the records count.
+	 */
+	public long getRecordCount() {
+		return mRecordCount;
+	}
+
+	/**
+	 * Returns the number of packet bytes written, without record headers.
+	 * 
+	 * @return the packet bytes count.
+	 */
+	public long getPacketBytes() {
+		return mPacketBytes;
+	}
+}
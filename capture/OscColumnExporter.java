@@ -0,0 +1,343 @@
+package com.osc.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.osc.OscDecodeStatus;
+import com.osc.OscMessage;
+import com.osc.OscPacketFilter;
+import com.osc.OscPacketValidator;
+
+/**
+ * Exporter of the numeric arguments of OSC messages to column files.
+ * <p>
+ * Each (address, argument index, value type) gets its own column file,
+ * holding the timestamps and the primitive values of its samples in
+ * fixed-size blocks, with per block timestamp range and min/max values (see
+ * {@link OscColumnReader}). Arguments are read directly from the encoded
+ * messages, without building any {@link com.osc.OscValue}.
+ * </p>
+ * <p>
+ * Exporters are not thread-safe. The number of columns open at once, each
+ * holding a file and a direct block buffer, is bounded: the least recently
+ * written columns are suspended, their current block being written to their
+ * file, and reopened in place when written again.
+ * </p>
+ */
+public class OscColumnExporter implements Closeable {
+
+	/** Default number of rows per block. */
+	public static final int DEFAULT_BLOCK_ROWS = 4096;
+
+	/** Default maximum number of columns open at once. */
+	public static final int DEFAULT_MAX_OPEN_COLUMNS = 256;
+
+	/** Columns of an address, by argument index and type. */
+	private static class Columns {
+		final String mAddress;
+		OscColumnWriter[][] mWriters = new OscColumnWriter[0][];
+
+		Columns(String aAddress) {
+			mAddress = aAddress;
+		}
+	}
+
+	private final Path mDirectory;
+	private final int mBlockRows;
+	private final int mMaxOpenColumns;
+	/** Size of the block buffers, large enough for all column types. */
+	private final int mBufferSize;
+	/** Open writers, from the least recently written. */
+	private final Map<OscColumnWriter, OscColumnWriter> mOpenWriters = new LinkedHashMap<OscColumnWriter, OscColumnWriter>(
+			16, 0.75f, true);
+	/** Block buffers released by suspended writers. */
+	private final List<ByteBuffer> mFreeBlocks = new ArrayList<ByteBuffer>();
+	/** Latest written writer, already the most recent one of mOpenWriters. */
+	private OscColumnWriter mLastWriter;
+	private final OscAddressTable<Columns> mColumns = new OscAddressTable<Columns>();
+	private final OscPacketValidator mValidator = new OscPacketValidator();
+	private final OscPacketFilter mWalker = new OscPacketFilter();
+	private final Scanner mScanner = new Scanner();
+	private int mNumColumns = 0;
+	private long mRowCount = 0;
+
+	/**
+	 * Build a new OscColumnExporter with the default block size.
+	 *
+	 * @param aDirectory
+	 *            the directory of the column files, created if needed.
+	 * @throws IOException
+	 *             if the directory cannot be created.
+	 */
+	public OscColumnExporter(Path aDirectory) throws IOException {
+		this(aDirectory, DEFAULT_BLOCK_ROWS, DEFAULT_MAX_OPEN_COLUMNS);
+	}
+
+	/**
+	 * Build a new OscColumnExporter with the default maximum number of open
+	 * columns.
+	 *
+	 * @param aDirectory
+	 *            the directory of the column files, created if needed.
+	 * @param aBlockRows
+	 *            the number of rows per block.
+	 * @throws IOException
+	 *             if the directory cannot be created.
+	 */
+	public OscColumnExporter(Path aDirectory, int aBlockRows) throws IOException {
+		this(aDirectory, aBlockRows, DEFAULT_MAX_OPEN_COLUMNS);
+	}
+
+	/**
+	 * Build a new OscColumnExporter.
+	 *
+	 * @param aDirectory
+	 *            the directory of the column files, created if needed.
+	 * @param aBlockRows
+	 *            the number of rows per block.
+	 * @param aMaxOpenColumns
+	 *            the maximum number of columns open at once.
+	 * @throws IOException
+	 *             if the directory cannot be created.
+	 */
+	public OscColumnExporter(Path aDirectory, int aBlockRows, int aMaxOpenColumns) throws IOException {
+		if (aBlockRows <= 0)
+			throw new IllegalArgumentException("Block rows must be positive");
+		if (aMaxOpenColumns <= 0)
+			throw new IllegalArgumentException("Max open columns must be positive");
+		mDirectory = aDirectory;
+		mBlockRows = aBlockRows;
+		mMaxOpenColumns = aMaxOpenColumns;
+		int bufferSize = 0;
+		for (OscColumnType type : OscColumnType.values())
+			bufferSize = Math.max(bufferSize, OscColumnFormat.getBlockSize(aBlockRows, type));
+		mBufferSize = bufferSize;
+		Files.createDirectories(aDirectory);
+	}
+
+	/**
+	 * Returns the file name of a column.
+	 *
+	 * @param aAddress
+	 *            the address pattern.
+	 * @param aArgument
+	 *            the argument index, array markers excluded.
+	 * @param aType
+	 *            the value type.
+	 * @return the file name, in the export directory.
+	 */
+	public static String getFileName(String aAddress, int aArgument, OscColumnType aType) {
+		return OscColumnFormat.getFileName(aAddress, aArgument, aType);
+	}
+
+	/**
+	 * Exports the numeric arguments of a message.
+	 *
+	 * @param aTimestamp
+	 *            the message timestamp. Timestamps of a column are expected
+	 *            not to decrease.
+	 * @param aMessage
+	 *            the message.
+	 * @throws IOException
+	 *             if a column cannot be written.
+	 */
+	public void add(long aTimestamp, OscMessage aMessage) throws IOException {
+		mScanner.scan(aTimestamp, aMessage.rawSlice());
+	}
+
+	/**
+	 * Exports the numeric arguments of all the messages of a capture, bundle
+	 * elements included. Packets that are not valid are skipped.
+	 *
+	 * @param aReader
+	 *            the capture.
+	 * @return the number of exported records.
+	 * @throws IOException
+	 *             if a column cannot be written.
+	 */
+	public long export(OscCaptureReader aReader) throws IOException {
+		OscCaptureCursor cursor = aReader.cursor();
+		long count = 0;
+		while (cursor.next()) {
+			ByteBuffer packet = cursor.getPacket();
+			if (mValidator.validate(packet, packet.position(), packet.remaining()) != OscDecodeStatus.OK)
+				continue;
+			mScanner.scan(cursor.getTimestamp(), packet);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of columns created.
+	 *
+	 * @return the columns count.
+	 */
+	public int getNumColumns() {
+		return mNumColumns;
+	}
+
+	/**
+	 * Returns the number of rows written in all columns.
+	 *
+	 * @return the rows count.
+	 */
+	public long getRowCount() {
+		return mRowCount;
+	}
+
+	/**
+	 * Writes the last blocks, and closes all column files.
+	 *
+	 * @throws IOException
+	 *             if a column cannot be written.
+	 */
+	@Override
+	public void close() throws IOException {
+		IOException failure = null;
+		for (Columns columns : mColumns.values()) {
+			for (OscColumnWriter[] writers : columns.mWriters) {
+				if (writers == null)
+					continue;
+				for (OscColumnWriter writer : writers) {
+					try {
+						if (writer != null)
+							writer.close();
+					} catch (IOException e) {
+						failure = e;
+					}
+				}
+			}
+		}
+		mOpenWriters.clear();
+		mFreeBlocks.clear();
+		mLastWriter = null;
+		if (failure != null)
+			throw failure;
+	}
+
+	/**
+	 * Returns a block buffer for a writer to open, suspending the least
+	 * recently written writer if too many are open.
+	 */
+	private ByteBuffer acquireBlock() throws IOException {
+		if (mOpenWriters.size() >= mMaxOpenColumns) {
+			Iterator<OscColumnWriter> eldest = mOpenWriters.keySet().iterator();
+			OscColumnWriter writer = eldest.next();
+			eldest.remove();
+			if (writer == mLastWriter)
+				mLastWriter = null;
+			mFreeBlocks.add(writer.suspend());
+		}
+		if (mFreeBlocks.isEmpty())
+			return ByteBuffer.allocateDirect(mBufferSize);
+		return mFreeBlocks.remove(mFreeBlocks.size() - 1);
+	}
+
+	/**
+	 * Makes the passed writer open, and the most recently written one.
+	 */
+	private void touch(OscColumnWriter aWriter) throws IOException {
+		if (aWriter == mLastWriter)
+			return;
+		if (aWriter.isOpen()) {
+			mOpenWriters.get(aWriter);
+		} else {
+			ByteBuffer block = acquireBlock();
+			try {
+				aWriter.reopen(block);
+			} catch (IOException e) {
+				mFreeBlocks.add(block);
+				throw e;
+			}
+			mOpenWriters.put(aWriter, aWriter);
+		}
+		mLastWriter = aWriter;
+	}
+
+	/** Scanner writing the arguments of the visited messages. */
+	private class Scanner extends OscArgumentScanner {
+
+		private long mTimestamp;
+		private Columns mCurrent;
+		private IOException mFailure;
+
+		/**
+		 * Writes the arguments of the messages of a packet, and reports the
+		 * first write failure.
+		 */
+		void scan(long aTimestamp, ByteBuffer aPacket) throws IOException {
+			mTimestamp = aTimestamp;
+			mWalker.filter(aPacket, this);
+			IOException failure = mFailure;
+			mFailure = null;
+			if (failure != null)
+				throw failure;
+		}
+
+		@Override
+		protected boolean message(ByteBuffer aMessage, int aStart, int aAddressEnd, int aEnd) {
+			if (mFailure != null)
+				return false;
+			mCurrent = mColumns.get(aMessage, aStart, aAddressEnd);
+			if (mCurrent == null) {
+				byte[] key = OscAddressTable.copyKey(aMessage, aStart, aAddressEnd);
+				mCurrent = new Columns(OscAddressTable.toString(key));
+				mColumns.put(key, mCurrent);
+			}
+			return true;
+		}
+
+		@Override
+		protected void argument(int aIndex, byte aTag, ByteBuffer aMessage, int aPos) {
+			if (mFailure != null)
+				return;
+			try {
+				OscColumnWriter writer = getWriter(aIndex, OscColumnType.fromTag(aTag));
+				touch(writer);
+				writer.add(mTimestamp, aMessage, aPos);
+				mRowCount++;
+			} catch (IOException e) {
+				mFailure = e;
+			}
+		}
+
+		/**
+		 * Returns the writer of a column of the current address, created on
+		 * first use.
+		 */
+		private OscColumnWriter getWriter(int aIndex, OscColumnType aType) throws IOException {
+			if (aIndex >= mCurrent.mWriters.length) {
+				OscColumnWriter[][] writers = new OscColumnWriter[aIndex + 1][];
+				System.arraycopy(mCurrent.mWriters, 0, writers, 0, mCurrent.mWriters.length);
+				mCurrent.mWriters = writers;
+			}
+			if (mCurrent.mWriters[aIndex] == null)
+				mCurrent.mWriters[aIndex] = new OscColumnWriter[OscColumnType.values().length];
+			OscColumnWriter writer = mCurrent.mWriters[aIndex][aType.ordinal()];
+			if (writer == null) {
+				ByteBuffer block = acquireBlock();
+				try {
+					writer = new OscColumnWriter(mDirectory.resolve(getFileName(mCurrent.mAddress, aIndex, aType)),
+							aType, mBlockRows, block);
+				} catch (IOException e) {
+					mFreeBlocks.add(block);
+					throw e;
+				}
+				mOpenWriters.put(writer, writer);
+				mLastWriter = writer;
+				mCurrent.mWriters[aIndex][aType.ordinal()] = writer;
+				mNumColumns++;
+			}
+			return writer;
+		}
+	}
+}
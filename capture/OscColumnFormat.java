@@ -0,0 +1,60 @@
+package com.osc.capture;
+
+/**
+ * Layout of column files.
+ * <p>
+ * A column file starts with a 32 bytes header: magic number, value type tag
+ * (int32), rows per block (int32), rows count (int64), blocks count (int32).
+ * Fixed-size blocks follow, so that any block is located without reading the
+ * others. A block starts with a 40 bytes header: first and last timestamps
+ * (int64), minimum and maximum values (float64), rows count (int32). Then
+ * come the timestamps (int64) and the values of its rows, each in its own
+ * array sized for a full block.
+ * </p>
+ */
+final class OscColumnFormat {
+
+	static final long MAGIC = 0x4F5343434F4C3031L; // "OSCCOL01"
+	static final int HEADER_SIZE = 32;
+	static final int TYPE = 8;
+	static final int BLOCK_ROWS = 12;
+	static final int ROW_COUNT = 16;
+	static final int BLOCK_COUNT = 24;
+
+	static final int BLOCK_HEADER_SIZE = 40;
+	static final int FIRST_TIMESTAMP = 0;
+	static final int LAST_TIMESTAMP = 8;
+	static final int MIN = 16;
+	static final int MAX = 24;
+	static final int COUNT = 32;
+
+	static final String SUFFIX = ".osccol";
+
+	private OscColumnFormat() {
+	}
+
+	/**
+	 * Returns the size of a block.
+	 */
+	static int getBlockSize(int aBlockRows, OscColumnType aType) {
+		return BLOCK_HEADER_SIZE + aBlockRows * (8 + aType.getWidth());
+	}
+
+	/**
+	 * Returns the file name of a column: the address with all characters but
+	 * letters, digits, '-' and '_' escaped as %XX, the argument index and the
+	 * type tag.
+	 */
+	static String getFileName(String aAddress, int aArgument, OscColumnType aType) {
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < aAddress.length(); i++) {
+			char c = aAddress.charAt(i);
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_')
+				name.append(c);
+			else
+				name.append('%').append(String.format("%02X", c & 0xFF));
+		}
+		return name.append('.').append(aArgument).append('.').append((char) aType.getTag()).append(SUFFIX)
+				.toString();
+	}
+}
@@ -0,0 +1,359 @@
+package com.osc.capture;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reader of a column file written by an {@link OscColumnExporter}.
+ * <p>
+ * The file is memory-mapped, and rows are read in place with absolute reads,
+ * without deserialization. Files larger than a mapping are mapped in windows
+ * of whole blocks. Finding the first row at a timestamp is a binary search
+ * on the blocks, then on the block timestamps. Range minimum and maximum use
+ * the block statistics for the blocks fully in the range.
+ * </p>
+ * <p>
+ * Readers are immutable, and can be shared between threads.
+ * </p>
+ */
+public class OscColumnReader {
+
+	/** Maximum size of a mapped window. */
+	private static final int WINDOW_SIZE = 1 << 30;
+
+	private final OscColumnType mType;
+	private final int mBlockRows;
+	private final long mRowCount;
+	private final int mBlockCount;
+	private final int mBlockSize;
+	private final int mBlocksPerWindow;
+	private final ByteBuffer[] mWindows;
+
+	/**
+	 * Build a new OscColumnReader, and maps the column file.
+	 * 
+	 * @param aFile
+	 *            the column file.
+	 * @throws IOException
+	 *             if the file cannot be read, or is not a column file.
+	 */
+	public OscColumnReader(Path aFile) throws IOException {
+		FileChannel channel = FileChannel.open(aFile, StandardOpenOption.READ);
+		try {
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, OscColumnFormat.HEADER_SIZE);
+			if (header.getLong(0) != OscColumnFormat.MAGIC)
+				throw new IOException("bad column file header");
+			mType = OscColumnType.fromTag((byte) header.getInt(OscColumnFormat.TYPE));
+			if (mType == null)
+				throw new IOException("bad column type");
+			mBlockRows = header.getInt(OscColumnFormat.BLOCK_ROWS);
+			mRowCount = header.getLong(OscColumnFormat.ROW_COUNT);
+			mBlockCount = header.getInt(OscColumnFormat.BLOCK_COUNT);
+			mBlockSize = OscColumnFormat.getBlockSize(mBlockRows, mType);
+			if (OscColumnFormat.HEADER_SIZE + (long) mBlockCount * mBlockSize > channel.size())
+				throw new IOException("truncated column file");
+			mBlocksPerWindow = Math.max(1, WINDOW_SIZE / mBlockSize);
+			mWindows = new ByteBuffer[(mBlockCount + mBlocksPerWindow - 1) / mBlocksPerWindow];
+			for (int i = 0; i < mWindows.length; i++) {
+				int blocks = Math.min(mBlocksPerWindow, mBlockCount - i * mBlocksPerWindow);
+				mWindows[i] = channel.map(FileChannel.MapMode.READ_ONLY, OscColumnFormat.HEADER_SIZE + (long) i
+						* mBlocksPerWindow * mBlockSize, (long) blocks * mBlockSize).asReadOnlyBuffer();
+			}
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Opens a column of an export directory.
+	 * 
+	 * @param aDirectory
+	 *            the export directory.
+	 * @param aAddress
+	 *            the address pattern.
+	 * @param aArgument
+	 *            the argument index.
+	 * @param aType
+	 *            the value type.
+	 * @return the column reader.
+	 * @throws IOException
+	 *             if the column does not exist or cannot be read.
+	 */
+	public static OscColumnReader open(Path aDirectory, String aAddress, int aArgument, OscColumnType aType)
+			throws IOException {
+		return new OscColumnReader(aDirectory.resolve(OscColumnFormat.getFileName(aAddress, aArgument, aType)));
+	}
+
+	/**
+	 * Returns the buffer holding a block.
+	 */
+	private ByteBuffer getWindow(int aBlock) {
+		return mWindows[aBlock / mBlocksPerWindow];
+	}
+
+	/**
+	 * Returns the position of a block in its window.
+	 */
+	private int getBlockIdx(int aBlock) {
+		return (aBlock % mBlocksPerWindow) * mBlockSize;
+	}
+
+	/**
+	 * Returns the value type.
+	 * 
+	 * @return the column type.
+	 */
+	public OscColumnType getType() {
+		return mType;
+	}
+
+	/**
+	 * Returns the number of rows.
+	 * 
+	 * @return the rows count.
+	 */
+	public long getRowCount() {
+		return mRowCount;
+	}
+
+	/**
+	 * Returns the number of blocks.
+	 * 
+	 * @return the blocks count.
+	 */
+	public int getBlockCount() {
+		return mBlockCount;
+	}
+
+	/**
+	 * Returns the number of rows of a full block.
+	 * 
+	 * @return the rows per block.
+	 */
+	public int getBlockRows() {
+		return mBlockRows;
+	}
+
+	/**
+	 * Returns the number of rows of a block.
+	 * 
+	 * @param aBlock
+	 *            the block index.
+	 * @return the block rows count.
+	 */
+	public int getBlockRowCount(int aBlock) {
+		return getWindow(aBlock).getInt(getBlockIdx(aBlock) + OscColumnFormat.COUNT);
+	}
+
+	/**
+	 * Returns the timestamp of the first row of a block.
+	 * 
+	 * @param aBlock
+	 *            the block index.
+	 * @return the timestamp.
+	 */
+	public long getBlockFirstTimestamp(int aBlock) {
+		return getWindow(aBlock).getLong(getBlockIdx(aBlock) + OscColumnFormat.FIRST_TIMESTAMP);
+	}
+
+	/**
+	 * Returns the timestamp of the last row of a block.
+	 * 
+	 * @param aBlock
+	 *            the block index.
+	 * @return the timestamp.
+	 */
+	public long getBlockLastTimestamp(int aBlock) {
+		return getWindow(aBlock).getLong(getBlockIdx(aBlock) + OscColumnFormat.LAST_TIMESTAMP);
+	}
+
+	/**
+	 * Returns the minimum value of a block.
+	 * 
+	 * @param aBlock
+	 *            the block index.
+	 * @return the minimum value.
+	 */
+	public double getBlockMin(int aBlock) {
+		return getWindow(aBlock).getDouble(getBlockIdx(aBlock) + OscColumnFormat.MIN);
+	}
+
+	/**
+	 * Returns the maximum value of a block.
+	 * 
+	 * @param aBlock
+	 *            the block index.
+	 * @return the maximum value.
+	 */
+	public double getBlockMax(int aBlock) {
+		return getWindow(aBlock).getDouble(getBlockIdx(aBlock) + OscColumnFormat.MAX);
+	}
+
+	/**
+	 * Returns the timestamp of a row.
+	 * 
+	 * @param aRow
+	 *            the row index.
+	 * @return the timestamp.
+	 */
+	public long getTimestamp(long aRow) {
+		int block = (int) (aRow / mBlockRows);
+		return getWindow(block).getLong(getBlockIdx(block) + OscColumnFormat.BLOCK_HEADER_SIZE
+				+ (int) (aRow % mBlockRows) * 8);
+	}
+
+	/**
+	 * Returns the position of the value of a row in its window.
+	 */
+	private int getValueIdx(int aBlock, long aRow) {
+		return getBlockIdx(aBlock) + OscColumnFormat.BLOCK_HEADER_SIZE + mBlockRows * 8 + (int) (aRow % mBlockRows)
+				* mType.getWidth();
+	}
+
+	/**
+	 * Returns the value of a row of an INT32 column.
+	 * 
+	 * @param aRow
+	 *            the row index.
+	 * @return the value.
+	 */
+	public int getInt(long aRow) {
+		int block = (int) (aRow / mBlockRows);
+		return getWindow(block).getInt(getValueIdx(block, aRow));
+	}
+
+	/**
+	 * Returns the value of a row of an INT64 column.
+	 * 
+	 * @param aRow
+	 *            the row index.
+	 * @return the value.
+	 */
+	public long getLong(long aRow) {
+		int block = (int) (aRow / mBlockRows);
+		return getWindow(block).getLong(getValueIdx(block, aRow));
+	}
+
+	/**
+	 * Returns the value of a row of a FLOAT column.
+	 * 
+	 * @param aRow
+	 *            the row index.
+	 * @return the value.
+	 */
+	public float getFloat(long aRow) {
+		int block = (int) (aRow / mBlockRows);
+		return getWindow(block).getFloat(getValueIdx(block, aRow));
+	}
+
+	/**
+	 * Returns the value of a row, whatever the column type.
+	 * 
+	 * @param aRow
+	 *            the row index.
+	 * @return the value, converted to a double.
+	 */
+	public double getDouble(long aRow) {
+		int block = (int) (aRow / mBlockRows);
+		ByteBuffer window = getWindow(block);
+		int idx = getValueIdx(block, aRow);
+		switch (mType) {
+		case INT32:
+			return window.getInt(idx);
+		case INT64:
+			return window.getLong(idx);
+		case FLOAT:
+			return window.getFloat(idx);
+		default:
+			return window.getDouble(idx);
+		}
+	}
+
+	/**
+	 * Returns the first row with a timestamp not lower than the passed one.
+	 * 
+	 * @param aTimestamp
+	 *            the timestamp.
+	 * @return the row index, or the rows count if all rows are older.
+	 */
+	public long findRow(long aTimestamp) {
+		int low = 0;
+		int high = mBlockCount - 1;
+		int block = mBlockCount;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (getBlockLastTimestamp(mid) >= aTimestamp) {
+				block = mid;
+				high = mid - 1;
+			} else {
+				low = mid + 1;
+			}
+		}
+		if (block == mBlockCount)
+			return mRowCount;
+		long first = (long) block * mBlockRows;
+		long lowRow = first;
+		long highRow = first + getBlockRowCount(block) - 1;
+		while (lowRow < highRow) {
+			long mid = (lowRow + highRow) >>> 1;
+			if (getTimestamp(mid) >= aTimestamp)
+				highRow = mid;
+			else
+				lowRow = mid + 1;
+		}
+		return lowRow;
+	}
+
+	/**
+	 * Returns the minimum value of a range of rows.
+	 * 
+	 * @param aFrom
+	 *            the first row, inclusive.
+	 * @param aTo
+	 *            the last row, exclusive.
+	 * @return the minimum, or NaN if the range is empty.
+	 */
+	public double getMin(long aFrom, long aTo) {
+		return aggregate(aFrom, aTo, false);
+	}
+
+	/**
+	 * Returns the maximum value of a range of rows.
+	 * 
+	 * @param aFrom
+	 *            the first row, inclusive.
+	 * @param aTo
+	 *            the last row, exclusive.
+	 * @return the maximum, or NaN if the range is empty.
+	 */
+	public double getMax(long aFrom, long aTo) {
+		return aggregate(aFrom, aTo, true);
+	}
+
+	/**
+	 * Computes the minimum or maximum of a range, using the block statistics
+	 * of the blocks fully in the range.
+	 */
+	private double aggregate(long aFrom, long aTo, boolean aMax) {
+		long to = Math.min(aTo, mRowCount);
+		double result = Double.NaN;
+		long row = Math.max(aFrom, 0);
+		while (row < to) {
+			int block = (int) (row / mBlockRows);
+			long blockEnd = Math.min((long) block * mBlockRows + getBlockRowCount(block), to);
+			double value;
+			if (row % mBlockRows == 0 && blockEnd - row == getBlockRowCount(block)) {
+				value = aMax ? getBlockMax(block) : getBlockMin(block);
+				row = blockEnd;
+			} else {
+				value = getDouble(row++);
+			}
+			if (Double.isNaN(result) || (aMax ? value > result : value < result))
+				result = value;
+		}
+		return result;
+	}
+}
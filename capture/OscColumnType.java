@@ -0,0 +1,63 @@
+package com.osc.capture;
+
+/**
+ * Value types of the columns written by an {@link OscColumnExporter}.
+ */
+public enum OscColumnType {
+	/** 32-bit integer values, from 'i' arguments. */
+	INT32('i', 4),
+	/** 64-bit integer values, from 'h' arguments. */
+	INT64('h', 8),
+	/** 32-bit float values, from 'f' arguments. */
+	FLOAT('f', 4),
+	/** 64-bit float values, from 'd' arguments. */
+	DOUBLE('d', 8);
+
+	private final byte mTag;
+	private final int mWidth;
+
+	private OscColumnType(char aTag, int aWidth) {
+		mTag = (byte) aTag;
+		mWidth = aWidth;
+	}
+
+	/**
+	 * Returns the OSC type tag of the values.
+	 * 
+	 * @return the type tag.
+	 */
+	public byte getTag() {
+		return mTag;
+	}
+
+	/**
+	 * Returns the size of a value.
+	 * 
+	 * @return the value size, in bytes.
+	 */
+	public int getWidth() {
+		return mWidth;
+	}
+
+	/**
+	 * Returns the column type of an OSC type tag.
+	 * 
+	 * @param aTag
+	 *            the type tag.
+	 * @return the column type, or null if the tag is not numeric.
+	 */
+	public static OscColumnType fromTag(byte aTag) {
+		switch (aTag) {
+		case 'i':
+			return INT32;
+		case 'h':
+			return INT64;
+		case 'f':
+			return FLOAT;
+		case 'd':
+			return DOUBLE;
+		default:
+			return null;
+		}
+	}
+}
@@ -0,0 +1,217 @@
+package com.osc.capture;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writer of a column file, filling one block in memory at a time.
+ * <p>
+ * A writer can be suspended, to release its file and its block buffer: the
+ * current block is then written as is, and read back when the writer is
+ * reopened.
+ * </p>
+ */
+final class OscColumnWriter {
+
+	private final Path mFile;
+	private final OscColumnType mType;
+	private final int mBlockRows;
+	private final int mBlockSize;
+	/** Null while the writer is suspended. */
+	private FileChannel mChannel;
+	/** Null while the writer is suspended. */
+	private ByteBuffer mBlock;
+	private int mBlockCount = 0;
+	private long mRowCount = 0;
+	private int mRows = 0;
+	private double mMin;
+	private double mMax;
+
+	/**
+	 * Creates the column file, and opens the writer.
+	 *
+	 * @param aBlock
+	 *            the block buffer, of at least the column block size.
+	 */
+	OscColumnWriter(Path aFile, OscColumnType aType, int aBlockRows, ByteBuffer aBlock) throws IOException {
+		mFile = aFile;
+		mType = aType;
+		mBlockRows = aBlockRows;
+		mBlockSize = OscColumnFormat.getBlockSize(aBlockRows, aType);
+		mChannel = FileChannel.open(aFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE, StandardOpenOption.READ);
+		try {
+			writeHeader();
+		} catch (IOException e) {
+			mChannel.close();
+			throw e;
+		}
+		mBlock = aBlock;
+		clearBlock();
+	}
+
+	/**
+	 * Returns whether the writer holds its file and block buffer.
+	 */
+	boolean isOpen() {
+		return mChannel != null;
+	}
+
+	/**
+	 * Reopens a suspended writer, reading back its current block.
+	 *
+	 * @param aBlock
+	 *            the block buffer, of at least the column block size.
+	 */
+	void reopen(ByteBuffer aBlock) throws IOException {
+		FileChannel channel = FileChannel.open(mFile, StandardOpenOption.WRITE, StandardOpenOption.READ);
+		try {
+			aBlock.position(0).limit(mBlockSize);
+			if (mRows > 0) {
+				long position = getBlockPosition();
+				while (aBlock.hasRemaining()) {
+					int count = channel.read(aBlock, position);
+					if (count < 0)
+						throw new EOFException("column block cannot be read back: " + mFile);
+					position += count;
+				}
+			}
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		mChannel = channel;
+		mBlock = aBlock;
+		if (mRows == 0)
+			clearBlock();
+	}
+
+	/**
+	 * Writes the current block as is, and closes the file.
+	 *
+	 * @return the released block buffer.
+	 */
+	ByteBuffer suspend() throws IOException {
+		ByteBuffer block = mBlock;
+		try {
+			if (mRows > 0)
+				writeBlock();
+		} finally {
+			mChannel.close();
+			mChannel = null;
+			mBlock = null;
+		}
+		return block;
+	}
+
+	/**
+	 * Adds a row, with the value read at aPos in aBuffer.
+	 */
+	void add(long aTimestamp, ByteBuffer aBuffer, int aPos) throws IOException {
+		int valuesIdx = OscColumnFormat.BLOCK_HEADER_SIZE + mBlockRows * 8;
+		double value;
+		switch (mType) {
+		case INT32:
+			int intValue = aBuffer.getInt(aPos);
+			mBlock.putInt(valuesIdx + mRows * 4, intValue);
+			value = intValue;
+			break;
+		case INT64:
+			long longValue = aBuffer.getLong(aPos);
+			mBlock.putLong(valuesIdx + mRows * 8, longValue);
+			value = longValue;
+			break;
+		case FLOAT:
+			float floatValue = aBuffer.getFloat(aPos);
+			mBlock.putFloat(valuesIdx + mRows * 4, floatValue);
+			value = floatValue;
+			break;
+		default:
+			value = aBuffer.getDouble(aPos);
+			mBlock.putDouble(valuesIdx + mRows * 8, value);
+		}
+		mBlock.putLong(OscColumnFormat.BLOCK_HEADER_SIZE + mRows * 8, aTimestamp);
+		if (mRows == 0) {
+			mBlock.putLong(OscColumnFormat.FIRST_TIMESTAMP, aTimestamp);
+			mMin = value;
+			mMax = value;
+		} else {
+			mMin = Math.min(mMin, value);
+			mMax = Math.max(mMax, value);
+		}
+		mBlock.putLong(OscColumnFormat.LAST_TIMESTAMP, aTimestamp);
+		mRows++;
+		mRowCount++;
+		if (mRows == mBlockRows)
+			flushBlock();
+	}
+
+	private long getBlockPosition() {
+		return OscColumnFormat.HEADER_SIZE + (long) mBlockCount * mBlockSize;
+	}
+
+	/**
+	 * Writes the current block, complete or not, at its position.
+	 */
+	private void writeBlock() throws IOException {
+		mBlock.putDouble(OscColumnFormat.MIN, mMin);
+		mBlock.putDouble(OscColumnFormat.MAX, mMax);
+		mBlock.putInt(OscColumnFormat.COUNT, mRows);
+		mBlock.position(0).limit(mBlockSize);
+		long position = getBlockPosition();
+		while (mBlock.hasRemaining())
+			position += mChannel.write(mBlock, position);
+	}
+
+	/**
+	 * Writes the current block, and starts the next one.
+	 */
+	private void flushBlock() throws IOException {
+		writeBlock();
+		clearBlock();
+		mBlockCount++;
+		mRows = 0;
+	}
+
+	private void clearBlock() {
+		mBlock.position(0).limit(mBlockSize);
+		for (int i = 0; i < mBlockSize; i += 4)
+			mBlock.putInt(i, 0);
+	}
+
+	private void writeHeader() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(OscColumnFormat.HEADER_SIZE);
+		header.putLong(0, OscColumnFormat.MAGIC);
+		header.putInt(OscColumnFormat.TYPE, mType.getTag());
+		header.putInt(OscColumnFormat.BLOCK_ROWS, mBlockRows);
+		header.putLong(OscColumnFormat.ROW_COUNT, mRowCount);
+		header.putInt(OscColumnFormat.BLOCK_COUNT, mBlockCount);
+		long position = 0;
+		while (header.hasRemaining())
+			position += mChannel.write(header, position);
+	}
+
+	/**
+	 * Writes the last block and the final header. A suspended writer is
+	 * reopened without block buffer, as its last block is already written.
+	 */
+	void close() throws IOException {
+		if (mChannel == null)
+			mChannel = FileChannel.open(mFile, StandardOpenOption.WRITE);
+		try {
+			if (mRows > 0 && mBlock != null)
+				flushBlock();
+			else if (mRows > 0)
+				mBlockCount++;
+			writeHeader();
+		} finally {
+			mChannel.close();
+			mChannel = null;
+			mBlock = null;
+		}
+	}
+}
@@ -0,0 +1,679 @@
+package com.osc.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.osc.OscPacketValidator;
+import com.osc.OscReader;
+
+/**
+ * Streaming reader of the UDP datagrams of a pcap or pcapng file, as written
+ * by tcpdump or Wireshark.
+ * <p>
+ * The file is memory-mapped in windows, moved forward as the file is read,
+ * so that files larger than 2 GB can be read. Link-layer (Ethernet with VLAN
+ * tags, Linux cooked, BSD loopback, raw IP), IPv4, IPv6 and UDP headers are
+ * walked in place, and {@link #next()} stops on each UDP datagram matching
+ * the port filter. Its payload is then available as a view of the mapping,
+ * without copy, and can be decoded with {@link #read(OscPacketValidator)}.
+ * </p>
+ * <p>
+ * IP fragments are not reassembled: fragmented datagrams are skipped, as
+ * well as datagrams truncated by the capture snapshot length. Both are
+ * counted. Readers are not thread-safe.
+ * </p>
+ */
+public class OscPcapReader implements Closeable {
+
+	/** Maximum size of a mapped window. */
+	private static final int WINDOW_SIZE = 1 << 28;
+
+	/** pcap magic numbers, for microsecond and nanosecond timestamps. */
+	private static final int PCAP_MAGIC_MICROS = 0xa1b2c3d4;
+	private static final int PCAP_MAGIC_NANOS = 0xa1b23c4d;
+	private static final int PCAP_HEADER_SIZE = 24;
+	private static final int PCAP_RECORD_HEADER_SIZE = 16;
+
+	/** pcapng block types. */
+	private static final int PCAPNG_SECTION_HEADER = 0x0a0d0d0a;
+	private static final int PCAPNG_INTERFACE_DESCRIPTION = 1;
+	private static final int PCAPNG_SIMPLE_PACKET = 3;
+	private static final int PCAPNG_ENHANCED_PACKET = 6;
+	private static final int PCAPNG_BYTE_ORDER_MAGIC = 0x1a2b3c4d;
+	/** pcapng interface options. */
+	private static final int PCAPNG_OPTION_END = 0;
+	private static final int PCAPNG_OPTION_TSRESOL = 9;
+	private static final int PCAPNG_OPTION_TSOFFSET = 14;
+
+	/** Link-layer header types. */
+	private static final int LINKTYPE_NULL = 0;
+	private static final int LINKTYPE_ETHERNET = 1;
+	private static final int LINKTYPE_RAW = 101;
+	private static final int LINKTYPE_LOOP = 108;
+	private static final int LINKTYPE_LINUX_SLL = 113;
+	private static final int LINKTYPE_IPV4 = 228;
+	private static final int LINKTYPE_IPV6 = 229;
+	private static final int LINKTYPE_LINUX_SLL2 = 276;
+
+	/** Protocol numbers. */
+	private static final int ETHERTYPE_IPV4 = 0x0800;
+	private static final int ETHERTYPE_IPV6 = 0x86dd;
+	private static final int ETHERTYPE_VLAN = 0x8100;
+	private static final int ETHERTYPE_QINQ = 0x88a8;
+	private static final int IP_PROTOCOL_UDP = 17;
+	private static final int IPV6_HOP_BY_HOP = 0;
+	private static final int IPV6_ROUTING = 43;
+	private static final int IPV6_FRAGMENT = 44;
+	private static final int IPV6_DESTINATION = 60;
+	private static final int UDP_HEADER_SIZE = 8;
+
+	private final FileChannel mChannel;
+	private final long mFileSize;
+	private final boolean mNextGeneration;
+	private ByteOrder mOrder;
+	private int mPort = 0;
+
+	/** Current window, in the file byte order, and its file offset. */
+	private ByteBuffer mWindow;
+	private long mWindowStart;
+	/** Big-endian view of the current window, for the network headers. */
+	private ByteBuffer mNetwork;
+	/** Big-endian view of the current window, handed out for payloads. */
+	private ByteBuffer mView;
+	/** File offset of the next record. */
+	private long mNextOffset;
+
+	/** Interfaces of the current pcapng section, or the pcap file. */
+	private int[] mLinkTypes = new int[1];
+	private long[] mTimeUnits = new long[1];
+	private boolean[] mBinaryUnits = new boolean[1];
+	private long[] mTimeOffsets = new long[1];
+	private int mNumInterfaces = 0;
+
+	/** Current datagram. */
+	private long mTimestamp;
+	private int mPayloadStart;
+	private int mPayloadLength;
+	private int mAddressStart;
+	private int mAddressLength;
+	private int mSourcePort;
+	private int mDestinationPort;
+
+	/** Metrics. */
+	private long mFrameCount = 0;
+	private long mDatagramCount = 0;
+	private long mFragmentCount = 0;
+	private long mTruncatedCount = 0;
+
+	/**
+	 * Build a new OscPcapReader, and reads the file header.
+	 *
+	 * @param aFile
+	 *            the pcap or pcapng file.
+	 * @throws IOException
+	 *             if the file cannot be read, or is neither a pcap nor a
+	 *             pcapng file.
+	 */
+	public OscPcapReader(Path aFile) throws IOException {
+		mChannel = FileChannel.open(aFile, StandardOpenOption.READ);
+		try {
+			mFileSize = mChannel.size();
+			map(0);
+			if (mFileSize < PCAP_HEADER_SIZE)
+				throw new IOException("not a pcap file");
+			int magic = mWindow.getInt(0);
+			if (magic == PCAPNG_SECTION_HEADER) {
+				mNextGeneration = true;
+				mNextOffset = 0;
+			} else {
+				mNextGeneration = false;
+				if (magic == Integer.reverseBytes(PCAP_MAGIC_MICROS) || magic == Integer.reverseBytes(PCAP_MAGIC_NANOS)) {
+					setOrder(ByteOrder.LITTLE_ENDIAN);
+					magic = Integer.reverseBytes(magic);
+				}
+				if (magic != PCAP_MAGIC_MICROS && magic != PCAP_MAGIC_NANOS)
+					throw new IOException("not a pcap file");
+				addInterface(mWindow.getInt(20) & 0xffff, magic == PCAP_MAGIC_NANOS ? 1 : 1000, false, 0);
+				mNextOffset = PCAP_HEADER_SIZE;
+			}
+		} catch (IOException e) {
+			mChannel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Sets the UDP port filter.
+	 *
+	 * @param aPort
+	 *            the port to match as source or destination port, or 0 to read
+	 *            all UDP datagrams.
+	 * @return this reader.
+	 */
+	public OscPcapReader setPort(int aPort) {
+		mPort = aPort;
+		return this;
+	}
+
+	/**
+	 * Maps the window starting at a file offset.
+	 */
+	private void map(long aOffset) throws IOException {
+		long size = Math.min(WINDOW_SIZE, mFileSize - aOffset);
+		mWindowStart = aOffset;
+		mWindow = mChannel.map(FileChannel.MapMode.READ_ONLY, aOffset, size);
+		mNetwork = mWindow.asReadOnlyBuffer();
+		mView = mWindow.asReadOnlyBuffer();
+		mWindow.order(mOrder == null ? ByteOrder.BIG_ENDIAN : mOrder);
+	}
+
+	/**
+	 * Sets the byte order of the file headers.
+	 */
+	private void setOrder(ByteOrder aOrder) {
+		mOrder = aOrder;
+		mWindow.order(aOrder);
+	}
+
+	/**
+	 * Makes sure that a file range is in the current window, and returns its
+	 * position in the window.
+	 *
+	 * @return the position, or -1 if the range is beyond the end of the file.
+	 */
+	private int ensure(long aOffset, int aLength) throws IOException {
+		if (aOffset + aLength > mFileSize)
+			return -1;
+		if (aOffset < mWindowStart || aOffset + aLength > mWindowStart + mWindow.capacity()) {
+			if (aLength > WINDOW_SIZE)
+				throw new IOException("pcap record larger than the mapping window");
+			map(aOffset);
+		}
+		return (int) (aOffset - mWindowStart);
+	}
+
+	/**
+	 * Adds an interface to the current section.
+	 */
+	private void addInterface(int aLinkType, long aTimeUnit, boolean aBinary, long aTimeOffset) {
+		if (mNumInterfaces == mLinkTypes.length) {
+			int length = mNumInterfaces * 2;
+			int[] linkTypes = new int[length];
+			long[] units = new long[length];
+			boolean[] binaries = new boolean[length];
+			long[] offsets = new long[length];
+			System.arraycopy(mLinkTypes, 0, linkTypes, 0, mNumInterfaces);
+			System.arraycopy(mTimeUnits, 0, units, 0, mNumInterfaces);
+			System.arraycopy(mBinaryUnits, 0, binaries, 0, mNumInterfaces);
+			System.arraycopy(mTimeOffsets, 0, offsets, 0, mNumInterfaces);
+			mLinkTypes = linkTypes;
+			mTimeUnits = units;
+			mBinaryUnits = binaries;
+			mTimeOffsets = offsets;
+		}
+		mLinkTypes[mNumInterfaces] = aLinkType;
+		mTimeUnits[mNumInterfaces] = aTimeUnit;
+		mBinaryUnits[mNumInterfaces] = aBinary;
+		mTimeOffsets[mNumInterfaces] = aTimeOffset;
+		mNumInterfaces++;
+	}
+
+	/**
+	 * Moves to the next UDP datagram matching the port filter.
+	 *
+	 * @return true if there is a datagram, false at the end of the file.
+	 * @throws IOException
+	 *             if the file cannot be read, or is corrupted.
+	 */
+	public boolean next() throws IOException {
+		return mNextGeneration ? nextBlock() : nextRecord();
+	}
+
+	/**
+	 * Moves to the next matching datagram of a pcap file.
+	 */
+	private boolean nextRecord() throws IOException {
+		while (true) {
+			int pos = ensure(mNextOffset, PCAP_RECORD_HEADER_SIZE);
+			if (pos < 0)
+				return false;
+			long seconds = mWindow.getInt(pos) & 0xffffffffL;
+			long fraction = mWindow.getInt(pos + 4) & 0xffffffffL;
+			int captured = mWindow.getInt(pos + 8);
+			if (captured < 0)
+				throw new IOException("bad pcap record length");
+			long offset = mNextOffset + PCAP_RECORD_HEADER_SIZE;
+			pos = ensure(offset, captured);
+			if (pos < 0)
+				return false;
+			mNextOffset = offset + captured;
+			if (frame(0, pos, captured)) {
+				mTimestamp = seconds * 1000000000L + fraction * mTimeUnits[0];
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Moves to the next matching datagram of a pcapng file.
+	 */
+	private boolean nextBlock() throws IOException {
+		while (true) {
+			int pos = ensure(mNextOffset, 8);
+			if (pos < 0)
+				return false;
+			int type = mWindow.getInt(pos);
+			if (type == PCAPNG_SECTION_HEADER) {
+				pos = ensure(mNextOffset, 12);
+				if (pos < 0)
+					return false;
+				int order = mWindow.getInt(pos + 8);
+				if (order == Integer.reverseBytes(PCAPNG_BYTE_ORDER_MAGIC))
+					setOrder(mWindow.order() == ByteOrder.BIG_ENDIAN ? ByteOrder.LITTLE_ENDIAN
+							: ByteOrder.BIG_ENDIAN);
+				else if (order != PCAPNG_BYTE_ORDER_MAGIC)
+					throw new IOException("bad pcapng byte order magic");
+				mNumInterfaces = 0;
+			}
+			int length = mWindow.getInt(pos + 4);
+			if (length < 12 || (length & 0x03) != 0)
+				throw new IOException("bad pcapng block length");
+			long offset = mNextOffset;
+			pos = ensure(offset, length);
+			if (pos < 0)
+				return false;
+			mNextOffset = offset + length;
+			switch (type) {
+			case PCAPNG_INTERFACE_DESCRIPTION:
+				interfaceBlock(pos, length);
+				break;
+			case PCAPNG_ENHANCED_PACKET: {
+				int iface = mWindow.getInt(pos + 8);
+				int captured = mWindow.getInt(pos + 20);
+				if (iface < 0 || iface >= mNumInterfaces || captured < 0 || captured > length - 32)
+					throw new IOException("bad pcapng packet block");
+				if (frame(iface, pos + 28, captured)) {
+					long time = ((mWindow.getInt(pos + 12) & 0xffffffffL) << 32) | (mWindow.getInt(pos + 16) & 0xffffffffL);
+					mTimestamp = toNanos(iface, time);
+					return true;
+				}
+				break;
+			}
+			case PCAPNG_SIMPLE_PACKET: {
+				if (mNumInterfaces == 0)
+					throw new IOException("bad pcapng packet block");
+				int captured = Math.min(mWindow.getInt(pos + 8), length - 16);
+				if (frame(0, pos + 12, captured)) {
+					mTimestamp = 0;
+					return true;
+				}
+				break;
+			}
+			default:
+				// Statistics, name resolution, custom blocks...
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Reads a pcapng interface description block.
+	 */
+	private void interfaceBlock(int aPos, int aLength) {
+		int linkType = mWindow.getShort(aPos + 8) & 0xffff;
+		// Default resolution is the microsecond
+		long unit = 6;
+		boolean binary = false;
+		long offset = 0;
+		int pos = aPos + 16;
+		int end = aPos + aLength - 4;
+		while (pos + 4 <= end) {
+			int code = mWindow.getShort(pos) & 0xffff;
+			int size = mWindow.getShort(pos + 2) & 0xffff;
+			if (code == PCAPNG_OPTION_END || pos + 4 + size > end)
+				break;
+			if (code == PCAPNG_OPTION_TSRESOL && size >= 1) {
+				int resolution = mWindow.get(pos + 4);
+				binary = (resolution & 0x80) != 0;
+				unit = resolution & 0x7f;
+			} else if (code == PCAPNG_OPTION_TSOFFSET && size >= 8) {
+				offset = mWindow.getLong(pos + 4);
+			}
+			pos += 4 + ((size + 3) & ~0x03);
+		}
+		if (!binary) {
+			// Convert the decimal exponent to a multiplier, or a divisor
+			// stored negated
+			int exponent = (int) unit;
+			unit = 1;
+			for (int i = 0; i < Math.abs(9 - exponent); i++)
+				unit *= 10;
+			if (exponent > 9)
+				unit = -unit;
+		}
+		addInterface(linkType, unit, binary, offset);
+	}
+
+	/**
+	 * Converts a pcapng timestamp to nanoseconds since the epoch.
+	 */
+	private long toNanos(int aInterface, long aTime) {
+		long offset = mTimeOffsets[aInterface] * 1000000000L;
+		long unit = mTimeUnits[aInterface];
+		if (mBinaryUnits[aInterface]) {
+			int shift = (int) unit;
+			long seconds = aTime >>> shift;
+			long fraction = aTime & ((1L << shift) - 1);
+			return offset + seconds * 1000000000L + (long) (fraction * 1e9 / (1L << shift));
+		}
+		return offset + (unit >= 0 ? aTime * unit : aTime / -unit);
+	}
+
+	/**
+	 * Walks the headers of a captured frame.
+	 *
+	 * @return true if the frame holds a UDP datagram matching the port filter.
+	 */
+	private boolean frame(int aInterface, int aPos, int aLength) {
+		mFrameCount++;
+		int end = aPos + aLength;
+		int pos = aPos;
+		int protocol;
+		switch (mLinkTypes[aInterface]) {
+		case LINKTYPE_ETHERNET:
+			if (aLength < 14)
+				return false;
+			protocol = mNetwork.getShort(pos + 12) & 0xffff;
+			pos += 14;
+			while ((protocol == ETHERTYPE_VLAN || protocol == ETHERTYPE_QINQ) && pos + 4 <= end) {
+				protocol = mNetwork.getShort(pos + 2) & 0xffff;
+				pos += 4;
+			}
+			break;
+		case LINKTYPE_LINUX_SLL:
+			if (aLength < 16)
+				return false;
+			protocol = mNetwork.getShort(pos + 14) & 0xffff;
+			pos += 16;
+			break;
+		case LINKTYPE_LINUX_SLL2:
+			if (aLength < 20)
+				return false;
+			protocol = mNetwork.getShort(pos) & 0xffff;
+			pos += 20;
+			break;
+		case LINKTYPE_NULL:
+		case LINKTYPE_LOOP:
+			// Address family, of the capturing host: the IP version is read
+			// from the IP header instead
+			pos += 4;
+			protocol = getIpVersion(pos, end);
+			break;
+		case LINKTYPE_RAW:
+		case LINKTYPE_IPV4:
+		case LINKTYPE_IPV6:
+			protocol = getIpVersion(pos, end);
+			break;
+		default:
+			return false;
+		}
+		if (protocol == ETHERTYPE_IPV4)
+			return ipv4(pos, end);
+		if (protocol == ETHERTYPE_IPV6)
+			return ipv6(pos, end);
+		return false;
+	}
+
+	/**
+	 * Returns the ethertype matching the version of an IP header.
+	 */
+	private int getIpVersion(int aPos, int aEnd) {
+		if (aPos >= aEnd)
+			return 0;
+		int version = (mNetwork.get(aPos) >> 4) & 0x0f;
+		return version == 4 ? ETHERTYPE_IPV4 : version == 6 ? ETHERTYPE_IPV6 : 0;
+	}
+
+	/**
+	 * Walks an IPv4 header.
+	 */
+	private boolean ipv4(int aPos, int aEnd) {
+		if (aEnd - aPos < 20)
+			return false;
+		int headerLength = (mNetwork.get(aPos) & 0x0f) * 4;
+		if (mNetwork.get(aPos + 9) != IP_PROTOCOL_UDP || headerLength < 20)
+			return false;
+		if ((mNetwork.getShort(aPos + 6) & 0x3fff) != 0) {
+			// More fragments flag, or fragment offset
+			mFragmentCount++;
+			return false;
+		}
+		int totalLength = mNetwork.getShort(aPos + 2) & 0xffff;
+		// A null total length is written by segmentation offload
+		int end = totalLength == 0 ? aEnd : Math.min(aEnd, aPos + totalLength);
+		mAddressStart = aPos + 12;
+		mAddressLength = 4;
+		return udp(aPos + headerLength, end);
+	}
+
+	/**
+	 * Walks an IPv6 header, and its extension headers.
+	 */
+	private boolean ipv6(int aPos, int aEnd) {
+		if (aEnd - aPos < 40)
+			return false;
+		int next = mNetwork.get(aPos + 6) & 0xff;
+		int end = Math.min(aEnd, aPos + 40 + (mNetwork.getShort(aPos + 4) & 0xffff));
+		int pos = aPos + 40;
+		while (next == IPV6_HOP_BY_HOP || next == IPV6_ROUTING || next == IPV6_DESTINATION || next == IPV6_FRAGMENT) {
+			if (end - pos < 8)
+				return false;
+			if (next == IPV6_FRAGMENT) {
+				mFragmentCount++;
+				return false;
+			}
+			next = mNetwork.get(pos) & 0xff;
+			pos += ((mNetwork.get(pos + 1) & 0xff) + 1) * 8;
+		}
+		if (next != IP_PROTOCOL_UDP)
+			return false;
+		mAddressStart = aPos + 8;
+		mAddressLength = 16;
+		return udp(pos, end);
+	}
+
+	/**
+	 * Walks a UDP header, and applies the port filter.
+	 */
+	private boolean udp(int aPos, int aEnd) {
+		if (aEnd - aPos < UDP_HEADER_SIZE)
+			return false;
+		int sourcePort = mNetwork.getShort(aPos) & 0xffff;
+		int destinationPort = mNetwork.getShort(aPos + 2) & 0xffff;
+		if (mPort != 0 && sourcePort != mPort && destinationPort != mPort)
+			return false;
+		int length = (mNetwork.getShort(aPos + 4) & 0xffff) - UDP_HEADER_SIZE;
+		if (length < 0 || length > aEnd - aPos - UDP_HEADER_SIZE) {
+			mTruncatedCount++;
+			return false;
+		}
+		mSourcePort = sourcePort;
+		mDestinationPort = destinationPort;
+		mPayloadStart = aPos + UDP_HEADER_SIZE;
+		mPayloadLength = length;
+		mDatagramCount++;
+		return true;
+	}
+
+	/**
+	 * Returns the capture timestamp of the current datagram.
+	 *
+	 * @return the timestamp, in nanoseconds since the epoch, or 0 if the
+	 *         capture did not record it.
+	 */
+	public long getTimestamp() {
+		return mTimestamp;
+	}
+
+	/**
+	 * Returns the UDP payload of the current datagram. The view is owned by
+	 * the reader, and reused for the next datagrams.
+	 *
+	 * @return a read-only buffer on the mapped file, with position and limit
+	 *         set around the payload.
+	 */
+	public ByteBuffer getPacket() {
+		mView.clear();
+		mView.position(mPayloadStart);
+		mView.limit(mPayloadStart + mPayloadLength);
+		return mView;
+	}
+
+	/**
+	 * Returns the UDP payload length of the current datagram.
+	 *
+	 * @return the number of bytes of the payload.
+	 */
+	public int getPacketLength() {
+		return mPayloadLength;
+	}
+
+	/**
+	 * Decodes the payload of the current datagram in place.
+	 *
+	 * @param aValidator
+	 *            the validator to use, that holds the error on return.
+	 * @return the reader on the decoded packet, or null if the payload is not
+	 *         a valid OSC packet.
+	 * @see OscReader#decode(ByteBuffer, OscPacketValidator)
+	 */
+	public OscReader read(OscPacketValidator aValidator) {
+		return OscReader.decode(getPacket(), aValidator);
+	}
+
+	/**
+	 * Returns the source address of the current datagram.
+	 *
+	 * @return the source IP address and UDP port.
+	 */
+	public InetSocketAddress getSource() {
+		return getAddress(0, mSourcePort);
+	}
+
+	/**
+	 * Returns the destination address of the current datagram.
+	 *
+	 * @return the destination IP address and UDP port.
+	 */
+	public InetSocketAddress getDestination() {
+		return getAddress(mAddressLength, mDestinationPort);
+	}
+
+	/**
+	 * Builds an address from the IP header of the current datagram.
+	 */
+	private InetSocketAddress getAddress(int aOffset, int aPort) {
+		byte[] address = new byte[mAddressLength];
+		for (int i = 0; i < address.length; i++)
+			address[i] = mNetwork.get(mAddressStart + aOffset + i);
+		try {
+			return new InetSocketAddress(InetAddress.getByAddress(address), aPort);
+		} catch (UnknownHostException e) {
+			throw new IllegalStateException("bad address length", e);
+		}
+	}
+
+	/**
+	 * Returns the source UDP port of the current datagram.
+	 *
+	 * @return the port.
+	 */
+	public int getSourcePort() {
+		return mSourcePort;
+	}
+
+	/**
+	 * Returns the destination UDP port of the current datagram.
+	 *
+	 * @return the port.
+	 */
+	public int getDestinationPort() {
+		return mDestinationPort;
+	}
+
+	/**
+	 * Copies the remaining matching datagrams to a capture, to be replayed or
+	 * analyzed.
+	 *
+	 * @param aWriter
+	 *            the capture writer.
+	 * @return the number of copied datagrams.
+	 * @throws IOException
+	 *             if the file cannot be read, or the capture written.
+	 */
+	public long copyTo(OscCaptureWriter aWriter) throws IOException {
+		long count = 0;
+		while (next()) {
+			aWriter.append(mTimestamp, getSource(), getPacket());
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of frames read.
+	 *
+	 * @return the frames count.
+	 */
+	public long getFrameCount() {
+		return mFrameCount;
+	}
+
+	/**
+	 * Returns the number of datagrams matching the port filter.
+	 *
+	 * @return the datagrams count.
+	 */
+	public long getDatagramCount() {
+		return mDatagramCount;
+	}
+
+	/**
+	 * Returns the number of IP fragments skipped.
+	 *
+	 * @return the fragments count.
+	 */
+	public long getFragmentCount() {
+		return mFragmentCount;
+	}
+
+	/**
+	 * Returns the number of datagrams skipped because they were truncated by
+	 * the capture snapshot length.
+	 *
+	 * @return the truncated datagrams count.
+	 */
+	public long getTruncatedCount() {
+		return mTruncatedCount;
+	}
+
+	/**
+	 * Closes the file. The views returned by {@link #getPacket()} stay
+	 * readable until they are garbage collected.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		mChannel.close();
+	}
+}
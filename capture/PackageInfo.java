@@ -0,0 +1,7 @@
+/**
+ * OSC capture classes
+ * 
+ * Package com.osc.capture embed the classes to record
+ * received OSC packets to files and read them back.
+ */
+package com.osc.capture;
@@ -0,0 +1,149 @@
+package com.osc.dispatch;
+
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.osc.OscMessage;
+import com.osc.exception.OscBadDataTypeRequestException;
+
+/**
+ * Latest-value queue of OSC messages, conflated by address pattern.
+ * <p>
+ * A message offered for an address that still has a message waiting in the
+ * queue replaces it in place, so that slow consumers only get the latest
+ * value of each address. Messages of distinct addresses are polled in the
+ * order their address became pending. The queue size is thus bounded by the
+ * number of distinct addresses.
+ * </p>
+ * <p>
+ * The queue is lock-free, and supports several producers and consumers.
+ * Queued messages are kept past the receive call: if receive buffers are
+ * recycled, offer detached messages (see {@link OscMessage#detach()}).
+ * </p>
+ */
+public class OscConflatingQueue {
+
+	/** Latest pending message of an address. */
+	private final ConcurrentHashMap<String, AtomicReference<OscMessage>> mSlots = new ConcurrentHashMap<String, AtomicReference<OscMessage>>();
+	/** Slots in the order their address became pending. */
+	private final Queue<AtomicReference<OscMessage>> mPending = new ConcurrentLinkedQueue<AtomicReference<OscMessage>>();
+	private final AtomicInteger mSize = new AtomicInteger();
+
+	private final LongAdder mOfferedCount = new LongAdder();
+	private final LongAdder mConflatedCount = new LongAdder();
+
+	/**
+	 * Offers a message to the queue. If a message with the same address is
+	 * pending, it is replaced.
+	 * 
+	 * @param aMessage
+	 *            the message to queue.
+	 * @return true if a pending message was replaced.
+	 * @throws OscBadDataTypeRequestException
+	 *             if the message address cannot be read.
+	 */
+	public boolean offer(OscMessage aMessage) throws OscBadDataTypeRequestException {
+		String address = aMessage.getValue(0).getAddress();
+		AtomicReference<OscMessage> slot = mSlots.get(address);
+		if (slot == null) {
+			AtomicReference<OscMessage> newSlot = new AtomicReference<OscMessage>();
+			slot = mSlots.putIfAbsent(address, newSlot);
+			if (slot == null)
+				slot = newSlot;
+		}
+		mOfferedCount.increment();
+		if (slot.getAndSet(aMessage) != null) {
+			mConflatedCount.increment();
+			return true;
+		}
+		// The address was not pending, the slot is queued once
+		mSize.incrementAndGet();
+		mPending.offer(slot);
+		return false;
+	}
+
+	/**
+	 * Retrieves and removes the oldest pending address latest message.
+	 * 
+	 * @return the message, or null if the queue is empty.
+	 */
+	public OscMessage poll() {
+		AtomicReference<OscMessage> slot = mPending.poll();
+		if (slot == null)
+			return null;
+		mSize.decrementAndGet();
+		return slot.getAndSet(null);
+	}
+
+	/**
+	 * Removes at most aMax pending messages, and adds them to the passed
+	 * collection.
+	 * 
+	 * @param aDst
+	 *            the collection where to add the messages.
+	 * @param aMax
+	 *            the maximum number of messages to remove.
+	 * @return the number of messages added.
+	 */
+	public int drainTo(Collection<? super OscMessage> aDst, int aMax) {
+		int count = 0;
+		OscMessage message;
+		while (count < aMax && (message = poll()) != null) {
+			aDst.add(message);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of pending addresses.
+	 * 
+	 * @return the queue size.
+	 */
+	public int size() {
+		return mSize.get();
+	}
+
+	/**
+	 * Returns the number of distinct addresses offered so far.
+	 * 
+	 * @return the number of known addresses.
+	 */
+	public int getNumAddresses() {
+		return mSlots.size();
+	}
+
+	/**
+	 * Returns the number of messages offered to the queue.
+	 * 
+	 * @return the offered messages count.
+	 */
+	public long getOfferedCount() {
+		return mOfferedCount.sum();
+	}
+
+	/**
+	 * Returns the number of messages replaced by a newer message before being
+	 * polled.
+	 * 
+	 * @return the conflated messages count.
+	 */
+	public long getConflatedCount() {
+		return mConflatedCount.sum();
+	}
+
+	/**
+	 * Returns the ratio of offered messages that were conflated.
+	 * 
+	 * @return a value between 0 (no conflation) and 1.
+	 */
+	public double getConflationRatio() {
+		long offered = mOfferedCount.sum();
+		return offered == 0 ? 0 : (double) mConflatedCount.sum() / offered;
+	}
+}
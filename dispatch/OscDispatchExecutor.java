@@ -0,0 +1,218 @@
+package com.osc.dispatch;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.osc.OscMessage;
+import com.osc.OscOverflowPolicy;
+import com.osc.exception.OscBadDataTypeRequestException;
+
+/**
+ * Executor handing OSC messages over to a handler, inline or on lane threads.
+ * <p>
+ * In {@link OscDispatchMode#STRIPED} mode, the messages are assigned to a
+ * lane by a hash of their address: the messages of an address are handled in
+ * the order they were dispatched, while distinct addresses are handled in
+ * parallel. In {@link OscDispatchMode#PARALLEL} mode, the messages are spread
+ * over the lanes in turn, without any ordering. In
+ * {@link OscDispatchMode#INLINE} mode, the handler is called by the
+ * dispatching thread.
+ * </p>
+ * <p>
+ * With an {@link OscPriorityScheme}, each lane holds a queue per priority
+ * class, so that critical messages are not queued behind bulk traffic. The
+ * time messages wait in the lanes is recorded in a latency histogram per
+ * class.
+ * </p>
+ * <p>
+ * Queued messages are kept past the receive call: if receive buffers are
+ * recycled, dispatch detached messages (see {@link OscMessage#detach()}).
+ * </p>
+ */
+public class OscDispatchExecutor {
+
+	private final OscMessageHandler mHandler;
+	private final OscDispatchMode mMode;
+	private final OscPriorityScheme mScheme;
+	private final OscLatencyHistogram[] mHistograms;
+	private final OscDispatchLane[] mLanes;
+	private final AtomicInteger mNextLane = new AtomicInteger();
+
+	/**
+	 * Build a new inline OscDispatchExecutor.
+	 * 
+	 * @param aHandler
+	 *            the handler of the messages.
+	 */
+	public OscDispatchExecutor(OscMessageHandler aHandler) {
+		this(aHandler, OscDispatchMode.INLINE, 0, 0, OscOverflowPolicy.BLOCK);
+	}
+
+	/**
+	 * Build a new OscDispatchExecutor, and starts its lane threads.
+	 * 
+	 * @param aHandler
+	 *            the handler of the messages. It is called concurrently by
+	 *            the lane threads.
+	 * @param aMode
+	 *            the execution mode.
+	 * @param aNumLanes
+	 *            the number of lanes, ignored in INLINE mode.
+	 * @param aLaneCapacity
+	 *            the maximum number of messages queued in a lane.
+	 * @param aPolicy
+	 *            the policy to apply when a lane is full.
+	 */
+	public OscDispatchExecutor(OscMessageHandler aHandler, OscDispatchMode aMode, int aNumLanes, int aLaneCapacity,
+			OscOverflowPolicy aPolicy) {
+		this(aHandler, aMode, aNumLanes, aLaneCapacity, aPolicy, new OscPriorityScheme(1, 0, TimeUnit.NANOSECONDS));
+	}
+
+	/**
+	 * Build a new OscDispatchExecutor with priority classes, and starts its
+	 * lane threads.
+	 * 
+	 * @param aHandler
+	 *            the handler of the messages. It is called concurrently by
+	 *            the lane threads.
+	 * @param aMode
+	 *            the execution mode.
+	 * @param aNumLanes
+	 *            the number of lanes, ignored in INLINE mode.
+	 * @param aLaneCapacity
+	 *            the maximum number of messages of each class queued in a
+	 *            lane.
+	 * @param aPolicy
+	 *            the policy to apply when a lane class queue is full.
+	 * @param aScheme
+	 *            the assignment of messages to priority classes.
+	 */
+	public OscDispatchExecutor(OscMessageHandler aHandler, OscDispatchMode aMode, int aNumLanes, int aLaneCapacity,
+			OscOverflowPolicy aPolicy, OscPriorityScheme aScheme) {
+		mHandler = aHandler;
+		mMode = aMode;
+		mScheme = aScheme;
+		mHistograms = new OscLatencyHistogram[aScheme.getNumClasses()];
+		for (int i = 0; i < mHistograms.length; i++)
+			mHistograms[i] = new OscLatencyHistogram();
+		if (aMode == OscDispatchMode.INLINE) {
+			mLanes = new OscDispatchLane[0];
+		} else {
+			if (aNumLanes <= 0 || aLaneCapacity <= 0)
+				throw new IllegalArgumentException("Lanes count and capacity must be positive");
+			mLanes = new OscDispatchLane[aNumLanes];
+			for (int i = 0; i < aNumLanes; i++)
+				mLanes[i] = new OscDispatchLane(aHandler, aLaneCapacity, aPolicy, aScheme.getAgingDelay(), mHistograms,
+						"osc-dispatch-" + i);
+		}
+	}
+
+	/**
+	 * Dispatches a message according to the execution mode.
+	 * 
+	 * @param aMessage
+	 *            the message to handle.
+	 * @return true if the message has been handled or queued, false if it was
+	 *         dropped by the overflow policy.
+	 * @throws OscBadDataTypeRequestException
+	 *             if the message address cannot be read in STRIPED mode.
+	 * @throws InterruptedException
+	 *             if interrupted while waiting with the BLOCK policy.
+	 */
+	public boolean dispatch(OscMessage aMessage) throws OscBadDataTypeRequestException, InterruptedException {
+		switch (mMode) {
+		case INLINE:
+			mHandler.handle(aMessage);
+			return true;
+		case PARALLEL:
+			return mLanes[(mNextLane.getAndIncrement() & 0x7FFFFFFF) % mLanes.length].offer(aMessage,
+					mScheme.getClass(aMessage));
+		default:
+			return mLanes[getLaneIndex(aMessage.getValue(0).getAddress())].offer(aMessage,
+					mScheme.getClass(aMessage));
+		}
+	}
+
+	/**
+	 * Returns the index of the lane handling an address in STRIPED mode.
+	 * 
+	 * @param aAddress
+	 *            the address pattern.
+	 * @return the lane index.
+	 */
+	public int getLaneIndex(String aAddress) {
+		int hash = aAddress.hashCode();
+		hash ^= hash >>> 16;
+		return (hash & 0x7FFFFFFF) % mLanes.length;
+	}
+
+	/**
+	 * Stops the lane threads. The messages still queued are discarded.
+	 */
+	public void close() {
+		for (OscDispatchLane lane : mLanes)
+			lane.close();
+	}
+
+	/**
+	 * Returns the execution mode.
+	 * 
+	 * @return the mode.
+	 */
+	public OscDispatchMode getMode() {
+		return mMode;
+	}
+
+	/**
+	 * Returns the assignment of messages to priority classes.
+	 * 
+	 * @return the priority scheme.
+	 */
+	public OscPriorityScheme getPriorityScheme() {
+		return mScheme;
+	}
+
+	/**
+	 * Returns the histogram of the time the messages of a class waited in the
+	 * lanes. It stays empty in INLINE mode.
+	 * 
+	 * @param aClass
+	 *            the priority class.
+	 * @return the latency histogram.
+	 */
+	public OscLatencyHistogram getLatencyHistogram(int aClass) {
+		return mHistograms[aClass];
+	}
+
+	/**
+	 * Returns the number of lanes.
+	 * 
+	 * @return the lanes count, 0 in INLINE mode.
+	 */
+	public int getNumLanes() {
+		return mLanes.length;
+	}
+
+	/**
+	 * Returns a lane, to read its metrics.
+	 * 
+	 * @param aIndex
+	 *            the lane index.
+	 * @return the lane.
+	 */
+	public OscDispatchLane getLane(int aIndex) {
+		return mLanes[aIndex];
+	}
+
+	/**
+	 * Returns the number of messages waiting in all lanes.
+	 * 
+	 * @return the total queue depth.
+	 */
+	public int getQueueDepth() {
+		int depth = 0;
+		for (OscDispatchLane lane : mLanes)
+			depth += lane.getQueueDepth();
+		return depth;
+	}
+}
@@ -0,0 +1,378 @@
+package com.osc.dispatch;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.osc.OscMessage;
+import com.osc.OscOverflowPolicy;
+
+/**
+ * Bounded queues of messages, one per priority class, handled by a dedicated
+ * thread.
+ * <p>
+ * Lanes are created by {@link OscDispatchExecutor}. The queues are lock-free:
+ * several threads can dispatch to a lane, the lane thread being its only
+ * consumer, and it parks when the lane is empty. Messages of a class are
+ * handled in order; classes are served as described by
+ * {@link OscPriorityScheme}. Lanes expose queue depths, handled, dropped and
+ * failed message counts, and the lag between the dispatch and the handling
+ * of messages.
+ * </p>
+ */
+public class OscDispatchLane {
+
+	/** Time a blocked producer waits before checking room again. */
+	private static final long BLOCK_WAIT = TimeUnit.MICROSECONDS.toNanos(50);
+
+	/** Queued message, with its dispatch time. */
+	private static class Entry {
+		final OscMessage mMessage;
+		final long mTime;
+
+		Entry(OscMessage aMessage) {
+			mMessage = aMessage;
+			mTime = System.nanoTime();
+		}
+	}
+
+	/** Queue of a priority class. */
+	private static class ClassQueue {
+		final Queue<Entry> mQueue = new ConcurrentLinkedQueue<Entry>();
+		final AtomicInteger mSize = new AtomicInteger();
+		final AtomicLong mDroppedCount = new AtomicLong();
+		final OscLatencyHistogram mHistogram;
+
+		ClassQueue(OscLatencyHistogram aHistogram) {
+			mHistogram = aHistogram;
+		}
+	}
+
+	private final OscMessageHandler mHandler;
+	private final OscOverflowPolicy mPolicy;
+	private final int mCapacity;
+	private final long mAgingDelay;
+	private final ClassQueue[] mClasses;
+	private final Thread mThread;
+	private volatile boolean mRunning = true;
+	private volatile boolean mWaiting = false;
+
+	/** Metrics written by the lane thread only. */
+	private volatile long mHandledCount = 0;
+	private volatile long mFailedCount = 0;
+	private volatile long mLastLag = 0;
+	private volatile long mMaxLag = 0;
+	private volatile RuntimeException mLastFailure = null;
+	/** Whether the last served message was promoted by aging. */
+	private boolean mAgedServed = false;
+
+	/** Metrics written by producers. */
+	private final AtomicInteger mMaxDepth = new AtomicInteger();
+
+	/**
+	 * Build a new OscDispatchLane, and starts its thread.
+	 * 
+	 * @param aHandler
+	 *            the handler of the messages.
+	 * @param aCapacity
+	 *            the maximum number of queued messages of each class.
+	 * @param aPolicy
+	 *            the policy to apply when a class queue is full.
+	 * @param aAgingDelay
+	 *            the delay in nanoseconds between two consecutive classes.
+	 * @param aHistograms
+	 *            the latency histograms of the classes, written by the lane
+	 *            thread.
+	 * @param aName
+	 *            the name of the lane thread.
+	 */
+	OscDispatchLane(OscMessageHandler aHandler, int aCapacity, OscOverflowPolicy aPolicy, long aAgingDelay,
+			OscLatencyHistogram[] aHistograms, String aName) {
+		mHandler = aHandler;
+		mCapacity = aCapacity;
+		mPolicy = aPolicy;
+		mAgingDelay = aAgingDelay;
+		mClasses = new ClassQueue[aHistograms.length];
+		for (int i = 0; i < mClasses.length; i++)
+			mClasses[i] = new ClassQueue(aHistograms[i]);
+		mThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain();
+			}
+		}, aName);
+		mThread.setDaemon(true);
+		mThread.start();
+	}
+
+	/**
+	 * Enqueues a message, applying the overflow policy if the queue of its
+	 * class is full.
+	 * 
+	 * @param aMessage
+	 *            the message to handle.
+	 * @param aClass
+	 *            the priority class of the message.
+	 * @return true if the message has been queued, false if it was dropped.
+	 * @throws InterruptedException
+	 *             if interrupted while waiting with the BLOCK policy.
+	 */
+	boolean offer(OscMessage aMessage, int aClass) throws InterruptedException {
+		ClassQueue queue = mClasses[aClass];
+		Entry entry = new Entry(aMessage);
+		int size;
+		while ((size = queue.mSize.incrementAndGet()) > mCapacity) {
+			queue.mSize.decrementAndGet();
+			switch (mPolicy) {
+			case BLOCK:
+				LockSupport.parkNanos(this, BLOCK_WAIT);
+				if (Thread.interrupted())
+					throw new InterruptedException();
+				break;
+			case DROP_OLDEST:
+				if (queue.mQueue.poll() != null) {
+					queue.mSize.decrementAndGet();
+					queue.mDroppedCount.incrementAndGet();
+				}
+				break;
+			default:
+				queue.mDroppedCount.incrementAndGet();
+				return false;
+			}
+		}
+		queue.mQueue.offer(entry);
+		int maxDepth;
+		while (size > (maxDepth = mMaxDepth.get()) && !mMaxDepth.compareAndSet(maxDepth, size))
+			;
+		if (mWaiting)
+			LockSupport.unpark(mThread);
+		return true;
+	}
+
+	/**
+	 * Returns the queue to serve: the highest priority non-empty queue,
+	 * unless the head of a lower priority queue has waited longer than its
+	 * aging deadline, class times the aging delay. Among overdue heads, the
+	 * one with the earliest deadline is served. An overdue head is never
+	 * served twice in a row, so that the highest priority queue gets every
+	 * other turn at least.
+	 */
+	private ClassQueue select() {
+		ClassQueue first = null;
+		ClassQueue aged = null;
+		long agedDeadline = 0;
+		long now = 0;
+		for (int i = 0; i < mClasses.length; i++) {
+			Entry head = mClasses[i].mQueue.peek();
+			if (head == null)
+				continue;
+			if (first == null) {
+				first = mClasses[i];
+				if (mAgedServed)
+					break;
+				now = System.nanoTime();
+				continue;
+			}
+			long deadline = head.mTime + i * mAgingDelay;
+			if (now - deadline >= 0 && (aged == null || deadline - agedDeadline < 0)) {
+				aged = mClasses[i];
+				agedDeadline = deadline;
+			}
+		}
+		mAgedServed = aged != null;
+		return aged != null ? aged : first;
+	}
+
+	/**
+	 * Indicates whether all queues are empty.
+	 */
+	private boolean isEmpty() {
+		for (ClassQueue queue : mClasses) {
+			if (!queue.mQueue.isEmpty())
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Handles queued messages until the lane is closed.
+	 */
+	private void drain() {
+		while (mRunning) {
+			ClassQueue queue = select();
+			if (queue == null) {
+				mWaiting = true;
+				if (isEmpty() && mRunning)
+					LockSupport.park(this);
+				mWaiting = false;
+				continue;
+			}
+			Entry entry = queue.mQueue.poll();
+			// The head may have been dropped by a producer since select()
+			if (entry == null)
+				continue;
+			queue.mSize.decrementAndGet();
+			long lag = System.nanoTime() - entry.mTime;
+			queue.mHistogram.record(lag);
+			mLastLag = lag;
+			if (lag > mMaxLag)
+				mMaxLag = lag;
+			try {
+				mHandler.handle(entry.mMessage);
+				mHandledCount++;
+			} catch (RuntimeException e) {
+				mLastFailure = e;
+				mFailedCount++;
+			}
+		}
+	}
+
+	/**
+	 * Stops the lane thread, and discards the messages still queued.
+	 */
+	void close() {
+		mRunning = false;
+		LockSupport.unpark(mThread);
+		try {
+			mThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		for (ClassQueue queue : mClasses) {
+			queue.mQueue.clear();
+			queue.mSize.set(0);
+		}
+	}
+
+	/**
+	 * Returns the overflow policy of this lane.
+	 * 
+	 * @return the policy applied when the lane is full.
+	 */
+	public OscOverflowPolicy getPolicy() {
+		return mPolicy;
+	}
+
+	/**
+	 * Returns the maximum number of queued messages of each class.
+	 * 
+	 * @return the class queue capacity.
+	 */
+	public int getCapacity() {
+		return mCapacity;
+	}
+
+	/**
+	 * Returns the number of priority classes.
+	 * 
+	 * @return the classes count.
+	 */
+	public int getNumClasses() {
+		return mClasses.length;
+	}
+
+	/**
+	 * Returns the number of messages waiting to be handled.
+	 * 
+	 * @return the queue depth.
+	 */
+	public int getQueueDepth() {
+		int depth = 0;
+		for (int i = 0; i < mClasses.length; i++)
+			depth += getQueueDepth(i);
+		return depth;
+	}
+
+	/**
+	 * Returns the number of messages of a class waiting to be handled.
+	 * 
+	 * @param aClass
+	 *            the priority class.
+	 * @return the class queue depth.
+	 */
+	public int getQueueDepth(int aClass) {
+		return Math.max(mClasses[aClass].mSize.get(), 0);
+	}
+
+	/**
+	 * Returns the highest class queue depth reached.
+	 * 
+	 * @return the maximum queue depth.
+	 */
+	public int getMaxQueueDepth() {
+		return mMaxDepth.get();
+	}
+
+	/**
+	 * Returns the number of messages handled.
+	 * 
+	 * @return the handled messages count.
+	 */
+	public long getHandledCount() {
+		return mHandledCount;
+	}
+
+	/**
+	 * Returns the number of messages dropped by the overflow policy.
+	 * 
+	 * @return the dropped messages count.
+	 */
+	public long getDroppedCount() {
+		long count = 0;
+		for (int i = 0; i < mClasses.length; i++)
+			count += getDroppedCount(i);
+		return count;
+	}
+
+	/**
+	 * Returns the number of messages of a class dropped by the overflow
+	 * policy.
+	 * 
+	 * @param aClass
+	 *            the priority class.
+	 * @return the dropped messages count.
+	 */
+	public long getDroppedCount(int aClass) {
+		return mClasses[aClass].mDroppedCount.get();
+	}
+
+	/**
+	 * Returns the number of messages whose handler threw an exception.
+	 * 
+	 * @return the failed messages count.
+	 */
+	public long getFailedCount() {
+		return mFailedCount;
+	}
+
+	/**
+	 * Returns the last exception thrown by the handler.
+	 * 
+	 * @return the last failure, or null if all messages were handled.
+	 */
+	public RuntimeException getLastFailure() {
+		return mLastFailure;
+	}
+
+	/**
+	 * Returns the lag of the last handled message, between its dispatch and
+	 * its handling.
+	 * 
+	 * @return the lag in nanoseconds.
+	 */
+	public long getLastLag() {
+		return mLastLag;
+	}
+
+	/**
+	 * Returns the maximum lag of the handled messages.
+	 * 
+	 * @return the lag in nanoseconds.
+	 */
+	public long getMaxLag() {
+		return mMaxLag;
+	}
+}
@@ -0,0 +1,19 @@
+package com.osc.dispatch;
+
+/**
+ * Execution modes of an {@link OscDispatchExecutor}.
+ */
+public enum OscDispatchMode {
+	/** Messages are handled by the thread dispatching them. */
+	INLINE,
+	/**
+	 * Messages are spread over the lanes in turn. Messages of a same address
+	 * may be handled out of order.
+	 */
+	PARALLEL,
+	/**
+	 * Messages are assigned to a lane by their address. Messages of a same
+	 * address are handled in order, distinct addresses in parallel.
+	 */
+	STRIPED
+}
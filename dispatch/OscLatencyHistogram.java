@@ -0,0 +1,123 @@
+package com.osc.dispatch;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies, in nanoseconds.
+ * <p>
+ * Latencies are counted in power-of-two buckets: bucket i counts the
+ * latencies lower than 2^i ns and not lower than 2^(i-1) ns. Recording is
+ * lock-free and allocation-free, and can be done by several threads.
+ * </p>
+ */
+public class OscLatencyHistogram {
+
+	/** Number of buckets, covering all positive long values. */
+	public static final int NUM_BUCKETS = 64;
+
+	private final AtomicLongArray mBuckets = new AtomicLongArray(NUM_BUCKETS);
+	private final AtomicLong mCount = new AtomicLong();
+	private final AtomicLong mTotal = new AtomicLong();
+	private final AtomicLong mMax = new AtomicLong();
+
+	/**
+	 * Records a latency.
+	 * 
+	 * @param aLatency
+	 *            the latency in nanoseconds.
+	 */
+	public void record(long aLatency) {
+		long latency = Math.max(aLatency, 0);
+		mBuckets.incrementAndGet(Math.min(64 - Long.numberOfLeadingZeros(latency), NUM_BUCKETS - 1));
+		mCount.incrementAndGet();
+		mTotal.addAndGet(latency);
+		long max;
+		while (latency > (max = mMax.get()) && !mMax.compareAndSet(max, latency))
+			;
+	}
+
+	/**
+	 * Returns the number of recorded latencies.
+	 * 
+	 * @return the latencies count.
+	 */
+	public long getCount() {
+		return mCount.get();
+	}
+
+	/**
+	 * Returns the number of latencies recorded in a bucket.
+	 * 
+	 * @param aBucket
+	 *            the bucket index.
+	 * @return the bucket count.
+	 */
+	public long getBucketCount(int aBucket) {
+		return mBuckets.get(aBucket);
+	}
+
+	/**
+	 * Returns the exclusive upper bound of a bucket.
+	 * 
+	 * @param aBucket
+	 *            the bucket index.
+	 * @return the upper bound in nanoseconds.
+	 */
+	public static long getBucketBound(int aBucket) {
+		return aBucket >= NUM_BUCKETS - 1 ? Long.MAX_VALUE : 1L << aBucket;
+	}
+
+	/**
+	 * Returns the mean of the recorded latencies.
+	 * 
+	 * @return the mean latency in nanoseconds, 0 if none was recorded.
+	 */
+	public long getMean() {
+		long count = mCount.get();
+		return count == 0 ? 0 : mTotal.get() / count;
+	}
+
+	/**
+	 * Returns the maximum recorded latency.
+	 * 
+	 * @return the maximum latency in nanoseconds.
+	 */
+	public long getMax() {
+		return mMax.get();
+	}
+
+	/**
+	 * Returns an upper bound of a latency percentile: the bound of the bucket
+	 * reaching the percentile.
+	 * 
+	 * @param aPercentile
+	 *            the percentile, between 0 and 100.
+	 * @return the percentile upper bound in nanoseconds, 0 if none was
+	 *         recorded.
+	 */
+	public long getPercentile(double aPercentile) {
+		long count = mCount.get();
+		if (count == 0)
+			return 0;
+		long rank = (long) Math.ceil(count * aPercentile / 100);
+		long seen = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			seen += mBuckets.get(i);
+			if (seen >= rank)
+				return Math.min(getBucketBound(i), mMax.get());
+		}
+		return mMax.get();
+	}
+
+	/**
+	 * Clears the recorded latencies.
+	 */
+	public void reset() {
+		for (int i = 0; i < NUM_BUCKETS; i++)
+			mBuckets.set(i, 0);
+		mCount.set(0);
+		mTotal.set(0);
+		mMax.set(0);
+	}
+}
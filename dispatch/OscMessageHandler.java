@@ -0,0 +1,17 @@
+package com.osc.dispatch;
+
+import com.osc.OscMessage;
+
+/**
+ * Interface of the consumers of dispatched OSC messages.
+ */
+public interface OscMessageHandler {
+
+	/**
+	 * Handles a message.
+	 * 
+	 * @param aMessage
+	 *            the dispatched message.
+	 */
+	void handle(OscMessage aMessage);
+}
@@ -0,0 +1,104 @@
+package com.osc.dispatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.osc.OscAddressPattern;
+import com.osc.OscMessage;
+
+/**
+ * Assignment of OSC messages to dispatch priority classes.
+ * <p>
+ * Class 0 has the highest priority. A message is assigned to the class of the
+ * first address pattern it matches, or to the lowest priority class if it
+ * matches none. The lanes of an {@link OscDispatchExecutor} serve their
+ * classes by priority with aging: the highest priority non-empty class is
+ * served, unless the oldest message of a class n has been queued for more
+ * than n aging delays. Such an overdue message is served first, but never
+ * two in a row. A critical message thus waits for the critical messages
+ * queued before it, and for at most one lower priority message handled
+ * between each of them, whatever the bulk backlog; low priority traffic is
+ * served at least every other message once overdue, so it cannot starve.
+ * </p>
+ * <p>
+ * Rules must be added before the scheme is passed to an executor. Since an
+ * address is always assigned to the same class, the messages of an address
+ * keep their order in STRIPED mode.
+ * </p>
+ */
+public class OscPriorityScheme {
+
+	private final int mNumClasses;
+	private final long mAgingDelay;
+	private final List<OscAddressPattern> mPatterns = new ArrayList<OscAddressPattern>();
+	private final List<Integer> mClasses = new ArrayList<Integer>();
+
+	/**
+	 * Build a new OscPriorityScheme.
+	 * 
+	 * @param aNumClasses
+	 *            the number of priority classes.
+	 * @param aAgingDelay
+	 *            the delay added to the dispatch time of messages for each
+	 *            class below the highest one.
+	 * @param aUnit
+	 *            the unit of aAgingDelay.
+	 */
+	public OscPriorityScheme(int aNumClasses, long aAgingDelay, TimeUnit aUnit) {
+		if (aNumClasses <= 0)
+			throw new IllegalArgumentException("Classes count must be positive");
+		mNumClasses = aNumClasses;
+		mAgingDelay = aUnit.toNanos(aAgingDelay);
+	}
+
+	/**
+	 * Assigns the messages matching an address pattern to a class.
+	 * 
+	 * @param aPattern
+	 *            the address pattern, see {@link OscAddressPattern}.
+	 * @param aClass
+	 *            the priority class, 0 being the highest.
+	 * @return this scheme.
+	 */
+	public OscPriorityScheme assign(String aPattern, int aClass) {
+		if (aClass < 0 || aClass >= mNumClasses)
+			throw new IllegalArgumentException("Invalid priority class " + aClass);
+		mPatterns.add(new OscAddressPattern(aPattern));
+		mClasses.add(aClass);
+		return this;
+	}
+
+	/**
+	 * Returns the priority class of a message.
+	 * 
+	 * @param aMessage
+	 *            the message.
+	 * @return the priority class.
+	 */
+	public int getClass(OscMessage aMessage) {
+		for (int i = 0; i < mPatterns.size(); i++) {
+			if (mPatterns.get(i).matches(aMessage))
+				return mClasses.get(i);
+		}
+		return mNumClasses - 1;
+	}
+
+	/**
+	 * Returns the number of priority classes.
+	 * 
+	 * @return the classes count.
+	 */
+	public int getNumClasses() {
+		return mNumClasses;
+	}
+
+	/**
+	 * Returns the aging delay between two consecutive classes.
+	 * 
+	 * @return the delay in nanoseconds.
+	 */
+	public long getAgingDelay() {
+		return mAgingDelay;
+	}
+}
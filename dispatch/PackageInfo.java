@@ -0,0 +1,8 @@
+/**
+ * OSC dispatching classes
+ * 
+ * Package com.osc.dispatch embed the classes to hand received
+ * OSC messages over to their consumers.
+ */
+package com.osc.dispatch;
+
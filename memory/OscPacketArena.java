@@ -0,0 +1,198 @@
+package com.osc.memory;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Slab allocator of off-heap memory for received OSC packets.
+ * <p>
+ * Packets are stored in chunks of fixed size classes, carved from large
+ * direct buffer regions allocated on demand. A chunk is leased with a
+ * reference count (see {@link OscPacketLease}), and goes back to its size
+ * class free list when its last reference is released. Packet bytes thus stay
+ * off the garbage collected heap, and the arena memory only grows up to the
+ * peak number of packets alive at once.
+ * </p>
+ * <p>
+ * Arenas are thread-safe: leases can be acquired and released by any thread.
+ * Each size class free list is guarded by its own short lock.
+ * </p>
+ */
+public class OscPacketArena {
+
+	/** Default size classes: small messages, MTU, jumbo frames, max UDP. */
+	public static final int[] DEFAULT_SIZE_CLASSES = { 512, 2048, 9216, 65536 };
+	/** Default region size. */
+	public static final int DEFAULT_REGION_SIZE = 1 << 20;
+
+	/** Chunks of a size class. */
+	static class SizeClass {
+		final int mChunkSize;
+		final int mRegionSize;
+		private OscPacketLease[] mFree = new OscPacketLease[16];
+		private int mNumFree = 0;
+		private int mNumChunks = 0;
+		final AtomicLong mAcquiredCount = new AtomicLong();
+
+		SizeClass(int aChunkSize, int aRegionSize) {
+			mChunkSize = aChunkSize;
+			mRegionSize = Math.max(aRegionSize, aChunkSize);
+		}
+
+		/**
+		 * Returns a free chunk, carving a new region if none is left.
+		 */
+		synchronized OscPacketLease take() {
+			if (mNumFree == 0) {
+				ByteBuffer region = ByteBuffer.allocateDirect(mRegionSize - mRegionSize % mChunkSize);
+				for (int pos = 0; pos < region.capacity(); pos += mChunkSize) {
+					region.limit(pos + mChunkSize);
+					region.position(pos);
+					push(new OscPacketLease(this, region.slice()));
+					mNumChunks++;
+				}
+			}
+			return mFree[--mNumFree];
+		}
+
+		/**
+		 * Gives a chunk back.
+		 */
+		synchronized void free(OscPacketLease aLease) {
+			push(aLease);
+		}
+
+		private void push(OscPacketLease aLease) {
+			if (mNumFree == mFree.length) {
+				OscPacketLease[] free = new OscPacketLease[mFree.length * 2];
+				System.arraycopy(mFree, 0, free, 0, mNumFree);
+				mFree = free;
+			}
+			mFree[mNumFree++] = aLease;
+		}
+
+		synchronized int getNumFree() {
+			return mNumFree;
+		}
+
+		synchronized int getNumChunks() {
+			return mNumChunks;
+		}
+	}
+
+	private final SizeClass[] mClasses;
+
+	/**
+	 * Build a new OscPacketArena with the default size classes.
+	 */
+	public OscPacketArena() {
+		this(DEFAULT_SIZE_CLASSES, DEFAULT_REGION_SIZE);
+	}
+
+	/**
+	 * Build a new OscPacketArena.
+	 * 
+	 * @param aSizeClasses
+	 *            the chunk sizes, in increasing order.
+	 * @param aRegionSize
+	 *            the size of the regions carved into chunks.
+	 */
+	public OscPacketArena(int[] aSizeClasses, int aRegionSize) {
+		mClasses = new SizeClass[aSizeClasses.length];
+		for (int i = 0; i < aSizeClasses.length; i++) {
+			if (aSizeClasses[i] <= 0 || (i > 0 && aSizeClasses[i] <= aSizeClasses[i - 1]))
+				throw new IllegalArgumentException("Size classes must be positive and increasing");
+			mClasses[i] = new SizeClass(aSizeClasses[i], aRegionSize);
+		}
+	}
+
+	/**
+	 * Leases a chunk of the smallest size class holding aSize bytes.
+	 * 
+	 * @param aSize
+	 *            the packet length.
+	 * @return the lease, with one reference.
+	 */
+	public OscPacketLease acquire(int aSize) {
+		for (SizeClass sizeClass : mClasses) {
+			if (aSize <= sizeClass.mChunkSize) {
+				OscPacketLease lease = sizeClass.take();
+				lease.reset(aSize);
+				sizeClass.mAcquiredCount.incrementAndGet();
+				return lease;
+			}
+		}
+		throw new IllegalArgumentException("Packet size " + aSize + " exceeds the largest size class");
+	}
+
+	/**
+	 * Copies the packet located between position and limit of the passed
+	 * buffer into a new lease. The buffer position is not modified.
+	 * 
+	 * @param aPacket
+	 *            the packet to copy.
+	 * @return the lease, with one reference.
+	 */
+	public OscPacketLease copyOf(ByteBuffer aPacket) {
+		OscPacketLease lease = acquire(aPacket.remaining());
+		lease.getBuffer().put(aPacket.duplicate());
+		return lease;
+	}
+
+	/**
+	 * Returns the number of size classes.
+	 * 
+	 * @return the size classes count.
+	 */
+	public int getNumSizeClasses() {
+		return mClasses.length;
+	}
+
+	/**
+	 * Returns the chunk size of a size class.
+	 * 
+	 * @param aClass
+	 *            the size class index.
+	 * @return the chunk size in bytes.
+	 */
+	public int getChunkSize(int aClass) {
+		return mClasses[aClass].mChunkSize;
+	}
+
+	/**
+	 * Returns the number of chunks of a size class currently leased.
+	 * 
+	 * @param aClass
+	 *            the size class index.
+	 * @return the leased chunks count.
+	 */
+	public int getLeasedCount(int aClass) {
+		SizeClass sizeClass = mClasses[aClass];
+		synchronized (sizeClass) {
+			return sizeClass.getNumChunks() - sizeClass.getNumFree();
+		}
+	}
+
+	/**
+	 * Returns the number of leases acquired from a size class.
+	 * 
+	 * @param aClass
+	 *            the size class index.
+	 * @return the acquired leases count.
+	 */
+	public long getAcquiredCount(int aClass) {
+		return mClasses[aClass].mAcquiredCount.get();
+	}
+
+	/**
+	 * Returns the off-heap memory reserved by the arena.
+	 * 
+	 * @return the reserved memory in bytes.
+	 */
+	public long getReservedBytes() {
+		long bytes = 0;
+		for (SizeClass sizeClass : mClasses)
+			bytes += (long) sizeClass.getNumChunks() * sizeClass.mChunkSize;
+		return bytes;
+	}
+}
@@ -0,0 +1,133 @@
+package com.osc.memory;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference-counted lease on a chunk of an {@link OscPacketArena}.
+ * <p>
+ * A lease is acquired with one reference, owned by the caller. Each holder
+ * retains the lease before using it, and releases it once done. When the last
+ * reference is released, the chunk goes back to the arena and is reused for
+ * another packet: the lease, and the contents decoded from it, must not be
+ * used anymore.
+ * </p>
+ */
+public class OscPacketLease {
+
+	private final OscPacketArena.SizeClass mOwner;
+	/** The chunk memory, from 0 to the class size. */
+	private final ByteBuffer mMemory;
+	private final AtomicInteger mRefCount = new AtomicInteger();
+	private int mLength;
+
+	/**
+	 * Build a new OscPacketLease.
+	 * 
+	 * @param aOwner
+	 *            the size class the chunk belongs to.
+	 * @param aMemory
+	 *            the chunk memory.
+	 */
+	OscPacketLease(OscPacketArena.SizeClass aOwner, ByteBuffer aMemory) {
+		mOwner = aOwner;
+		mMemory = aMemory;
+	}
+
+	/**
+	 * Prepares the lease for a new packet, with one reference.
+	 */
+	void reset(int aLength) {
+		mLength = aLength;
+		mRefCount.set(1);
+	}
+
+	/**
+	 * Returns the chunk memory to fill, for the owner of the lease.
+	 * 
+	 * @return a buffer with position 0 and limit set to the packet length.
+	 */
+	public ByteBuffer getBuffer() {
+		ByteBuffer buffer = mMemory.duplicate();
+		buffer.limit(mLength);
+		return buffer;
+	}
+
+	/**
+	 * Returns a new view of the packet bytes.
+	 * 
+	 * @return a read-only buffer with position 0 and limit set to the packet
+	 *         length.
+	 */
+	public ByteBuffer getData() {
+		ByteBuffer data = mMemory.asReadOnlyBuffer();
+		data.limit(mLength);
+		return data;
+	}
+
+	/**
+	 * Returns the packet length.
+	 * 
+	 * @return the number of bytes of the packet.
+	 */
+	public int getLength() {
+		return mLength;
+	}
+
+	/**
+	 * Sets the packet length, when it is known after filling the chunk.
+	 * 
+	 * @param aLength
+	 *            the number of bytes of the packet, up to the chunk capacity.
+	 */
+	public void setLength(int aLength) {
+		if (aLength < 0 || aLength > mMemory.capacity())
+			throw new IllegalArgumentException("Invalid packet length " + aLength);
+		mLength = aLength;
+	}
+
+	/**
+	 * Returns the chunk capacity.
+	 * 
+	 * @return the size of the chunk size class.
+	 */
+	public int getCapacity() {
+		return mMemory.capacity();
+	}
+
+	/**
+	 * Adds a reference to this lease.
+	 * 
+	 * @return this lease.
+	 */
+	public OscPacketLease retain() {
+		int count;
+		do {
+			count = mRefCount.get();
+			if (count <= 0)
+				throw new IllegalStateException("lease already released");
+		} while (!mRefCount.compareAndSet(count, count + 1));
+		return this;
+	}
+
+	/**
+	 * Removes a reference to this lease. The chunk goes back to the arena
+	 * when the last reference is released.
+	 */
+	public void release() {
+		int count = mRefCount.decrementAndGet();
+		if (count == 0)
+			mOwner.free(this);
+		else if (count < 0)
+			throw new IllegalStateException("lease already released");
+	}
+
+	/**
+	 * Returns the number of references to this lease.
+	 * 
+	 * @return the reference count.
+	 */
+	public int getRefCount() {
+		return mRefCount.get();
+	}
+}
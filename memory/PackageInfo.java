@@ -0,0 +1,7 @@
+/**
+ * OSC memory management classes
+ * 
+ * Package com.osc.memory embed the classes to store
+ * received OSC packets outside of the garbage collected heap.
+ */
+package com.osc.memory;
@@ -0,0 +1,63 @@
+package com.osc.net;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * OSC packet sender over UDP.
+ * 
+ * The underlying channel is connected to the destination, so that an
+ * unreachable destination is reported by
+ * {@link java.net.PortUnreachableException} on later sends.
+ */
+public class OscDatagramSender implements OscPacketSender {
+
+	private final DatagramChannel mChannel;
+	private final SocketAddress mDestination;
+
+	/**
+	 * Build a new OscDatagramSender.
+	 * 
+	 * @param aDestination
+	 *            the address where to send the packets.
+	 * @throws IOException
+	 *             if the channel cannot be opened.
+	 */
+	public OscDatagramSender(SocketAddress aDestination) throws IOException {
+		mDestination = aDestination;
+		mChannel = DatagramChannel.open();
+		mChannel.connect(aDestination);
+	}
+
+	/**
+	 * Returns the address where packets are sent.
+	 * 
+	 * @return the destination address.
+	 */
+	public SocketAddress getDestination() {
+		return mDestination;
+	}
+
+	/**
+	 * @see com.osc.net.OscPacketSender#send(java.nio.ByteBuffer)
+	 */
+	@Override
+	public void send(ByteBuffer aPacket) throws IOException {
+		mChannel.write(aPacket);
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		mChannel.close();
+	}
+
+	@Override
+	public String toString() {
+		return "udp:" + mDestination;
+	}
+}
@@ -0,0 +1,185 @@
+package com.osc.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sender filtering out unchanged messages.
+ * <p>
+ * This sender wraps another transport, and drops messages whose type tags and
+ * data are identical to the last message sent to the same address, unless
+ * the keep-alive interval has elapsed since then, so that receivers still get
+ * periodic refreshes. Messages are compared on their encoded bytes through a
+ * 64-bit hash, without being decoded. Bundles are always sent. Packets
+ * encoded for {@link com.osc.OscVersion#OSC_10} are compared on the message
+ * following their size prefix.
+ * </p>
+ * <p>
+ * The memory used is bounded: the least recently sent addresses are evicted
+ * when the maximum number of tracked addresses is reached.
+ * </p>
+ */
+public class OscDedupSender implements OscPacketSender {
+
+	/** State of the last message sent to an address. */
+	private static final class LastSent {
+		long mHash;
+		long mTime;
+	}
+
+	private final OscPacketSender mSender;
+	private final long mKeepAlive;
+	private final Map<ByteBuffer, LastSent> mLastSent;
+
+	private long mSentCount = 0;
+	private long mSuppressedCount = 0;
+	private long mEvictedCount = 0;
+
+	/**
+	 * Build a new OscDedupSender.
+	 * 
+	 * @param aSender
+	 *            the transport where to send the messages.
+	 * @param aKeepAlive
+	 *            the maximum time between two sends of an unchanged message.
+	 * @param aUnit
+	 *            the unit of aKeepAlive.
+	 * @param aMaxAddresses
+	 *            the maximum number of tracked addresses.
+	 */
+	public OscDedupSender(OscPacketSender aSender, long aKeepAlive, TimeUnit aUnit, final int aMaxAddresses) {
+		mSender = aSender;
+		mKeepAlive = aUnit.toNanos(aKeepAlive);
+		mLastSent = new LinkedHashMap<ByteBuffer, LastSent>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ByteBuffer, LastSent> aEldest) {
+				if (size() <= aMaxAddresses)
+					return false;
+				mEvictedCount++;
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Computes a 64-bit FNV-1a hash of the passed buffer range.
+	 */
+	private static long hash(ByteBuffer aPacket, int aFrom, int aTo) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = aFrom; i < aTo; i++) {
+			hash ^= aPacket.get(i) & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Sends the packet, unless it is a message identical to the last one sent
+	 * to the same address within the keep-alive interval. A suppressed packet
+	 * is consumed as if it was sent.
+	 * 
+	 * @see com.osc.net.OscPacketSender#send(java.nio.ByteBuffer)
+	 */
+	@Override
+	public synchronized void send(ByteBuffer aPacket) throws IOException {
+		int startIdx = aPacket.position();
+		int endIdx = aPacket.limit();
+		// Skip the size prefix of OSC 1.0 packets
+		if (endIdx - startIdx >= 4 && aPacket.get(startIdx) == 0
+				&& aPacket.getInt(startIdx) == endIdx - startIdx - 4)
+			startIdx += 4;
+
+		// Find the address pattern end, bundles and malformed packets are sent
+		int addressEnd = startIdx;
+		while (addressEnd < endIdx && aPacket.get(addressEnd) != 0)
+			addressEnd++;
+		if (addressEnd == endIdx || aPacket.get(startIdx) == '#') {
+			mSender.send(aPacket);
+			mSentCount++;
+			return;
+		}
+		int tagsIdx = startIdx + ((addressEnd - startIdx + 4) & ~0x03);
+
+		ByteBuffer address = aPacket.duplicate();
+		address.limit(addressEnd);
+		address.position(startIdx);
+		long hash = hash(aPacket, Math.min(tagsIdx, endIdx), endIdx);
+		long now = System.nanoTime();
+
+		LastSent lastSent = mLastSent.get(address);
+		if (lastSent != null && lastSent.mHash == hash && now - lastSent.mTime < mKeepAlive) {
+			aPacket.position(endIdx);
+			mSuppressedCount++;
+			return;
+		}
+
+		mSender.send(aPacket);
+		mSentCount++;
+		if (lastSent == null) {
+			// The key is copied, as the packet buffer may be reused
+			ByteBuffer key = ByteBuffer.allocate(address.remaining());
+			key.put(address);
+			key.flip();
+			lastSent = new LastSent();
+			mLastSent.put(key, lastSent);
+		}
+		lastSent.mHash = hash;
+		lastSent.mTime = now;
+	}
+
+	/**
+	 * Returns the number of packets sent.
+	 * 
+	 * @return the sent packets count.
+	 */
+	public synchronized long getSentCount() {
+		return mSentCount;
+	}
+
+	/**
+	 * Returns the number of messages dropped as repeats.
+	 * 
+	 * @return the suppressed messages count.
+	 */
+	public synchronized long getSuppressedCount() {
+		return mSuppressedCount;
+	}
+
+	/**
+	 * Returns the number of addresses evicted to bound the memory used.
+	 * 
+	 * @return the evicted addresses count.
+	 */
+	public synchronized long getEvictedCount() {
+		return mEvictedCount;
+	}
+
+	/**
+	 * Returns the number of currently tracked addresses.
+	 * 
+	 * @return the number of addresses.
+	 */
+	public synchronized int getNumAddresses() {
+		return mLastSent.size();
+	}
+
+	/**
+	 * Closes the wrapped transport.
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		mSender.close();
+	}
+
+	@Override
+	public String toString() {
+		return "dedup:" + mSender;
+	}
+}
@@ -0,0 +1,253 @@
+package com.osc.net;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.osc.OscOverflowPolicy;
+
+/**
+ * Bounded queue of shared packets, drained by a dedicated thread sending
+ * them to one destination.
+ * <p>
+ * Queues are created by {@link OscFanOutSender}. They expose metrics to
+ * detect slow or unreachable destinations: queue depth, sent, dropped and
+ * failed packet counts, and the lag between the packet encoding and its
+ * sending.
+ * </p>
+ */
+public class OscDestinationQueue {
+
+	/** Time in milliseconds a blocked producer waits before checking closing. */
+	private static final long BLOCK_WAIT = 10;
+
+	private final OscPacketSender mSender;
+	private final OscOverflowPolicy mPolicy;
+	private final BlockingQueue<OscSharedPacket> mQueue;
+	private final Thread mThread;
+	private volatile boolean mRunning = true;
+
+	/** Metrics written by the sending thread only. */
+	private volatile long mSentCount = 0;
+	private volatile long mFailedCount = 0;
+	private volatile long mLastLag = 0;
+	private volatile long mMaxLag = 0;
+	private volatile IOException mLastFailure = null;
+
+	/** Metrics written by producers. */
+	private final AtomicLong mDroppedCount = new AtomicLong();
+
+	/**
+	 * Build a new OscDestinationQueue, and starts its sending thread.
+	 * 
+	 * @param aSender
+	 *            the transport to the destination.
+	 * @param aCapacity
+	 *            the maximum number of queued packets.
+	 * @param aPolicy
+	 *            the policy to apply when the queue is full.
+	 */
+	OscDestinationQueue(OscPacketSender aSender, int aCapacity, OscOverflowPolicy aPolicy) {
+		mSender = aSender;
+		mPolicy = aPolicy;
+		mQueue = new ArrayBlockingQueue<OscSharedPacket>(aCapacity);
+		mThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain();
+			}
+		}, "osc-sender-" + aSender);
+		mThread.setDaemon(true);
+		mThread.start();
+	}
+
+	/**
+	 * Enqueues a packet, applying the overflow policy if the queue is full.
+	 * The packet is retained while it is queued. Once the queue is closed,
+	 * packets are not queued anymore, and producers blocked by the BLOCK
+	 * policy return.
+	 * 
+	 * @param aPacket
+	 *            the packet to send.
+	 * @return true if the packet has been queued, false if it was dropped or
+	 *         the queue is closed.
+	 * @throws InterruptedException
+	 *             if interrupted while waiting with the BLOCK policy.
+	 */
+	boolean offer(OscSharedPacket aPacket) throws InterruptedException {
+		if (!mRunning)
+			return false;
+		aPacket.retain();
+		switch (mPolicy) {
+		case BLOCK:
+			try {
+				while (!mQueue.offer(aPacket, BLOCK_WAIT, TimeUnit.MILLISECONDS)) {
+					if (!mRunning) {
+						aPacket.release();
+						return false;
+					}
+				}
+			} catch (InterruptedException e) {
+				aPacket.release();
+				throw e;
+			}
+			break;
+		case DROP_OLDEST:
+			while (!mQueue.offer(aPacket)) {
+				OscSharedPacket oldest = mQueue.poll();
+				if (oldest != null) {
+					mDroppedCount.incrementAndGet();
+					oldest.release();
+				}
+			}
+			break;
+		default:
+			if (!mQueue.offer(aPacket)) {
+				mDroppedCount.incrementAndGet();
+				aPacket.release();
+				return false;
+			}
+			break;
+		}
+		// The queue may have been closed, and emptied, meanwhile
+		if (!mRunning && mQueue.remove(aPacket)) {
+			aPacket.release();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Sends queued packets until the queue is closed.
+	 */
+	private void drain() {
+		while (mRunning) {
+			OscSharedPacket packet;
+			try {
+				packet = mQueue.take();
+			} catch (InterruptedException e) {
+				continue;
+			}
+			try {
+				mSender.send(packet.getData());
+				long lag = System.nanoTime() - packet.getCreationTime();
+				mLastLag = lag;
+				if (lag > mMaxLag)
+					mMaxLag = lag;
+				mSentCount++;
+			} catch (IOException e) {
+				mLastFailure = e;
+				mFailedCount++;
+			} finally {
+				packet.release();
+			}
+		}
+	}
+
+	/**
+	 * Stops the sending thread, releases the packets still queued, and closes
+	 * the transport. Later offers are refused, and producers blocked on a full
+	 * queue return.
+	 * 
+	 * @throws IOException
+	 *             if the transport cannot be closed.
+	 */
+	void close() throws IOException {
+		mRunning = false;
+		mThread.interrupt();
+		try {
+			mThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		OscSharedPacket packet;
+		while ((packet = mQueue.poll()) != null)
+			packet.release();
+		mSender.close();
+	}
+
+	/**
+	 * Returns the transport to the destination.
+	 * 
+	 * @return the packet sender.
+	 */
+	public OscPacketSender getSender() {
+		return mSender;
+	}
+
+	/**
+	 * Returns the overflow policy of this queue.
+	 * 
+	 * @return the policy applied when the queue is full.
+	 */
+	public OscOverflowPolicy getPolicy() {
+		return mPolicy;
+	}
+
+	/**
+	 * Returns the number of packets waiting to be sent.
+	 * 
+	 * @return the queue depth.
+	 */
+	public int getQueueDepth() {
+		return mQueue.size();
+	}
+
+	/**
+	 * Returns the number of packets sent to the destination.
+	 * 
+	 * @return the sent packets count.
+	 */
+	public long getSentCount() {
+		return mSentCount;
+	}
+
+	/**
+	 * Returns the number of packets dropped by the overflow policy.
+	 * 
+	 * @return the dropped packets count.
+	 */
+	public long getDroppedCount() {
+		return mDroppedCount.get();
+	}
+
+	/**
+	 * Returns the number of packets that the transport failed to send, for
+	 * instance because the destination is unreachable.
+	 * 
+	 * @return the failed packets count.
+	 */
+	public long getFailedCount() {
+		return mFailedCount;
+	}
+
+	/**
+	 * Returns the last error reported by the transport.
+	 * 
+	 * @return the last failure, or null if all packets were sent.
+	 */
+	public IOException getLastFailure() {
+		return mLastFailure;
+	}
+
+	/**
+	 * Returns the lag of the last sent packet, between its encoding and its
+	 * sending.
+	 * 
+	 * @return the lag in nanoseconds.
+	 */
+	public long getLastLag() {
+		return mLastLag;
+	}
+
+	/**
+	 * Returns the maximum lag of the sent packets.
+	 * 
+	 * @return the lag in nanoseconds.
+	 */
+	public long getMaxLag() {
+		return mMaxLag;
+	}
+}
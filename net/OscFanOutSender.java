@@ -0,0 +1,180 @@
+package com.osc.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.osc.OscBundleComposer;
+import com.osc.OscMessageComposer;
+import com.osc.OscOverflowPolicy;
+import com.osc.OscVersion;
+
+/**
+ * OSC multi-destination sender class
+ * 
+ * This class mirrors OSC packets to several destinations. Each packet is
+ * encoded once into an {@link OscSharedPacket}, that is enqueued in the
+ * bounded queue of every destination. Each queue is drained by its own
+ * thread, so that the producer is not slowed down by the sending, and a slow
+ * or unreachable destination does not delay the others.
+ */
+public class OscFanOutSender implements Closeable {
+
+	private final OscVersion mVersion;
+	private final int mQueueCapacity;
+	private final OscOverflowPolicy mPolicy;
+	private final List<OscDestinationQueue> mDestinations = new CopyOnWriteArrayList<OscDestinationQueue>();
+
+	/**
+	 * Build a new OscFanOutSender.
+	 * 
+	 * @param aVersion
+	 *            the OSC version used to encode composed packets.
+	 * @param aQueueCapacity
+	 *            the default maximum number of packets queued per destination.
+	 * @param aPolicy
+	 *            the default policy applied when a destination queue is full.
+	 */
+	public OscFanOutSender(OscVersion aVersion, int aQueueCapacity, OscOverflowPolicy aPolicy) {
+		mVersion = aVersion;
+		mQueueCapacity = aQueueCapacity;
+		mPolicy = aPolicy;
+	}
+
+	/**
+	 * Adds a UDP destination, with the default queue capacity and policy.
+	 * 
+	 * @param aDestination
+	 *            the destination address.
+	 * @return the destination queue.
+	 * @throws IOException
+	 *             if the UDP channel cannot be opened.
+	 */
+	public OscDestinationQueue addDestination(SocketAddress aDestination) throws IOException {
+		return addDestination(new OscDatagramSender(aDestination));
+	}
+
+	/**
+	 * Adds a destination, with the default queue capacity and policy.
+	 * 
+	 * @param aSender
+	 *            the transport to the destination.
+	 * @return the destination queue.
+	 */
+	public OscDestinationQueue addDestination(OscPacketSender aSender) {
+		return addDestination(aSender, mQueueCapacity, mPolicy);
+	}
+
+	/**
+	 * Adds a destination.
+	 * 
+	 * @param aSender
+	 *            the transport to the destination.
+	 * @param aQueueCapacity
+	 *            the maximum number of packets queued for this destination.
+	 * @param aPolicy
+	 *            the policy applied when the queue is full.
+	 * @return the destination queue.
+	 */
+	public OscDestinationQueue addDestination(OscPacketSender aSender, int aQueueCapacity,
+			OscOverflowPolicy aPolicy) {
+		OscDestinationQueue destination = new OscDestinationQueue(aSender, aQueueCapacity, aPolicy);
+		mDestinations.add(destination);
+		return destination;
+	}
+
+	/**
+	 * Removes a destination, and closes its transport.
+	 * 
+	 * @param aDestination
+	 *            the destination queue to remove.
+	 * @throws IOException
+	 *             if the transport cannot be closed.
+	 */
+	public void removeDestination(OscDestinationQueue aDestination) throws IOException {
+		if (mDestinations.remove(aDestination))
+			aDestination.close();
+	}
+
+	/**
+	 * Returns the current destinations, to read their metrics.
+	 * 
+	 * @return an unmodifiable list of the destination queues.
+	 */
+	public List<OscDestinationQueue> getDestinations() {
+		return Collections.unmodifiableList(mDestinations);
+	}
+
+	/**
+	 * Encodes the passed message once, and enqueues it to all destinations.
+	 * 
+	 * @param aMessage
+	 *            the message to send.
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a blocking destination.
+	 */
+	public void send(OscMessageComposer aMessage) throws InterruptedException {
+		sendAndRelease(new OscSharedPacket(aMessage.getBytes(mVersion)));
+	}
+
+	/**
+	 * Encodes the passed bundle once, and enqueues it to all destinations.
+	 * 
+	 * @param aBundle
+	 *            the bundle to send.
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a blocking destination.
+	 */
+	public void send(OscBundleComposer aBundle) throws InterruptedException {
+		sendAndRelease(new OscSharedPacket(aBundle.getBytes(mVersion)));
+	}
+
+	/**
+	 * Enqueues an already encoded packet to all destinations. Each
+	 * destination retains the packet while it is queued, the caller
+	 * reference is left untouched.
+	 * 
+	 * @param aPacket
+	 *            the packet to send.
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a blocking destination.
+	 */
+	public void send(OscSharedPacket aPacket) throws InterruptedException {
+		for (OscDestinationQueue destination : mDestinations)
+			destination.offer(aPacket);
+	}
+
+	/**
+	 * Enqueues a new packet, and releases the creator reference.
+	 */
+	private void sendAndRelease(OscSharedPacket aPacket) throws InterruptedException {
+		try {
+			send(aPacket);
+		} finally {
+			aPacket.release();
+		}
+	}
+
+	/**
+	 * Stops all destination threads, and closes their transports.
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		IOException failure = null;
+		for (OscDestinationQueue destination : mDestinations) {
+			try {
+				destination.close();
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		mDestinations.clear();
+		if (failure != null)
+			throw failure;
+	}
+}
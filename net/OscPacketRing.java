@@ -0,0 +1,229 @@
+package com.osc.net;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.osc.OscWaitStrategy;
+
+/**
+ * Preallocated ring of packet slots, handing received packets from a network
+ * thread over to decode workers without lock nor allocation.
+ * <p>
+ * The ring has a single producer and several consumers: each packet is taken
+ * by one worker. Slots are carved from one direct buffer. The producer claims
+ * the next slot, fills it and publishes it; workers take published slots in
+ * sequence order, decode them in place and release them. Threads waiting for
+ * a free or a published slot follow the ring {@link OscWaitStrategy}.
+ * </p>
+ * <p>
+ * Slots are released in any order, but the producer waits for the slot of
+ * its next sequence: a worker holding a slot for long stalls the producer
+ * once the ring has wrapped.
+ * </p>
+ */
+public class OscPacketRing {
+
+	private final OscPacketSlot[] mSlots;
+	private final int mMask;
+	private final int mSlotSize;
+	private final OscWaitStrategy mStrategy;
+
+	/** Next sequence to write, owned by the producer. */
+	private volatile long mProducerSequence = 0;
+	/** Next sequence to take, shared by the workers. */
+	private final AtomicLong mConsumerSequence = new AtomicLong();
+	private volatile boolean mClosed = false;
+
+	/** Number of claims that found the ring full, written by the producer. */
+	private volatile long mFullCount = 0;
+
+	/**
+	 * Build a new OscPacketRing, and allocates its slots.
+	 * 
+	 * @param aNumSlots
+	 *            the number of slots, a power of two of at least 2: with a
+	 *            single slot, a published packet and a free slot would have
+	 *            the same sequence.
+	 * @param aSlotSize
+	 *            the maximum size of a packet.
+	 * @param aStrategy
+	 *            the wait strategy of the producer and the workers.
+	 */
+	public OscPacketRing(int aNumSlots, int aSlotSize, OscWaitStrategy aStrategy) {
+		if (aNumSlots < 2 || Integer.bitCount(aNumSlots) != 1)
+			throw new IllegalArgumentException("Slots count must be a power of two, at least 2");
+		mSlots = new OscPacketSlot[aNumSlots];
+		mMask = aNumSlots - 1;
+		mSlotSize = aSlotSize;
+		mStrategy = aStrategy;
+		ByteBuffer memory = ByteBuffer.allocateDirect(aNumSlots * aSlotSize);
+		for (int i = 0; i < aNumSlots; i++) {
+			memory.limit((i + 1) * aSlotSize);
+			memory.position(i * aSlotSize);
+			mSlots[i] = new OscPacketSlot(this, memory.slice(), i);
+		}
+	}
+
+	/**
+	 * Returns the next slot to fill, waiting for it to be released if the
+	 * ring is full. Producer only.
+	 * 
+	 * @return the slot, or null if the ring is closed.
+	 */
+	public OscPacketSlot claim() {
+		long sequence = mProducerSequence;
+		OscPacketSlot slot = mSlots[(int) sequence & mMask];
+		if (slot.mSequence != sequence) {
+			mFullCount++;
+			for (int round = 0; slot.mSequence != sequence; round++) {
+				if (mClosed)
+					return null;
+				mStrategy.idle(round);
+			}
+		}
+		return mClosed ? null : slot;
+	}
+
+	/**
+	 * Returns the next slot to fill, if it is free. Producer only.
+	 * 
+	 * @return the slot, or null if the ring is full or closed.
+	 */
+	public OscPacketSlot tryClaim() {
+		long sequence = mProducerSequence;
+		OscPacketSlot slot = mSlots[(int) sequence & mMask];
+		if (slot.mSequence != sequence) {
+			mFullCount++;
+			return null;
+		}
+		return mClosed ? null : slot;
+	}
+
+	/**
+	 * Receives a datagram in the next slot and publishes it. Producer only.
+	 * 
+	 * @param aChannel
+	 *            the channel to receive from.
+	 * @return true if a packet was published, false if the channel is
+	 *         non-blocking and had no packet, or the ring is closed.
+	 * @throws IOException
+	 *             if the channel cannot be read.
+	 */
+	public boolean receive(DatagramChannel aChannel) throws IOException {
+		OscPacketSlot slot = claim();
+		if (slot == null)
+			return false;
+		ByteBuffer buffer = slot.getBuffer();
+		SocketAddress source = aChannel.receive(buffer);
+		if (source == null)
+			return false;
+		slot.publish(buffer.position(), source);
+		return true;
+	}
+
+	/**
+	 * Makes a filled slot available to the workers.
+	 */
+	void publish(OscPacketSlot aSlot) {
+		long sequence = mProducerSequence;
+		aSlot.mPacketSequence = sequence;
+		aSlot.mSequence = sequence + 1;
+		mProducerSequence = sequence + 1;
+	}
+
+	/**
+	 * Takes the next published slot, waiting for it if the ring is empty.
+	 * 
+	 * @return the slot, or null if the ring is empty and closed.
+	 */
+	public OscPacketSlot take() {
+		for (int round = 0;; round++) {
+			OscPacketSlot slot = poll();
+			if (slot != null)
+				return slot;
+			if (mClosed)
+				return null;
+			mStrategy.idle(round);
+		}
+	}
+
+	/**
+	 * Takes the next published slot, if any.
+	 * 
+	 * @return the slot, or null if the ring is empty.
+	 */
+	public OscPacketSlot poll() {
+		while (true) {
+			long sequence = mConsumerSequence.get();
+			OscPacketSlot slot = mSlots[(int) sequence & mMask];
+			long available = slot.mSequence - (sequence + 1);
+			if (available < 0)
+				return null;
+			if (available == 0 && mConsumerSequence.compareAndSet(sequence, sequence + 1))
+				return slot;
+		}
+	}
+
+	/**
+	 * Frees a taken slot for the producer.
+	 */
+	void release(OscPacketSlot aSlot) {
+		aSlot.mSequence = aSlot.mPacketSequence + mSlots.length;
+	}
+
+	/**
+	 * Closes the ring: the slots still published are taken, then waiting
+	 * threads return null.
+	 */
+	public void close() {
+		mClosed = true;
+	}
+
+	/**
+	 * Returns the number of slots.
+	 * 
+	 * @return the ring capacity.
+	 */
+	public int getNumSlots() {
+		return mSlots.length;
+	}
+
+	/**
+	 * Returns the maximum size of a packet.
+	 * 
+	 * @return the slot size in bytes.
+	 */
+	public int getSlotSize() {
+		return mSlotSize;
+	}
+
+	/**
+	 * Returns the number of published packets.
+	 * 
+	 * @return the published packets count.
+	 */
+	public long getPublishedCount() {
+		return mProducerSequence;
+	}
+
+	/**
+	 * Returns the number of published packets not taken yet by a worker.
+	 * 
+	 * @return the ring depth.
+	 */
+	public int getDepth() {
+		return (int) Math.max(mProducerSequence - mConsumerSequence.get(), 0);
+	}
+
+	/**
+	 * Returns the number of times the producer found the ring full.
+	 * 
+	 * @return the full ring count.
+	 */
+	public long getFullCount() {
+		return mFullCount;
+	}
+}
@@ -0,0 +1,22 @@
+package com.osc.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Interface of the transports able to send encoded OSC packets.
+ */
+public interface OscPacketSender extends Closeable {
+
+	/**
+	 * Sends the packet located between position and limit of the passed
+	 * buffer. The buffer position is advanced by the number of bytes sent.
+	 * 
+	 * @param aPacket
+	 *            the encoded OSC packet.
+	 * @throws IOException
+	 *             if the packet cannot be sent.
+	 */
+	void send(ByteBuffer aPacket) throws IOException;
+}
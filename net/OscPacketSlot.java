@@ -0,0 +1,123 @@
+package com.osc.net;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * Slot of an {@link OscPacketRing}, holding a received packet and its
+ * source address.
+ * <p>
+ * The slot memory is preallocated by the ring. The producer fills
+ * {@link #getBuffer()} and publishes the slot; the worker taking it reads
+ * {@link #getData()}, for instance with
+ * {@link com.osc.OscReader#decode(ByteBuffer, com.osc.OscPacketValidator)},
+ * and calls {@link #release()} once done. Contents decoded from the slot
+ * must not be used after the release, unless detached.
+ * </p>
+ */
+public class OscPacketSlot {
+
+	private final OscPacketRing mRing;
+	/** Writable view of the slot memory, for the producer. */
+	private final ByteBuffer mBuffer;
+	/** Read-only view of the slot memory, for the worker. */
+	private final ByteBuffer mView;
+	/**
+	 * Ring sequence: equal to the next sequence to write when the slot is
+	 * free, to this sequence plus one once published.
+	 */
+	volatile long mSequence;
+	/** Sequence of the published packet. */
+	long mPacketSequence;
+	private int mLength;
+	private SocketAddress mSource;
+
+	/**
+	 * Build a new OscPacketSlot.
+	 * 
+	 * @param aRing
+	 *            the ring owning the slot.
+	 * @param aMemory
+	 *            the slot memory.
+	 * @param aSequence
+	 *            the first sequence written in the slot.
+	 */
+	OscPacketSlot(OscPacketRing aRing, ByteBuffer aMemory, long aSequence) {
+		mRing = aRing;
+		mBuffer = aMemory;
+		mView = aMemory.asReadOnlyBuffer();
+		mSequence = aSequence;
+	}
+
+	/**
+	 * Returns the slot memory to fill, for the producer.
+	 * 
+	 * @return the buffer, with position 0 and limit set to the slot size.
+	 */
+	public ByteBuffer getBuffer() {
+		mBuffer.clear();
+		return mBuffer;
+	}
+
+	/**
+	 * Publishes the slot to the workers, for the producer.
+	 * 
+	 * @param aLength
+	 *            the packet length, from the start of the slot.
+	 * @param aSource
+	 *            the packet source address, or null.
+	 */
+	public void publish(int aLength, SocketAddress aSource) {
+		mLength = aLength;
+		mSource = aSource;
+		mRing.publish(this);
+	}
+
+	/**
+	 * Returns the received packet, for the worker. The view is owned by the
+	 * slot, and reused for the next packet.
+	 * 
+	 * @return a read-only buffer with position 0 and limit set to the packet
+	 *         length.
+	 */
+	public ByteBuffer getData() {
+		mView.limit(mLength);
+		mView.position(0);
+		return mView;
+	}
+
+	/**
+	 * Returns the received packet length.
+	 * 
+	 * @return the number of bytes of the packet.
+	 */
+	public int getLength() {
+		return mLength;
+	}
+
+	/**
+	 * Returns the address the packet was received from.
+	 * 
+	 * @return the source address, or null if unknown.
+	 */
+	public SocketAddress getSource() {
+		return mSource;
+	}
+
+	/**
+	 * Returns the sequence of the packet in the ring.
+	 * 
+	 * @return the packet sequence, starting at 0.
+	 */
+	public long getSequence() {
+		return mPacketSequence;
+	}
+
+	/**
+	 * Gives the slot back to the producer, for the worker.
+	 */
+	public void release() {
+		mSource = null;
+		mRing.release(this);
+	}
+}
@@ -0,0 +1,362 @@
+package com.osc.net;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.osc.OscWaitStrategy;
+
+/**
+ * Ring of packet slots in a memory-mapped file, handing OSC packets between
+ * processes of the same host without system call nor kernel copy.
+ * <p>
+ * The ring works as an {@link OscPacketRing} whose sequences live in the
+ * mapping: one producer claims the next slot, encodes a packet in place, for
+ * instance with {@link com.osc.OscMessageComposer#write(ByteBuffer, com.osc.OscVersion)},
+ * and publishes it; consumers, in the same process or in others, take the
+ * published slots in sequence order, decode them in place with
+ * {@link OscSharedMemorySlot#read(com.osc.OscPacketValidator)} and release
+ * them. Each packet is taken by one consumer. Sequences are read and written
+ * with acquire/release semantics through {@link VarHandle}s on the mapping,
+ * and each sequence has its own cache line.
+ * </p>
+ * <p>
+ * The file is laid out as a header, followed by the slots:
+ * </p>
+ * <ul>
+ * <li>0: magic, 8: slots count, 12: slot size, 16: closed flag,</li>
+ * <li>128: producer sequence, 256: consumer sequence,</li>
+ * <li>384: slots, each made of a sequence, the packet length and the packet,
+ * aligned on cache lines.</li>
+ * </ul>
+ * <p>
+ * The ring is created by one process, normally the producer, and attached by
+ * the others. Only one ring instance may produce at a time. Threads waiting
+ * for a free or a published slot follow the ring {@link OscWaitStrategy}:
+ * BUSY_SPIN gives the lowest latency, provided the producer and the
+ * consumers have dedicated cores.
+ * </p>
+ */
+public class OscSharedMemoryRing implements OscPacketSender {
+
+	/** Magic number, "OSCSHR01". */
+	private static final long MAGIC = 0x4f53435348523031L;
+	private static final int CACHE_LINE = 64;
+	/** Header offsets. */
+	private static final int NUM_SLOTS = 8;
+	private static final int SLOT_SIZE = 12;
+	private static final int CLOSED = 16;
+	private static final int PRODUCER_SEQUENCE = 128;
+	private static final int CONSUMER_SEQUENCE = 256;
+	private static final int HEADER_SIZE = 384;
+	/** Slot offsets. */
+	private static final int SLOT_SEQUENCE = 0;
+	private static final int SLOT_LENGTH = 8;
+	private static final int SLOT_HEADER_SIZE = 16;
+
+	/** Atomic access to the sequences, in the host byte order. */
+	private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+	private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+	private final MappedByteBuffer mMemory;
+	private final OscSharedMemorySlot[] mSlots;
+	private final int mMask;
+	private final int mSlotSize;
+	private final OscWaitStrategy mStrategy;
+	private final boolean mOwner;
+	/** Next sequence to write, cached by the producer. */
+	private long mProducerSequence;
+	private volatile boolean mClosed = false;
+
+	/** Number of claims that found the ring full, written by the producer. */
+	private volatile long mFullCount = 0;
+
+	/**
+	 * Build a new OscSharedMemoryRing, and creates its file. An existing file
+	 * is overwritten.
+	 *
+	 * @param aFile
+	 *            the ring file, for instance in /dev/shm.
+	 * @param aNumSlots
+	 *            the number of slots, a power of two of at least 2: with a
+	 *            single slot, a published packet and a free slot would have
+	 *            the same sequence.
+	 * @param aMaxPacketSize
+	 *            the maximum size of a packet.
+	 * @param aStrategy
+	 *            the wait strategy of the producer and the consumers.
+	 * @throws IOException
+	 *             if the file cannot be created.
+	 */
+	public OscSharedMemoryRing(Path aFile, int aNumSlots, int aMaxPacketSize, OscWaitStrategy aStrategy)
+			throws IOException {
+		if (aNumSlots < 2 || Integer.bitCount(aNumSlots) != 1)
+			throw new IllegalArgumentException("Slots count must be a power of two, at least 2");
+		if (aMaxPacketSize <= 0)
+			throw new IllegalArgumentException("Packet size must be positive");
+		mSlotSize = (aMaxPacketSize + SLOT_HEADER_SIZE + CACHE_LINE - 1) & ~(CACHE_LINE - 1);
+		long size = HEADER_SIZE + (long) aNumSlots * mSlotSize;
+		if (size > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Ring larger than 2 GB");
+		FileChannel channel = FileChannel.open(aFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			mMemory = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		} finally {
+			channel.close();
+		}
+		mMemory.order(ByteOrder.nativeOrder());
+		mMemory.putInt(NUM_SLOTS, aNumSlots);
+		mMemory.putInt(SLOT_SIZE, mSlotSize);
+		for (int i = 0; i < aNumSlots; i++)
+			LONG.setRelease(mMemory, HEADER_SIZE + i * mSlotSize + SLOT_SEQUENCE, (long) i);
+		// The magic number tells attaching processes that the ring is ready
+		LONG.setRelease(mMemory, 0, MAGIC);
+		mMask = aNumSlots - 1;
+		mStrategy = aStrategy;
+		mOwner = true;
+		mSlots = createSlots(aNumSlots);
+	}
+
+	/**
+	 * Build a new OscSharedMemoryRing, attached to a ring created by another
+	 * process.
+	 *
+	 * @param aFile
+	 *            the ring file.
+	 * @param aStrategy
+	 *            the wait strategy of this process threads.
+	 * @throws IOException
+	 *             if the file cannot be read, or is not an initialized ring.
+	 */
+	public OscSharedMemoryRing(Path aFile, OscWaitStrategy aStrategy) throws IOException {
+		FileChannel channel = FileChannel.open(aFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			if (channel.size() < HEADER_SIZE)
+				throw new IOException("not a shared memory ring");
+			mMemory = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+		} finally {
+			channel.close();
+		}
+		mMemory.order(ByteOrder.nativeOrder());
+		if ((long) LONG.getAcquire(mMemory, 0) != MAGIC)
+			throw new IOException("not a shared memory ring, or not initialized yet");
+		int numSlots = mMemory.getInt(NUM_SLOTS);
+		mSlotSize = mMemory.getInt(SLOT_SIZE);
+		if (numSlots < 2 || Integer.bitCount(numSlots) != 1 || mSlotSize <= SLOT_HEADER_SIZE
+				|| HEADER_SIZE + (long) numSlots * mSlotSize > mMemory.capacity())
+			throw new IOException("bad shared memory ring header");
+		mMask = numSlots - 1;
+		mStrategy = aStrategy;
+		mOwner = false;
+		mProducerSequence = (long) LONG.getAcquire(mMemory, PRODUCER_SEQUENCE);
+		mSlots = createSlots(numSlots);
+	}
+
+	/**
+	 * Creates the slots, over the mapped memory.
+	 */
+	private OscSharedMemorySlot[] createSlots(int aNumSlots) {
+		OscSharedMemorySlot[] slots = new OscSharedMemorySlot[aNumSlots];
+		for (int i = 0; i < aNumSlots; i++) {
+			ByteBuffer memory = mMemory.duplicate();
+			int start = HEADER_SIZE + i * mSlotSize;
+			memory.limit(start + mSlotSize);
+			memory.position(start + SLOT_HEADER_SIZE);
+			slots[i] = new OscSharedMemorySlot(this, start, memory.slice());
+		}
+		return slots;
+	}
+
+	/**
+	 * Returns the sequence of the slot at aStart.
+	 */
+	private long getSequence(int aStart) {
+		return (long) LONG.getAcquire(mMemory, aStart + SLOT_SEQUENCE);
+	}
+
+	/**
+	 * Returns true if the ring is closed, locally or by the owner process.
+	 */
+	private boolean isClosed() {
+		return mClosed || (int) INT.getAcquire(mMemory, CLOSED) != 0;
+	}
+
+	/**
+	 * Returns the next slot to fill, waiting for it to be released if the
+	 * ring is full. Producer only.
+	 *
+	 * @return the slot, or null if the ring is closed.
+	 */
+	public OscSharedMemorySlot claim() {
+		long sequence = mProducerSequence;
+		OscSharedMemorySlot slot = mSlots[(int) sequence & mMask];
+		if (getSequence(slot.mStart) != sequence) {
+			mFullCount++;
+			for (int round = 0; getSequence(slot.mStart) != sequence; round++) {
+				if (isClosed())
+					return null;
+				mStrategy.idle(round);
+			}
+		}
+		return isClosed() ? null : slot;
+	}
+
+	/**
+	 * Returns the next slot to fill, if it is free. Producer only.
+	 *
+	 * @return the slot, or null if the ring is full or closed.
+	 */
+	public OscSharedMemorySlot tryClaim() {
+		long sequence = mProducerSequence;
+		OscSharedMemorySlot slot = mSlots[(int) sequence & mMask];
+		if (getSequence(slot.mStart) != sequence) {
+			mFullCount++;
+			return null;
+		}
+		return isClosed() ? null : slot;
+	}
+
+	/**
+	 * Copies a packet in the next slot and publishes it, waiting for a free
+	 * slot if the ring is full. Producer only.
+	 *
+	 * @see com.osc.net.OscPacketSender#send(java.nio.ByteBuffer)
+	 * @throws IOException
+	 *             if the ring is closed, or the packet larger than a slot.
+	 */
+	@Override
+	public void send(ByteBuffer aPacket) throws IOException {
+		if (aPacket.remaining() > mSlotSize - SLOT_HEADER_SIZE)
+			throw new IOException("packet larger than a ring slot");
+		OscSharedMemorySlot slot = claim();
+		if (slot == null)
+			throw new IOException("ring closed");
+		ByteBuffer buffer = slot.getBuffer();
+		buffer.put(aPacket);
+		slot.publish(buffer.position());
+	}
+
+	/**
+	 * Makes a filled slot available to the consumers.
+	 */
+	void publish(OscSharedMemorySlot aSlot, int aLength) {
+		long sequence = mProducerSequence;
+		mMemory.putInt(aSlot.mStart + SLOT_LENGTH, aLength);
+		LONG.setRelease(mMemory, aSlot.mStart + SLOT_SEQUENCE, sequence + 1);
+		mProducerSequence = sequence + 1;
+		LONG.setRelease(mMemory, PRODUCER_SEQUENCE, sequence + 1);
+	}
+
+	/**
+	 * Takes the next published slot, waiting for it if the ring is empty.
+	 *
+	 * @return the slot, or null if the ring is empty and closed.
+	 */
+	public OscSharedMemorySlot take() {
+		for (int round = 0;; round++) {
+			OscSharedMemorySlot slot = poll();
+			if (slot != null)
+				return slot;
+			if (isClosed())
+				return null;
+			mStrategy.idle(round);
+		}
+	}
+
+	/**
+	 * Takes the next published slot, if any.
+	 *
+	 * @return the slot, or null if the ring is empty.
+	 */
+	public OscSharedMemorySlot poll() {
+		while (true) {
+			long sequence = (long) LONG.getAcquire(mMemory, CONSUMER_SEQUENCE);
+			OscSharedMemorySlot slot = mSlots[(int) sequence & mMask];
+			long available = getSequence(slot.mStart) - (sequence + 1);
+			if (available < 0)
+				return null;
+			if (available == 0 && LONG.compareAndSet(mMemory, CONSUMER_SEQUENCE, sequence, sequence + 1)) {
+				slot.mPacketSequence = sequence;
+				slot.mLength = mMemory.getInt(slot.mStart + SLOT_LENGTH);
+				return slot;
+			}
+		}
+	}
+
+	/**
+	 * Frees a taken slot for the producer.
+	 */
+	void release(OscSharedMemorySlot aSlot) {
+		LONG.setRelease(mMemory, aSlot.mStart + SLOT_SEQUENCE, aSlot.mPacketSequence + mSlots.length);
+	}
+
+	/**
+	 * Closes the ring in this process: waiting threads return null. When
+	 * called on the ring owner, the ring is closed for all processes, once
+	 * the published packets are taken.
+	 */
+	@Override
+	public void close() {
+		mClosed = true;
+		if (mOwner)
+			INT.setRelease(mMemory, CLOSED, 1);
+	}
+
+	/**
+	 * Returns the number of slots.
+	 *
+	 * @return the ring capacity.
+	 */
+	public int getNumSlots() {
+		return mSlots.length;
+	}
+
+	/**
+	 * Returns the maximum size of a packet.
+	 *
+	 * @return the slot capacity in bytes.
+	 */
+	public int getMaxPacketSize() {
+		return mSlotSize - SLOT_HEADER_SIZE;
+	}
+
+	/**
+	 * Returns the number of packets published in the ring, by all processes.
+	 *
+	 * @return the published packets count.
+	 */
+	public long getPublishedCount() {
+		return (long) LONG.getAcquire(mMemory, PRODUCER_SEQUENCE);
+	}
+
+	/**
+	 * Returns the number of published packets not taken yet by a consumer.
+	 *
+	 * @return the ring depth.
+	 */
+	public int getDepth() {
+		return (int) Math.max(getPublishedCount() - (long) LONG.getAcquire(mMemory, CONSUMER_SEQUENCE), 0);
+	}
+
+	/**
+	 * Returns the number of times the producer of this process found the ring
+	 * full.
+	 *
+	 * @return the full ring count.
+	 */
+	public long getFullCount() {
+		return mFullCount;
+	}
+
+	@Override
+	public String toString() {
+		return "shm:" + mSlots.length + "x" + mSlotSize;
+	}
+}
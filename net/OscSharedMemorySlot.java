@@ -0,0 +1,122 @@
+package com.osc.net;
+
+import java.nio.ByteBuffer;
+
+import com.osc.OscPacketValidator;
+import com.osc.OscReader;
+
+/**
+ * Slot of an {@link OscSharedMemoryRing}, holding one packet in the mapped
+ * ring file.
+ * <p>
+ * The producer encodes a packet in {@link #getBuffer()} and publishes the
+ * slot; the consumer taking it reads {@link #getData()}, or decodes it in
+ * place with {@link #read(OscPacketValidator)}, and calls {@link #release()}
+ * once done. Contents decoded from the slot must not be used after the
+ * release, unless detached.
+ * </p>
+ */
+public class OscSharedMemorySlot {
+
+	private final OscSharedMemoryRing mRing;
+	/** Position of the slot in the mapping. */
+	final int mStart;
+	/** Writable view of the slot packet memory, for the producer. */
+	private final ByteBuffer mBuffer;
+	/** Read-only view of the slot packet memory, for the consumer. */
+	private final ByteBuffer mView;
+	/** Sequence and length of the taken packet, for the consumer. */
+	long mPacketSequence;
+	int mLength;
+
+	/**
+	 * Build a new OscSharedMemorySlot.
+	 *
+	 * @param aRing
+	 *            the ring owning the slot.
+	 * @param aStart
+	 *            the position of the slot in the mapping.
+	 * @param aMemory
+	 *            the slot packet memory.
+	 */
+	OscSharedMemorySlot(OscSharedMemoryRing aRing, int aStart, ByteBuffer aMemory) {
+		mRing = aRing;
+		mStart = aStart;
+		mBuffer = aMemory;
+		mView = aMemory.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Returns the slot memory to fill, for the producer.
+	 *
+	 * @return the buffer, in BIG_ENDIAN order, with position 0 and limit set
+	 *         to the maximum packet size.
+	 */
+	public ByteBuffer getBuffer() {
+		mBuffer.clear();
+		return mBuffer;
+	}
+
+	/**
+	 * Publishes the slot to the consumers, for the producer.
+	 *
+	 * @param aLength
+	 *            the packet length, from the start of the slot.
+	 */
+	public void publish(int aLength) {
+		if (aLength < 0 || aLength > mBuffer.capacity())
+			throw new IllegalArgumentException("Bad packet length");
+		mRing.publish(this, aLength);
+	}
+
+	/**
+	 * Returns the taken packet, for the consumer. The view is owned by the
+	 * slot, and reused for the next packet.
+	 *
+	 * @return a read-only buffer with position 0 and limit set to the packet
+	 *         length.
+	 */
+	public ByteBuffer getData() {
+		mView.limit(mLength);
+		mView.position(0);
+		return mView;
+	}
+
+	/**
+	 * Decodes the taken packet in place, for the consumer.
+	 *
+	 * @param aValidator
+	 *            the validator to use, that holds the error on return.
+	 * @return the reader on the decoded packet, or null if the packet is not
+	 *         valid.
+	 * @see OscReader#decode(ByteBuffer, OscPacketValidator)
+	 */
+	public OscReader read(OscPacketValidator aValidator) {
+		return OscReader.decode(getData(), aValidator);
+	}
+
+	/**
+	 * Returns the taken packet length.
+	 *
+	 * @return the number of bytes of the packet.
+	 */
+	public int getLength() {
+		return mLength;
+	}
+
+	/**
+	 * Returns the sequence of the taken packet in the ring.
+	 *
+	 * @return the packet sequence, starting at 0.
+	 */
+	public long getSequence() {
+		return mPacketSequence;
+	}
+
+	/**
+	 * Gives the slot back to the producer, for the consumer.
+	 */
+	public void release() {
+		mRing.release(this);
+	}
+}
@@ -0,0 +1,122 @@
+package com.osc.net;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference-counted encoded OSC packet, shared between several consumers.
+ * <p>
+ * The packet is created with one reference, owned by its creator. Each
+ * consumer retains the packet before using it, and releases it once done.
+ * When the last reference is released, {@link #deallocate()} is called, so
+ * that the packet memory can be recycled by subclasses.
+ * </p>
+ */
+public class OscSharedPacket {
+
+	/** The encoded packet, from position 0 to limit. */
+	private final ByteBuffer mData;
+	/** Time of creation of the packet, from {@link System#nanoTime()}. */
+	private final long mCreationTime;
+	/** Number of references to this packet. */
+	private final AtomicInteger mRefCount = new AtomicInteger(1);
+
+	/**
+	 * Build a new OscSharedPacket.
+	 * 
+	 * @param aData
+	 *            the encoded packet, between position and limit.
+	 */
+	public OscSharedPacket(ByteBuffer aData) {
+		mData = aData.slice().asReadOnlyBuffer();
+		mCreationTime = System.nanoTime();
+	}
+
+	/**
+	 * Build a new OscSharedPacket.
+	 * 
+	 * @param aData
+	 *            the encoded packet.
+	 */
+	public OscSharedPacket(byte[] aData) {
+		this(ByteBuffer.wrap(aData));
+	}
+
+	/**
+	 * Returns a new view of the packet bytes, that can be consumed without
+	 * affecting other consumers.
+	 * 
+	 * @return a read-only buffer with position 0 and limit set to the packet
+	 *         size.
+	 */
+	public ByteBuffer getData() {
+		return mData.duplicate();
+	}
+
+	/**
+	 * Returns the packet size.
+	 * 
+	 * @return the number of bytes of the packet.
+	 */
+	public int getSize() {
+		return mData.limit();
+	}
+
+	/**
+	 * Returns the time of creation of the packet.
+	 * 
+	 * @return the creation time, from {@link System#nanoTime()}.
+	 */
+	public long getCreationTime() {
+		return mCreationTime;
+	}
+
+	/**
+	 * Adds a reference to this packet.
+	 * 
+	 * @return this packet.
+	 * @throws IllegalStateException
+	 *             if the packet has already been deallocated.
+	 */
+	public OscSharedPacket retain() {
+		int refCount;
+		do {
+			refCount = mRefCount.get();
+			if (refCount <= 0)
+				throw new IllegalStateException("packet already released");
+		} while (!mRefCount.compareAndSet(refCount, refCount + 1));
+		return this;
+	}
+
+	/**
+	 * Removes a reference to this packet, and deallocates it if it was the
+	 * last one.
+	 * 
+	 * @return true if the packet has been deallocated.
+	 */
+	public boolean release() {
+		int refCount = mRefCount.decrementAndGet();
+		if (refCount < 0)
+			throw new IllegalStateException("packet already released");
+		if (refCount == 0) {
+			deallocate();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the current number of references to this packet.
+	 * 
+	 * @return the reference count.
+	 */
+	public int getRefCount() {
+		return mRefCount.get();
+	}
+
+	/**
+	 * Called when the last reference is released. Does nothing by default.
+	 */
+	protected void deallocate() {
+	}
+}
@@ -0,0 +1,161 @@
+package com.osc.net;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import com.osc.memory.OscPacketArena;
+import com.osc.memory.OscPacketLease;
+
+/**
+ * Receiver of the size-prefixed OSC packets of a stream socket, Unix domain
+ * or TCP, as sent by an {@link OscStreamSender}.
+ * <p>
+ * The stream is read in bulk into a direct buffer, then each packet is
+ * copied into a lease of an {@link OscPacketArena}, as done for datagrams:
+ * leases are decoded in place with
+ * {@link com.osc.OscReader#decode(OscPacketLease, com.osc.OscPacketValidator)},
+ * and released once done. Packets larger than the receive buffer are read
+ * directly into their lease.
+ * </p>
+ * <p>
+ * Receivers are not thread-safe. A bad frame size means the stream is out of
+ * sync: the connection must be closed.
+ * </p>
+ */
+public class OscStreamReceiver implements Closeable {
+
+	/** Default size of the receive buffer. */
+	public static final int DEFAULT_BUFFER_SIZE = 65536;
+
+	private final SocketChannel mChannel;
+	private final OscPacketArena mArena;
+	private final int mMaxPacketSize;
+	/** Bytes read and not consumed yet, between position and limit. */
+	private final ByteBuffer mInput;
+
+	private long mReceivedCount = 0;
+	private long mReceivedBytes = 0;
+
+	/**
+	 * Build a new OscStreamReceiver, with the default buffer size.
+	 *
+	 * @param aChannel
+	 *            the connected channel, in blocking mode.
+	 * @param aArena
+	 *            the arena holding the received packets.
+	 */
+	public OscStreamReceiver(SocketChannel aChannel, OscPacketArena aArena) {
+		this(aChannel, aArena, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Build a new OscStreamReceiver.
+	 *
+	 * @param aChannel
+	 *            the connected channel, in blocking mode.
+	 * @param aArena
+	 *            the arena holding the received packets.
+	 * @param aBufferSize
+	 *            the size of the receive buffer.
+	 */
+	public OscStreamReceiver(SocketChannel aChannel, OscPacketArena aArena, int aBufferSize) {
+		if (aBufferSize < 4)
+			throw new IllegalArgumentException("Buffer size must hold a frame size");
+		mChannel = aChannel;
+		mArena = aArena;
+		mMaxPacketSize = aArena.getChunkSize(aArena.getNumSizeClasses() - 1);
+		mInput = ByteBuffer.allocateDirect(aBufferSize);
+		mInput.flip();
+	}
+
+	/**
+	 * Receives the next packet, waiting for it.
+	 *
+	 * @return the lease holding the packet, with one reference owned by the
+	 *         caller, or null if the peer closed the stream.
+	 * @throws IOException
+	 *             if the stream cannot be read, ends within a frame, or holds
+	 *             a bad frame size.
+	 */
+	public OscPacketLease receive() throws IOException {
+		if (!fill(4))
+			return null;
+		int size = mInput.getInt();
+		if (size <= 0 || size > mMaxPacketSize)
+			throw new IOException("bad OSC frame size " + size);
+		OscPacketLease lease = mArena.acquire(size);
+		try {
+			ByteBuffer buffer = lease.getBuffer();
+			int buffered = Math.min(size, mInput.remaining());
+			ByteBuffer input = mInput.duplicate();
+			input.limit(input.position() + buffered);
+			buffer.put(input);
+			mInput.position(mInput.position() + buffered);
+			while (buffer.hasRemaining()) {
+				if (mChannel.read(buffer) < 0)
+					throw new EOFException("stream closed within an OSC frame");
+			}
+		} catch (IOException e) {
+			lease.release();
+			throw e;
+		}
+		mReceivedCount++;
+		mReceivedBytes += size;
+		return lease;
+	}
+
+	/**
+	 * Reads the stream until aSize bytes are buffered.
+	 *
+	 * @return false if the stream ended before any byte.
+	 */
+	private boolean fill(int aSize) throws IOException {
+		while (mInput.remaining() < aSize) {
+			mInput.compact();
+			int count;
+			try {
+				count = mChannel.read(mInput);
+			} finally {
+				mInput.flip();
+			}
+			if (count < 0) {
+				if (mInput.hasRemaining())
+					throw new EOFException("stream closed within an OSC frame");
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of packets received.
+	 *
+	 * @return the received packets count.
+	 */
+	public long getReceivedCount() {
+		return mReceivedCount;
+	}
+
+	/**
+	 * Returns the number of packet bytes received, size prefixes excluded.
+	 *
+	 * @return the received bytes count.
+	 */
+	public long getReceivedBytes() {
+		return mReceivedBytes;
+	}
+
+	/**
+	 * Closes the connection.
+	 *
+	 * @throws IOException
+	 *             if the channel cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		mChannel.close();
+	}
+}
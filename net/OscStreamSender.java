@@ -0,0 +1,87 @@
+package com.osc.net;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * OSC packet sender over a stream socket, Unix domain or TCP.
+ * <p>
+ * Packets are framed as in OSC 1.0 stream transports: each packet is
+ * preceded by its size, as a big-endian int32 (see
+ * {@link com.osc.OscVersion#OSC_10}). The size and the packet are written
+ * with one gathering write. Frames are received by an
+ * {@link OscStreamReceiver}.
+ * </p>
+ * <p>
+ * Local peers are reached with a {@link java.net.UnixDomainSocketAddress}.
+ * The JDK does not provide Unix domain datagram channels, so the stream
+ * framing is used for them as well.
+ * </p>
+ */
+public class OscStreamSender implements OscPacketSender {
+
+	private final SocketChannel mChannel;
+	private final SocketAddress mDestination;
+	/** Frame size prefix, and the segments of the frame being written. */
+	private final ByteBuffer mHeader = ByteBuffer.allocate(4);
+	private final ByteBuffer[] mFrame = new ByteBuffer[2];
+
+	/**
+	 * Build a new OscStreamSender, and connects it to its destination.
+	 *
+	 * @param aDestination
+	 *            the address of the receiver, a
+	 *            {@link java.net.UnixDomainSocketAddress} or an
+	 *            {@link java.net.InetSocketAddress}.
+	 * @throws IOException
+	 *             if the channel cannot be connected.
+	 */
+	public OscStreamSender(SocketAddress aDestination) throws IOException {
+		mDestination = aDestination;
+		mChannel = SocketChannel.open(aDestination);
+	}
+
+	/**
+	 * Returns the address where packets are sent.
+	 *
+	 * @return the destination address.
+	 */
+	public SocketAddress getDestination() {
+		return mDestination;
+	}
+
+	/**
+	 * Sends the packet with its size prefix. Threads sending at once are
+	 * serialized, so that frames are not interleaved.
+	 *
+	 * @see com.osc.net.OscPacketSender#send(java.nio.ByteBuffer)
+	 */
+	@Override
+	public synchronized void send(ByteBuffer aPacket) throws IOException {
+		mHeader.clear();
+		mHeader.putInt(0, aPacket.remaining());
+		mFrame[0] = mHeader;
+		mFrame[1] = aPacket;
+		try {
+			while (aPacket.hasRemaining() || mHeader.hasRemaining())
+				mChannel.write(mFrame);
+		} finally {
+			mFrame[1] = null;
+		}
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		mChannel.close();
+	}
+
+	@Override
+	public String toString() {
+		return "stream:" + mDestination;
+	}
+}
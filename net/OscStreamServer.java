@@ -0,0 +1,141 @@
+package com.osc.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.BindException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import com.osc.memory.OscPacketArena;
+
+/**
+ * Listening stream socket, Unix domain or TCP, accepting the connections of
+ * {@link OscStreamSender}s.
+ * <p>
+ * For a Unix domain address, a stale socket file left by a previous server
+ * is deleted before binding, and the socket file is deleted on close. An
+ * existing file is only deleted if it is a socket no server listens on
+ * anymore: binding fails on any other file, or on a live socket.
+ * </p>
+ */
+public class OscStreamServer implements Closeable {
+
+	private final ServerSocketChannel mChannel;
+	private final SocketAddress mAddress;
+	private final OscPacketArena mArena;
+
+	/**
+	 * Build a new OscStreamServer, and binds it.
+	 *
+	 * @param aAddress
+	 *            the address to listen on, a {@link UnixDomainSocketAddress}
+	 *            or an {@link java.net.InetSocketAddress}.
+	 * @param aArena
+	 *            the arena holding the packets received on the accepted
+	 *            connections.
+	 * @throws IOException
+	 *             if the socket cannot be bound, or the Unix domain socket
+	 *             path is used by a file other than a stale socket.
+	 */
+	public OscStreamServer(SocketAddress aAddress, OscPacketArena aArena) throws IOException {
+		mArena = aArena;
+		if (aAddress instanceof UnixDomainSocketAddress) {
+			deleteStaleSocket((UnixDomainSocketAddress) aAddress);
+			mChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		} else {
+			mChannel = ServerSocketChannel.open();
+		}
+		try {
+			mChannel.bind(aAddress);
+		} catch (IOException e) {
+			mChannel.close();
+			throw e;
+		}
+		mAddress = mChannel.getLocalAddress();
+	}
+
+	/**
+	 * Deletes the file at a Unix domain socket path, if it is a socket no
+	 * server accepts connections on.
+	 *
+	 * @throws BindException
+	 *             if the path is used by another kind of file, or by a live
+	 *             socket.
+	 */
+	private static void deleteStaleSocket(UnixDomainSocketAddress aAddress) throws IOException {
+		Path path = aAddress.getPath();
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		} catch (NoSuchFileException e) {
+			return;
+		}
+		if (!attributes.isOther() || !isSocket(path))
+			throw new BindException("Unix domain socket path is used by another file: " + path);
+		try {
+			SocketChannel.open(aAddress).close();
+		} catch (IOException e) {
+			// Connection refused: no server listens on the socket anymore
+			Files.deleteIfExists(path);
+			return;
+		}
+		throw new BindException("Unix domain socket is in use: " + path);
+	}
+
+	/**
+	 * Returns whether a file is a socket, or may be one if the file system
+	 * does not provide the file type.
+	 */
+	private static boolean isSocket(Path aPath) throws IOException {
+		try {
+			int mode = ((Integer) Files.getAttribute(aPath, "unix:mode", LinkOption.NOFOLLOW_LINKS)).intValue();
+			return (mode & 0170000) == 0140000;
+		} catch (UnsupportedOperationException e) {
+			return true;
+		} catch (IllegalArgumentException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Waits for the next connection.
+	 *
+	 * @return the receiver of the packets of the connection.
+	 * @throws IOException
+	 *             if the server is closed, or the connection cannot be
+	 *             accepted.
+	 */
+	public OscStreamReceiver accept() throws IOException {
+		return new OscStreamReceiver(mChannel.accept(), mArena);
+	}
+
+	/**
+	 * Returns the address the server listens on.
+	 *
+	 * @return the bound address.
+	 */
+	public SocketAddress getAddress() {
+		return mAddress;
+	}
+
+	/**
+	 * Stops listening. Accepted connections are not closed.
+	 *
+	 * @throws IOException
+	 *             if the channel cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		mChannel.close();
+		if (mAddress instanceof UnixDomainSocketAddress)
+			Files.deleteIfExists(((UnixDomainSocketAddress) mAddress).getPath());
+	}
+}
@@ -0,0 +1,8 @@
+/**
+ * OSC networking classes
+ * 
+ * Package com.osc.net embed the classes to send and receive
+ * encoded OSC packets.
+ */
+package com.osc.net;
+
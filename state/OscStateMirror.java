@@ -0,0 +1,283 @@
+package com.osc.state;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+import com.osc.OscMessage;
+import com.osc.OscPacketValidator;
+import com.osc.OscReader;
+import com.osc.exception.OscBadDataTypeRequestException;
+
+/**
+ * Concurrent mirror of the latest value of each address of an OSC stream.
+ * <p>
+ * For each address, the mirror keeps the encoded type tags and data of the
+ * latest message in a byte array, copied from the parsed message without
+ * decoding nor encoding any value, and the number of updates of the address
+ * as a sequence number.
+ * </p>
+ * <p>
+ * Readers never take a lock: each address is protected by a
+ * {@link StampedLock}, taken by writers only, and readers use optimistic
+ * reads, retried while an update of the address is in progress or occurred
+ * meanwhile. Readers thus never block writers, nor each other. Each value
+ * read, visited, or written to a state dump, is consistent, although the
+ * dump is not an atomic snapshot of all the addresses.
+ * </p>
+ */
+public class OscStateMirror {
+
+	/** Latest value of one address. */
+	private static final class Slot {
+		final String mAddress;
+		/** Encoded address pattern, null terminated and aligned. */
+		final byte[] mAddressBytes;
+		final StampedLock mLock = new StampedLock();
+		/** Guarded by mLock. */
+		byte[] mArguments = new byte[16];
+		int mLength = 0;
+		long mSequence = 0;
+
+		Slot(String aAddress) {
+			mAddress = aAddress;
+			byte[] bytes = aAddress.getBytes();
+			mAddressBytes = new byte[(bytes.length + 4) & ~0x03];
+			System.arraycopy(bytes, 0, mAddressBytes, 0, bytes.length);
+		}
+	}
+
+	private final ConcurrentHashMap<String, Slot> mSlots = new ConcurrentHashMap<String, Slot>();
+
+	/**
+	 * Records the passed message as the latest value of its address.
+	 * 
+	 * @param aMessage
+	 *            the parsed message.
+	 * @return the sequence number of the address after the update.
+	 * @throws OscBadDataTypeRequestException
+	 *             if the message address cannot be read.
+	 */
+	public long update(OscMessage aMessage) throws OscBadDataTypeRequestException {
+		String address = aMessage.getValue(0).getAddress();
+		ByteBuffer arguments = aMessage.argumentsSlice();
+		Slot slot = mSlots.get(address);
+		if (slot == null) {
+			// Slots are filled before being published, so that readers never
+			// see an address without value
+			Slot newSlot = new Slot(address);
+			long sequence = write(newSlot, arguments.duplicate());
+			slot = mSlots.putIfAbsent(address, newSlot);
+			if (slot == null)
+				return sequence;
+		}
+		return write(slot, arguments);
+	}
+
+	/**
+	 * Copies the passed encoded type tags and data into the slot.
+	 * 
+	 * @return the sequence number of the slot after the update.
+	 */
+	private static long write(Slot aSlot, ByteBuffer aArguments) {
+		int length = aArguments.remaining();
+		long stamp = aSlot.mLock.writeLock();
+		try {
+			if (aSlot.mArguments.length < length)
+				aSlot.mArguments = new byte[Math.max(length, 2 * aSlot.mArguments.length)];
+			aArguments.get(aSlot.mArguments, 0, length);
+			aSlot.mLength = length;
+			return ++aSlot.mSequence;
+		} finally {
+			aSlot.mLock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Copies a consistent state of the passed slot into dst, from its
+	 * position.
+	 * 
+	 * @return the sequence number of the copied value, dst position being
+	 *         advanced by the value size.
+	 */
+	private static long read(Slot aSlot, ByteBuffer dst) {
+		int dstIdx = dst.position();
+		while (true) {
+			long stamp = aSlot.mLock.tryOptimisticRead();
+			if (stamp == 0) {
+				// Update in progress
+				Thread.onSpinWait();
+				continue;
+			}
+			byte[] arguments = aSlot.mArguments;
+			int length = aSlot.mLength;
+			long sequence = aSlot.mSequence;
+			if (length <= arguments.length) {
+				if (length > dst.remaining()) {
+					if (aSlot.mLock.validate(stamp))
+						throw new BufferOverflowException();
+					continue;
+				}
+				dst.put(arguments, 0, length);
+				if (aSlot.mLock.validate(stamp))
+					return sequence;
+				dst.position(dstIdx);
+			}
+		}
+	}
+
+	/**
+	 * Copies the latest type tags and data received for the passed address.
+	 * 
+	 * @param aAddress
+	 *            the address pattern.
+	 * @param dst
+	 *            the buffer where to copy the encoded type tags and data.
+	 * @return the sequence number of the copied value, or 0 if no message was
+	 *         received for this address.
+	 * @throws BufferOverflowException
+	 *             if there is not enough remaining space in dst.
+	 */
+	public long get(String aAddress, ByteBuffer dst) {
+		Slot slot = mSlots.get(aAddress);
+		return slot == null ? 0 : read(slot, dst);
+	}
+
+	/**
+	 * Returns the latest message received for the passed address.
+	 * 
+	 * @param aAddress
+	 *            the address pattern.
+	 * @return a new message, or null if no message was received for this
+	 *         address.
+	 */
+	public OscMessage getMessage(String aAddress) {
+		Slot slot = mSlots.get(aAddress);
+		if (slot == null)
+			return null;
+		ByteBuffer message;
+		while (true) {
+			message = ByteBuffer.allocate(slot.mAddressBytes.length + slot.mArguments.length);
+			message.put(slot.mAddressBytes);
+			try {
+				read(slot, message);
+				break;
+			} catch (BufferOverflowException e) {
+				// arguments grown meanwhile
+			}
+		}
+		message.flip();
+		// Mirrored messages were parsed once already: decode them as trusted
+		OscReader reader = OscReader.decode(message, new OscPacketValidator(false));
+		try {
+			if (reader == null)
+				throw new IllegalStateException("mirrored message cannot be parsed");
+			return reader.getMessage();
+		} catch (OscBadDataTypeRequestException e) {
+			throw new IllegalStateException("mirrored message cannot be parsed", e);
+		}
+	}
+
+	/**
+	 * Returns the number of updates received for the passed address.
+	 * 
+	 * @param aAddress
+	 *            the address pattern.
+	 * @return the address sequence number, or 0 if no message was received.
+	 */
+	public long getSequence(String aAddress) {
+		Slot slot = mSlots.get(aAddress);
+		if (slot == null)
+			return 0;
+		while (true) {
+			long stamp = slot.mLock.tryOptimisticRead();
+			long sequence = slot.mSequence;
+			if (stamp != 0 && slot.mLock.validate(stamp))
+				return sequence;
+			Thread.onSpinWait();
+		}
+	}
+
+	/**
+	 * Returns the number of mirrored addresses.
+	 * 
+	 * @return the number of addresses.
+	 */
+	public int size() {
+		return mSlots.size();
+	}
+
+	/**
+	 * Iterates over all the mirrored addresses, with a consistent copy of the
+	 * latest value of each address.
+	 * 
+	 * @param aVisitor
+	 *            the visitor called for each address.
+	 */
+	public void visit(OscStateVisitor aVisitor) {
+		ByteBuffer scratch = ByteBuffer.allocate(256);
+		for (Slot slot : mSlots.values()) {
+			while (true) {
+				scratch.clear();
+				try {
+					long sequence = read(slot, scratch);
+					scratch.flip();
+					aVisitor.visit(slot.mAddress, sequence, scratch);
+					break;
+				} catch (BufferOverflowException e) {
+					scratch = ByteBuffer.allocate(2 * scratch.capacity());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes a state dump of all the mirrored addresses, as an OSC bundle
+	 * embedding the latest message of each address.
+	 * 
+	 * @param aTimeTag
+	 *            the time tag of the bundle.
+	 * @param dst
+	 *            the buffer where to write the bundle, from its position.
+	 * @return the number of bytes written.
+	 * @throws BufferOverflowException
+	 *             if there is not enough remaining space in dst.
+	 */
+	public int writeSnapshot(long aTimeTag, ByteBuffer dst) {
+		int dstIdx = dst.position();
+		dst.put("#bundle\0".getBytes());
+		dst.putLong(aTimeTag);
+		for (Slot slot : mSlots.values()) {
+			int sizeIdx = dst.position();
+			dst.putInt(0);
+			dst.put(slot.mAddressBytes);
+			read(slot, dst);
+			dst.putInt(sizeIdx, dst.position() - sizeIdx - 4);
+		}
+		return dst.position() - dstIdx;
+	}
+
+	/**
+	 * Returns a state dump of all the mirrored addresses.
+	 * 
+	 * @param aTimeTag
+	 *            the time tag of the bundle.
+	 * @return the encoded bundle.
+	 * @see #writeSnapshot(long, ByteBuffer)
+	 */
+	public byte[] getSnapshot(long aTimeTag) {
+		int capacity = 1024;
+		while (true) {
+			ByteBuffer dst = ByteBuffer.allocate(capacity);
+			try {
+				int size = writeSnapshot(aTimeTag, dst);
+				byte[] snapshot = new byte[size];
+				System.arraycopy(dst.array(), 0, snapshot, 0, size);
+				return snapshot;
+			} catch (BufferOverflowException e) {
+				capacity *= 2;
+			}
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package com.osc.state;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Interface of the objects iterating over the addresses of an
+ * {@link OscStateMirror}.
+ */
+public interface OscStateVisitor {
+
+	/**
+	 * Called for each address of the state mirror, with a consistent copy of
+	 * its latest value.
+	 * 
+	 * @param aAddress
+	 *            the address pattern.
+	 * @param aSequence
+	 *            the number of updates of the address.
+	 * @param aArguments
+	 *            the encoded type tags and data of the latest message. The
+	 *            buffer is only valid during the call.
+	 */
+	void visit(String aAddress, long aSequence, ByteBuffer aArguments);
+}
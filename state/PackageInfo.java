@@ -0,0 +1,8 @@
+/**
+ * OSC state classes
+ * 
+ * Package com.osc.state embed the classes to keep track of
+ * the values sent to an OSC address space.
+ */
+package com.osc.state;
+
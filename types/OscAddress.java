@@ -17,7 +17,6 @@ public class OscAddress extends OscValue {
 	 */
 	public OscAddress(ByteBuffer aPacket, int aPos) {
 		super(aPacket, aPos);
-		get();
 	}
 
 	/**
@@ -16,18 +16,61 @@ public class OscBlob extends OscValue {
 	 */
 	public OscBlob(ByteBuffer aPacket, int aPos) {
 		super(aPacket, aPos);
-		get();
 	}
 
 	/**
 	 * Returns the blob data.
 	 * 
+	 * The data is copied in a newly allocated array at each call, prefer
+	 * {@link #asByteBuffer()} or {@link #getInto(ByteBuffer)} for large blobs.
+	 * 
 	 * @return a blob data.
 	 */
 	public byte[] get() {
-		int blobSize = mPacket.getInt(mPos);
-		byte[] bytes = new byte[blobSize];
-		mPacket.get(bytes, 0, blobSize);
+		byte[] bytes = new byte[getSize()];
+		asByteBuffer().get(bytes);
 		return bytes;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Returns a read-only view of the blob data, without copying it.
+	 * 
+	 * The returned buffer shares the packet memory: its position is 0 and its
+	 * limit is the blob size.
+	 * 
+	 * @return a read-only view of the blob data.
+	 */
+	public ByteBuffer asByteBuffer() {
+		int start = mPos + 4;
+		ByteBuffer view = mPacket.asReadOnlyBuffer();
+		view.limit(start + getSize());
+		view.position(start);
+		return view.slice();
+	}
+
+	/**
+	 * Copies the blob data into the passed buffer, starting at its current
+	 * position.
+	 * 
+	 * @param dst
+	 *            the buffer where to copy the blob data.
+	 * @return the number of bytes copied.
+	 * @throws java.nio.BufferOverflowException
+	 *             if there is not enough remaining space in dst.
+	 */
+	public int getInto(ByteBuffer dst) {
+		ByteBuffer view = asByteBuffer();
+		int size = view.remaining();
+		dst.put(view);
+		return size;
+	}
+
+	/**
+	 * Returns the size of the blob data, in bytes.
+	 * 
+	 * @return the blob size, padding excluded.
+	 */
+	public int getSize() {
+		return mPacket.getInt(mPos);
+	}
+}
@@ -16,7 +16,6 @@ public class OscChar extends OscValue {
 	 */
 	public OscChar(ByteBuffer aPacket, int aPos) {
 		super(aPacket, aPos);
-		mPacket.getInt();
 	}
 
 	/**
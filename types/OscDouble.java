@@ -16,7 +16,6 @@ public class OscDouble extends OscValue {
 	 */
 	public OscDouble(ByteBuffer aPacket, int aPos) {
 		super(aPacket, aPos);
-		mPacket.getDouble();
 	}
 
 	/**
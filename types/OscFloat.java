@@ -16,7 +16,6 @@ public class OscFloat extends OscValue {
 	 */
 	public OscFloat(ByteBuffer aPacket, int aPos) {
 		super(aPacket, aPos);
-		mPacket.getFloat();
 	}
 
 	/**
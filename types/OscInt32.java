@@ -16,7 +16,6 @@ public class OscInt32 extends OscValue {
 	 */
 	public OscInt32(ByteBuffer aPacket, int aPos) {
 		super(aPacket, aPos);
-		mPacket.getInt();
 	}
 
 	/**
@@ -16,7 +16,6 @@ public class OscInt64 extends OscValue {
 	 */
 	public OscInt64(ByteBuffer aPacket, int aPos) {
 		super(aPacket, aPos);
-		mPacket.getLong();
 	}
 
 	/**
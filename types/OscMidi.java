@@ -16,7 +16,6 @@ public class OscMidi extends OscValue {
 	 */
 	public OscMidi(ByteBuffer aPacket, int aPos) {
 		super(aPacket, aPos);
-		mPacket.getInt();
 	}
 
 	/**
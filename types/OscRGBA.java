@@ -16,7 +16,6 @@ public class OscRGBA extends OscValue {
 	 */
 	public OscRGBA(ByteBuffer aPacket, int aPos) {
 		super(aPacket, aPos);
-		mPacket.getInt();
 	}
 
 	/**
@@ -16,7 +16,6 @@ public class OscString extends OscValue {
 	 */
 	public OscString(ByteBuffer aPacket, int aPos) {
 		super(aPacket, aPos);
-		get();
 	}
 
 	/**
@@ -16,7 +16,6 @@ public class OscSymbol extends OscValue {
 	 */
 	public OscSymbol(ByteBuffer aPacket, int aPos) {
 		super(aPacket, aPos);
-		get();
 	}
 
 	/**
@@ -16,7 +16,6 @@ public class OscTags extends OscValue {
 	 */
 	public OscTags(ByteBuffer aPacket, int aPos) {
 		super(aPacket, aPos);
-		get();
 	}
 
 	/**
@@ -16,7 +16,6 @@ public class OscTimeTag extends OscValue {
 	 */
 	public OscTimeTag(ByteBuffer aPacket, int aPos) {
 		super(aPacket, aPos);
-		mPacket.getLong();
 	}
 
 	/**
@@ -28,6 +27,21 @@ public class OscTimeTag extends OscValue {
 		return mPacket.getLong(mPos);
 	}
 
+	/**
+	 * Adds a duration to a time tag.
+	 * 
+	 * @param aTimeTag
+	 *            the NTP time tag.
+	 * @param aNanos
+	 *            the duration to add, in nanoseconds, possibly negative.
+	 * @return the shifted time tag.
+	 */
+	public static long addNanos(long aTimeTag, long aNanos) {
+		long seconds = Math.floorDiv(aNanos, 1000000000L);
+		long fraction = (Math.floorMod(aNanos, 1000000000L) << 32) / 1000000000L;
+		return aTimeTag + (seconds << 32) + fraction;
+	}
+
 	public static long getImmediateTime() {
 		return 1;
 	}